@@ -0,0 +1,221 @@
+package io.dinject.generator.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation per generated bean - the build code of a bean and its factory build method rendered
+ * with String.format per line (as the generator used to) versus the typed Append buffer.
+ * <ul>
+ * <li>formatted - a copy of the previous String.format rendering (baseline)</li>
+ * <li>typed - the same code rendered with Append and <code>MetaData.buildMethod</code></li>
+ * </ul>
+ * <p>
+ * Append and MetaData are package private in the generator so typed calls them via method handles
+ * looked up once (constant such that the calls are inlined as direct calls would be).
+ * </p>
+ * <p>
+ * Run with <code>-prof gc</code> (as per {@link #main(String[])}) and compare <code>gc.alloc.rate.norm</code>
+ * which is the bytes allocated per generated bean.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AppendBenchmark {
+
+  private static final String[] PARAMS = {"Pump", "Grinder", "Heater"};
+
+  private static final MethodHandle NEW_APPEND;
+
+  private static final MethodHandle APPEND_STRING;
+
+  private static final MethodHandle APPEND_CHAR;
+
+  private static final MethodHandle EOL;
+
+  private static final MethodHandle BUILD_METHOD;
+
+  private static final Constructor<?> NEW_META_DATA;
+
+  private static final Method PROVIDES;
+
+  private static final Method DEPENDS_ON;
+
+  static {
+    try {
+      Class<?> append = Class.forName("io.dinject.generator.Append");
+      Class<?> metaData = Class.forName("io.dinject.generator.MetaData");
+      Class<?> wiring = Class.forName("io.dinject.generator.DirectWiring");
+      Class<?> lifecycle = Class.forName("io.dinject.generator.ParallelLifecycle");
+      Class<?> injection = Class.forName("io.dinject.generator.FactoryInjection");
+
+      NEW_APPEND = handle(append.getDeclaredConstructor())
+        .asType(MethodType.methodType(Object.class));
+      APPEND_STRING = handle(append.getDeclaredMethod("append", String.class))
+        .asType(MethodType.methodType(void.class, Object.class, String.class));
+      APPEND_CHAR = handle(append.getDeclaredMethod("append", char.class))
+        .asType(MethodType.methodType(void.class, Object.class, char.class));
+      EOL = handle(append.getDeclaredMethod("eol"))
+        .asType(MethodType.methodType(void.class, Object.class));
+      BUILD_METHOD = handle(metaData.getDeclaredMethod("buildMethod", append, wiring, lifecycle, injection))
+        .asType(MethodType.methodType(void.class, Object.class, Object.class, Object.class, Object.class, Object.class));
+
+      NEW_META_DATA = accessible(metaData.getDeclaredConstructor(String.class));
+      PROVIDES = accessible(metaData.getDeclaredMethod("getProvides"));
+      DEPENDS_ON = accessible(metaData.getDeclaredMethod("getDependsOn"));
+
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private static <T extends AccessibleObject> T accessible(T member) {
+    member.setAccessible(true);
+    return member;
+  }
+
+  private static MethodHandle handle(Constructor<?> constructor) throws IllegalAccessException {
+    return MethodHandles.lookup().unreflectConstructor(accessible(constructor));
+  }
+
+  private static MethodHandle handle(Method method) throws IllegalAccessException {
+    return MethodHandles.lookup().unreflect(accessible(method));
+  }
+
+  private Object metaData;
+
+  private String type;
+
+  private String shortType;
+
+  private List<String> provides;
+
+  private List<String> dependsOn;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() throws ReflectiveOperationException {
+    type = "org.example.coffee.CoffeeMaker";
+    shortType = "CoffeeMaker";
+    metaData = NEW_META_DATA.newInstance(type);
+    provides = (List<String>) PROVIDES.invoke(metaData);
+    dependsOn = (List<String>) DEPENDS_ON.invoke(metaData);
+    provides.add("org.example.coffee.Maker");
+    for (String param : PARAMS) {
+      dependsOn.add("org.example.coffee." + param);
+    }
+  }
+
+  /**
+   * The build code and factory build method as rendered before Append (String.format per line).
+   */
+  @Benchmark
+  public String formatted() {
+    StringBuilder sb = new StringBuilder(1024);
+    sb.append(String.format("  public static void build(Builder builder) {%n"));
+    sb.append(String.format("    if (builder.isAddBeanFor(%s.class, %s.class)) {%n", "Maker", "CoffeeMaker"));
+    sb.append(String.format("      %s bean = new %s(", "CoffeeMaker", "CoffeeMaker"));
+    for (int i = 0; i < PARAMS.length; i++) {
+      if (i > 0) {
+        sb.append(",");
+      }
+      sb.append(String.format("builder.get(%s.class)", PARAMS[i]));
+    }
+    sb.append(String.format(");%n"));
+    sb.append(String.format("      builder.register%s(bean, %s, %s.class);%n", "", "null", "Maker"));
+    sb.append(String.format("    }%n  }%n%n"));
+
+    sb.append(String.format("  @DependencyMeta(type=\"%s\",provides={\"%s\"},dependsOn={", type, provides.get(0)));
+    for (int i = 0; i < dependsOn.size(); i++) {
+      if (i > 0) {
+        sb.append(",");
+      }
+      sb.append(String.format("\"%s\"", dependsOn.get(i)));
+    }
+    sb.append(String.format("})%n"));
+    sb.append(String.format("  protected void build_%s() {%n", shortType));
+    sb.append(String.format("    %s$di.build(builder);%n", shortType));
+    sb.append(String.format("  }%n"));
+    return sb.toString();
+  }
+
+  /**
+   * The same code rendered with Append and the factory build method of MetaData.
+   */
+  @Benchmark
+  public String typed() throws Throwable {
+    Object writer = (Object) NEW_APPEND.invokeExact();
+    line(writer, "  public static void build(Builder builder) {");
+    append(writer, "    if (builder.isAddBeanFor(");
+    append(writer, "Maker");
+    append(writer, ".class, ");
+    append(writer, "CoffeeMaker");
+    line(writer, ".class)) {");
+    append(writer, "      ");
+    append(writer, "CoffeeMaker");
+    append(writer, " bean = new ");
+    append(writer, "CoffeeMaker");
+    APPEND_CHAR.invokeExact(writer, '(');
+    for (int i = 0; i < PARAMS.length; i++) {
+      if (i > 0) {
+        APPEND_CHAR.invokeExact(writer, ',');
+      }
+      append(writer, "builder.get(");
+      append(writer, PARAMS[i]);
+      append(writer, ".class)");
+    }
+    line(writer, ");");
+    append(writer, "      builder.register(bean, null, ");
+    append(writer, "Maker");
+    line(writer, ".class);");
+    line(writer, "    }");
+    line(writer, "  }");
+    EOL.invokeExact(writer);
+
+    BUILD_METHOD.invokeExact(metaData, writer, (Object) null, (Object) null, (Object) null);
+    return writer.toString();
+  }
+
+  private static void append(Object writer, String content) throws Throwable {
+    APPEND_STRING.invokeExact(writer, content);
+  }
+
+  private static void line(Object writer, String content) throws Throwable {
+    APPEND_STRING.invokeExact(writer, content);
+    EOL.invokeExact(writer);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+      .include(AppendBenchmark.class.getSimpleName())
+      .addProfiler(GCProfiler.class)
+      .build();
+    new Runner(options).run();
+  }
+}
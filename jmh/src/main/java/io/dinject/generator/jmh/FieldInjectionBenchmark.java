@@ -0,0 +1,95 @@
+package io.dinject.generator.jmh;
+
+import io.dinject.BeanContext;
+import io.dinject.core.BeanContextFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to a first bean context of a generated module where every bean has an injected field.
+ * <p>
+ * Compares each bean adding an injector lambda to the builder with the factory injecting the fields
+ * in one method (<code>dinject.factoryInject</code>). Each invocation loads the module with a new
+ * class loader such that it is a cold start (the lambda bootstraps run each time) and reports the
+ * number of classes loaded creating the context.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(3)
+public class FieldInjectionBenchmark {
+
+  @Param({"1000"})
+  int beans;
+
+  @Param({"false", "true"})
+  boolean factoryInject;
+
+  private InMemoryCompiler.Output output;
+
+  private Class<?> factoryType;
+
+  /**
+   * Reports the number of classes loaded per invocation.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class ClassCount {
+
+    public long classesLoaded;
+  }
+
+  @Setup
+  public void setup() {
+    SourceGenerator generator = new SourceGenerator()
+      .beans(beans)
+      .fieldInjectEvery(1);
+
+    String[] options = factoryInject ? new String[]{"-Adinject.factoryInject"} : new String[0];
+    output = new InMemoryCompiler(generator.generate()).compile(ProcessorBenchmark.processors(), options);
+  }
+
+  @Setup(Level.Invocation)
+  public void load() throws ClassNotFoundException {
+    factoryType = output.loadFactory(getClass().getClassLoader());
+  }
+
+  @Benchmark
+  public BeanContext createContext(ClassCount count) throws ReflectiveOperationException {
+    ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+    long before = classLoading.getTotalLoadedClassCount();
+    BeanContextFactory factory = (BeanContextFactory) factoryType.newInstance();
+    BeanContext context = factory.createContext(null);
+    count.classesLoaded += classLoading.getTotalLoadedClassCount() - before;
+    return context;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+      .include(FieldInjectionBenchmark.class.getSimpleName())
+      .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,230 @@
+package io.dinject.generator.jmh;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiles sources in process via {@link JavaCompiler} with all output held in memory.
+ */
+public class InMemoryCompiler {
+
+  private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+  private final List<JavaFileObject> sources = new ArrayList<>();
+
+  /**
+   * Create with the sources (keyed by fully qualified class name) to compile.
+   */
+  public InMemoryCompiler(Map<String, String> sources) {
+    if (compiler == null) {
+      throw new IllegalStateException("No system JavaCompiler - run with a JDK");
+    }
+    for (Map.Entry<String, String> entry : sources.entrySet()) {
+      this.sources.add(new Source(entry.getKey(), entry.getValue()));
+    }
+  }
+
+  /**
+   * Compile the sources with the given processors and javac options.
+   */
+  public Output compile(List<? extends Processor> processors, String... options) {
+
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, null, null);
+    Output output = new Output(standard);
+
+    List<String> allOptions = new ArrayList<>();
+    allOptions.add("-classpath");
+    allOptions.add(System.getProperty("java.class.path"));
+    allOptions.addAll(Arrays.asList(options));
+
+    JavaCompiler.CompilationTask task = compiler.getTask(null, output, diagnostics, allOptions, null, sources);
+    task.setProcessors(processors);
+    boolean success = task.call();
+    if (!success) {
+      for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+        if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+          throw new IllegalStateException("Compile failed: " + diagnostic);
+        }
+      }
+      throw new IllegalStateException("Compile failed");
+    }
+    return output;
+  }
+
+  private static class Source extends SimpleJavaFileObject {
+
+    private final String content;
+
+    Source(String className, String content) {
+      super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+      this.content = content;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return content;
+    }
+  }
+
+  /**
+   * The in memory output of a compile (generated sources, class files and resources).
+   */
+  public static class Output extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    private final Map<String, MemoryFile> generatedSources = new TreeMap<>();
+
+    private final Map<String, MemoryFile> classes = new TreeMap<>();
+
+    private final Map<String, MemoryFile> resources = new TreeMap<>();
+
+    Output(StandardJavaFileManager fileManager) {
+      super(fileManager);
+    }
+
+    /**
+     * Return the generated sources keyed by class name.
+     */
+    public Map<String, String> getGeneratedSources() {
+      Map<String, String> map = new TreeMap<>();
+      for (Map.Entry<String, MemoryFile> entry : generatedSources.entrySet()) {
+        map.put(entry.getKey(), entry.getValue().getCharContent(true).toString());
+      }
+      return map;
+    }
+
+    /**
+     * Return the compiled classes keyed by class name.
+     */
+    public Map<String, byte[]> getClasses() {
+      Map<String, byte[]> map = new TreeMap<>();
+      for (Map.Entry<String, MemoryFile> entry : classes.entrySet()) {
+        map.put(entry.getKey(), entry.getValue().content);
+      }
+      return map;
+    }
+
+    /**
+     * Return a class loader for the compiled classes.
+     */
+    public ClassLoader getClassLoader(ClassLoader parent) {
+      Map<String, byte[]> compiled = getClasses();
+      return new ClassLoader(parent) {
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+          byte[] bytes = compiled.get(name);
+          if (bytes == null) {
+            throw new ClassNotFoundException(name);
+          }
+          return defineClass(name, bytes, 0, bytes.length);
+        }
+      };
+    }
+
+    /**
+     * Load the generated factory (as per the services file) with a class loader for the compiled classes.
+     */
+    public Class<?> loadFactory(ClassLoader parent) throws ClassNotFoundException {
+      String factoryName = getResource("META-INF/services/io.dinject.core.BeanContextFactory");
+      if (factoryName == null) {
+        throw new IllegalStateException("No factory generated");
+      }
+      return getClassLoader(parent).loadClass(factoryName.trim());
+    }
+
+    /**
+     * Return the content of a generated resource (or null).
+     */
+    public String getResource(String relativeName) {
+      MemoryFile file = resources.get(relativeName);
+      return file == null || file.content == null ? null : file.getCharContent(true).toString();
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+      Map<String, MemoryFile> files = (kind == JavaFileObject.Kind.SOURCE) ? generatedSources : classes;
+      return files.computeIfAbsent(className, name -> new MemoryFile(name.replace('.', '/') + kind.extension, kind));
+    }
+
+    @Override
+    public FileObject getFileForOutput(Location location, String packageName, String relativeName, FileObject sibling) {
+      String name = packageName.isEmpty() ? relativeName : packageName.replace('.', '/') + "/" + relativeName;
+      return resources.computeIfAbsent(name, n -> new MemoryFile(n, JavaFileObject.Kind.OTHER));
+    }
+
+    @Override
+    public boolean isSameFile(FileObject a, FileObject b) {
+      if (a instanceof MemoryFile || b instanceof MemoryFile) {
+        return a.equals(b);
+      }
+      return super.isSameFile(a, b);
+    }
+  }
+
+  private static class MemoryFile extends SimpleJavaFileObject {
+
+    private byte[] content;
+
+    MemoryFile(String path, Kind kind) {
+      super(URI.create("mem:///" + path), kind);
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+      return new ByteArrayOutputStream() {
+        @Override
+        public void close() {
+          content = toByteArray();
+        }
+      };
+    }
+
+    @Override
+    public Writer openWriter() {
+      return new OutputStreamWriter(openOutputStream(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+      if (content == null) {
+        throw new FileNotFoundException(toUri().toString());
+      }
+      return new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public Reader openReader(boolean ignoreEncodingErrors) throws IOException {
+      return new InputStreamReader(openInputStream(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return content == null ? "" : new String(content, StandardCharsets.UTF_8);
+    }
+  }
+}
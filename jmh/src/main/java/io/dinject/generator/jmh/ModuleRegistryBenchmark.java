@@ -0,0 +1,141 @@
+package io.dinject.generator.jmh;
+
+import io.dinject.core.BeanContextFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Discovery of the module factory on an application classpath of many dependency jars.
+ * <p>
+ * Compares <code>ServiceLoader</code> (which opens every jar looking up the services file and creates
+ * the factory reflectively) with the generated registry (<code>dinject.registry</code>) that is loaded
+ * by its name (in the package of the factory) from the application jar (first on the classpath as usual) and creates the factory
+ * directly. Each invocation uses a new class loader such that no jar is opened beforehand.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(3)
+public class ModuleRegistryBenchmark {
+
+  @Param({"300"})
+  int dependencies;
+
+  private URL[] classPath;
+
+  private URLClassLoader loader;
+
+  private String registry;
+
+  @Setup
+  public void setup() throws IOException {
+    InMemoryCompiler.Output output = new InMemoryCompiler(new SourceGenerator().beans(20).generate())
+      .compile(ProcessorBenchmark.processors(), "-Adinject.moduleOrder", "-Adinject.registry");
+    for (String className : output.getGeneratedSources().keySet()) {
+      if (className.endsWith("._di$Registry")) {
+        registry = className;
+      }
+    }
+
+    Path dir = Files.createTempDirectory("dinject-registry");
+    List<URL> urls = new ArrayList<>();
+    urls.add(writeApplication(dir.resolve("application.jar"), output).toUri().toURL());
+    for (int i = 0; i < dependencies; i++) {
+      urls.add(writeDependency(dir.resolve("dependency" + i + ".jar"), i).toUri().toURL());
+    }
+    classPath = urls.toArray(new URL[0]);
+  }
+
+  /**
+   * Write a dependency jar with a number of (empty) class entries and an unrelated services file.
+   */
+  private Path writeDependency(Path jar, int index) throws IOException {
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+      for (int i = 0; i < 50; i++) {
+        write(out, "org/dependency" + index + "/Type" + i + ".class", new byte[0]);
+      }
+      write(out, "META-INF/services/org.dependency" + index + ".Plugin", ("org.dependency" + index + ".Type0").getBytes(StandardCharsets.UTF_8));
+    }
+    return jar;
+  }
+
+  private Path writeApplication(Path jar, InMemoryCompiler.Output output) throws IOException {
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+      for (Map.Entry<String, byte[]> entry : output.getClasses().entrySet()) {
+        write(out, entry.getKey().replace('.', '/') + ".class", entry.getValue());
+      }
+      String services = "META-INF/services/io.dinject.core.BeanContextFactory";
+      write(out, services, output.getResource(services).getBytes(StandardCharsets.UTF_8));
+    }
+    return jar;
+  }
+
+  private static void write(JarOutputStream out, String name, byte[] content) throws IOException {
+    out.putNextEntry(new JarEntry(name));
+    out.write(content);
+    out.closeEntry();
+  }
+
+  @Setup(Level.Invocation)
+  public void load() {
+    loader = new URLClassLoader(classPath, getClass().getClassLoader());
+  }
+
+  @TearDown(Level.Invocation)
+  public void close() throws IOException {
+    loader.close();
+  }
+
+  @Benchmark
+  public List<BeanContextFactory> serviceLoader() {
+    List<BeanContextFactory> factories = new ArrayList<>();
+    for (BeanContextFactory factory : ServiceLoader.load(BeanContextFactory.class, loader)) {
+      factories.add(factory);
+    }
+    return factories;
+  }
+
+  @Benchmark
+  public BeanContextFactory[] registry() throws ReflectiveOperationException {
+    return (BeanContextFactory[]) loader.loadClass(registry).getMethod("factories").invoke(null);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+      .include(ModuleRegistryBenchmark.class.getSimpleName())
+      .build();
+    new Runner(options).run();
+  }
+}
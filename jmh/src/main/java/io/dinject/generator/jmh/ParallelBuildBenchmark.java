@@ -0,0 +1,77 @@
+package io.dinject.generator.jmh;
+
+import io.dinject.BeanContext;
+import io.dinject.core.BeanContextFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall clock time to create the bean context where each bean constructor blocks (as opening a
+ * connection pool or warming a client would) comparing the sequential factory with the factory
+ * generated with <code>-Adinject.parallelBuild</code> at 4 and 8 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelBuildBenchmark {
+
+  @Param({"200"})
+  int beans;
+
+  /**
+   * The time each bean constructor blocks for.
+   */
+  @Param({"1000"})
+  int constructorMicros;
+
+  /**
+   * The number of threads to build with (0 for the sequential factory).
+   */
+  @Param({"0", "4", "8"})
+  int threads;
+
+  private Class<?> factoryType;
+
+  @Setup
+  public void setup() throws ClassNotFoundException {
+    SourceGenerator generator = new SourceGenerator()
+      .beans(beans)
+      .maxArity(2)
+      .constructorBody("    java.util.concurrent.locks.LockSupport.parkNanos(" + constructorMicros * 1000L + "L);\n");
+
+    String[] options = threads == 0 ? new String[0] : new String[]{"-Adinject.parallelBuild=" + threads};
+    InMemoryCompiler.Output output = new InMemoryCompiler(generator.generate()).compile(ProcessorBenchmark.processors(), options);
+    factoryType = output.loadFactory(getClass().getClassLoader());
+  }
+
+  @Benchmark
+  public BeanContext createContext() throws ReflectiveOperationException {
+    BeanContextFactory factory = (BeanContextFactory) factoryType.newInstance();
+    return factory.createContext(null);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+      .include(ParallelBuildBenchmark.class.getSimpleName())
+      .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,61 @@
+package io.dinject.generator.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to process synthetic modules of 1k and 10k beans rendering the $di classes serially and in
+ * parallel (<code>dinject.parallel</code>).
+ * <p>
+ * Compare with <code>ProcessorBenchmark.enter</code> for the same module size to get the processor
+ * cost of each mode.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelRenderBenchmark {
+
+  @Param({"1000", "10000"})
+  int beans;
+
+  @Param({"1", "4"})
+  int parallel;
+
+  private InMemoryCompiler compiler;
+
+  @Setup
+  public void setup() {
+    compiler = new InMemoryCompiler(new SourceGenerator().beans(beans).generate());
+  }
+
+  @Benchmark
+  public Object process() {
+    return compiler.compile(ProcessorBenchmark.processors(), "-proc:only", "-Adinject.parallel=" + parallel);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+      .include(ParallelRenderBenchmark.class.getSimpleName())
+      .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,83 @@
+package io.dinject.generator.jmh;
+
+import io.dinject.generator.BeanProcessor;
+import io.dinject.generator.Processor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Annotation processing throughput over synthetic modules of 100, 1k and 10k beans.
+ * <ul>
+ * <li>enter - parse and enter the sources without any processor (baseline)</li>
+ * <li>process - parse, enter and run the dinject processor (<code>-proc:only</code>)</li>
+ * <li>compile - full compile including the generated sources</li>
+ * </ul>
+ * <p>
+ * The processor cost is <code>process</code> less <code>enter</code>. Run with <code>-prof gc</code>
+ * (as per {@link #main(String[])}) to report the allocation rate of each phase.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProcessorBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  int beans;
+
+  private InMemoryCompiler compiler;
+
+  @Setup
+  public void setup() {
+    compiler = new InMemoryCompiler(new SourceGenerator().beans(beans).generate());
+  }
+
+  @Benchmark
+  public Object enter() {
+    return compiler.compile(Collections.emptyList(), "-proc:only");
+  }
+
+  @Benchmark
+  public Object process() {
+    return compiler.compile(processors(), "-proc:only");
+  }
+
+  @Benchmark
+  public Object compile() {
+    return compiler.compile(processors());
+  }
+
+  static List<javax.annotation.processing.Processor> processors() {
+    return Arrays.asList(new BeanProcessor(), new Processor());
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+      .include(ProcessorBenchmark.class.getSimpleName())
+      .addProfiler(GCProfiler.class)
+      .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,75 @@
+package io.dinject.generator.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Annotation processing of a module with heavy annotation usage where the qualifier resolution of
+ * the same annotation types is repeated for each bean and constructor parameter.
+ * <p>
+ * Every bean is qualified (via <code>@Named</code> or a custom qualifier), each constructor parameter
+ * has the qualifier of its dependency and each bean and parameter has a number of marker annotations
+ * that are not qualifiers. The processor cost is <code>process</code> less <code>enter</code>.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QualifierBenchmark {
+
+  @Param({"1000"})
+  int beans;
+
+  @Param({"0", "8"})
+  int markers;
+
+  private InMemoryCompiler compiler;
+
+  @Setup
+  public void setup() {
+    SourceGenerator generator = new SourceGenerator()
+      .beans(beans)
+      .qualifierEvery(1)
+      .qualifyParams(true)
+      .markers(markers);
+    compiler = new InMemoryCompiler(generator.generate());
+  }
+
+  @Benchmark
+  public Object enter() {
+    return compiler.compile(Collections.emptyList(), "-proc:only");
+  }
+
+  @Benchmark
+  public Object process() {
+    return compiler.compile(ProcessorBenchmark.processors(), "-proc:only");
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+      .include(QualifierBenchmark.class.getSimpleName())
+      .addProfiler(GCProfiler.class)
+      .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,74 @@
+package io.dinject.generator.jmh;
+
+import io.dinject.BeanContext;
+import io.dinject.core.BeanContextFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation and time to create the bean context of a generated 1k bean module with and without
+ * the registration table (<code>dinject.registrationTable</code>).
+ * <p>
+ * Run with the GC profiler (as per {@link #main(String[])}) and compare <code>gc.alloc.rate.norm</code>
+ * - the bytes allocated per context build.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RegistrationBenchmark {
+
+  @Param({"1000"})
+  int beans;
+
+  @Param({"false", "true"})
+  boolean registrationTable;
+
+  private Class<?> factoryType;
+
+  @Setup
+  public void setup() throws ClassNotFoundException {
+    SourceGenerator generator = new SourceGenerator()
+      .beans(beans)
+      .markers(2);
+
+    InMemoryCompiler compiler = new InMemoryCompiler(generator.generate());
+    InMemoryCompiler.Output output = registrationTable
+      ? compiler.compile(ProcessorBenchmark.processors(), "-Adinject.registrationTable")
+      : compiler.compile(ProcessorBenchmark.processors());
+    factoryType = output.loadFactory(getClass().getClassLoader());
+  }
+
+  @Benchmark
+  public BeanContext createContext() throws ReflectiveOperationException {
+    BeanContextFactory factory = (BeanContextFactory) factoryType.newInstance();
+    return factory.createContext(null);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+      .include(RegistrationBenchmark.class.getSimpleName())
+      .addProfiler(GCProfiler.class)
+      .build();
+    new Runner(options).run();
+  }
+}
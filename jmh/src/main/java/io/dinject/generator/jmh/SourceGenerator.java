@@ -0,0 +1,270 @@
+package io.dinject.generator.jmh;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates the source of a synthetic module of beans.
+ * <p>
+ * Beans are spread across packages and depend on (randomly chosen) earlier beans such that
+ * the module has a valid dependency graph. Shared by the benchmarks that need a module to
+ * process or a context to build.
+ * </p>
+ */
+public class SourceGenerator {
+
+  private int beans = 100;
+
+  private int maxArity = 4;
+
+  private int packageSize = 100;
+
+  private int interfaceEvery = 3;
+
+  private int factoryEvery = 50;
+
+  private int fieldInjectEvery = 5;
+
+  private int qualifierEvery = 10;
+
+  private boolean lazy;
+
+  private boolean qualifyParams;
+
+  private int markers;
+
+  private String constructorBody = "";
+
+  private String basePackage = "bench";
+
+  private long seed = 42;
+
+  /**
+   * Set the number of <code>@Singleton</code> beans.
+   */
+  public SourceGenerator beans(int beans) {
+    this.beans = beans;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of constructor dependencies per bean.
+   */
+  public SourceGenerator maxArity(int maxArity) {
+    this.maxArity = maxArity;
+    return this;
+  }
+
+  /**
+   * Set the number of beans per package.
+   */
+  public SourceGenerator packageSize(int packageSize) {
+    this.packageSize = packageSize;
+    return this;
+  }
+
+  /**
+   * Every nth bean implements an interface (0 for none).
+   */
+  public SourceGenerator interfaceEvery(int interfaceEvery) {
+    this.interfaceEvery = interfaceEvery;
+    return this;
+  }
+
+  /**
+   * Every nth bean has a matching <code>@Factory</code> with a <code>@Bean</code> method (0 for none).
+   */
+  public SourceGenerator factoryEvery(int factoryEvery) {
+    this.factoryEvery = factoryEvery;
+    return this;
+  }
+
+  /**
+   * Every nth bean has an <code>@Inject</code> field (0 for none).
+   */
+  public SourceGenerator fieldInjectEvery(int fieldInjectEvery) {
+    this.fieldInjectEvery = fieldInjectEvery;
+    return this;
+  }
+
+  /**
+   * Every nth bean is qualified with <code>@Named</code> or a custom qualifier (0 for none).
+   */
+  public SourceGenerator qualifierEvery(int qualifierEvery) {
+    this.qualifierEvery = qualifierEvery;
+    return this;
+  }
+
+  /**
+   * Set to true for the constructor parameters to have the qualifier of the bean they depend on.
+   */
+  public SourceGenerator qualifyParams(boolean qualifyParams) {
+    this.qualifyParams = qualifyParams;
+    return this;
+  }
+
+  /**
+   * Set the number of (non qualifier) marker annotations added to each bean and constructor parameter.
+   */
+  public SourceGenerator markers(int markers) {
+    this.markers = markers;
+    return this;
+  }
+
+  /**
+   * Set statements added to each bean constructor (for example to simulate slow construction).
+   */
+  public SourceGenerator constructorBody(String constructorBody) {
+    this.constructorBody = constructorBody;
+    return this;
+  }
+
+  /**
+   * Set to true for the beans that implement an interface to be <code>@Lazy</code>.
+   * <p>
+   * The annotation is <code>[basePackage].Lazy</code> which is compiled with <code>-Adinject.lazy=[basePackage].Lazy</code>.
+   * </p>
+   */
+  public SourceGenerator lazy(boolean lazy) {
+    this.lazy = lazy;
+    return this;
+  }
+
+  /**
+   * Set the base package of the generated beans.
+   */
+  public SourceGenerator basePackage(String basePackage) {
+    this.basePackage = basePackage;
+    return this;
+  }
+
+  /**
+   * Set the random seed used to choose dependencies.
+   */
+  public SourceGenerator seed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  /**
+   * Return the generated sources keyed by fully qualified class name.
+   */
+  public Map<String, String> generate() {
+
+    Random random = new Random(seed);
+    Map<String, String> sources = new LinkedHashMap<>();
+
+    String qualifier = basePackage + ".Blue";
+    sources.put(qualifier, "package " + basePackage + ";\n\n"
+      + "@javax.inject.Qualifier\n"
+      + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+      + "public @interface Blue {\n}\n");
+    if (lazy) {
+      sources.put(basePackage + ".Lazy", "package " + basePackage + ";\n\npublic @interface Lazy {\n}\n");
+    }
+    StringBuilder markerAnnotations = new StringBuilder();
+    for (int m = 0; m < markers; m++) {
+      sources.put(basePackage + ".Marker" + m, "package " + basePackage + ";\n\n"
+        + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+        + "public @interface Marker" + m + " {\n}\n");
+      markerAnnotations.append('@').append(basePackage).append(".Marker").append(m).append(' ');
+    }
+
+    List<String> injectTypes = new ArrayList<>(beans);
+    List<String> injectQualifiers = new ArrayList<>(beans);
+    for (int i = 0; i < beans; i++) {
+      String pkg = packageOf(i);
+      String name = "Bean" + i;
+      String type = pkg + "." + name;
+
+      boolean withInterface = every(interfaceEvery, i);
+      if (withInterface) {
+        sources.put(pkg + ".IBean" + i, "package " + pkg + ";\n\npublic interface IBean" + i + " {\n\n  int id();\n}\n");
+      }
+
+      StringBuilder sb = new StringBuilder(512);
+      sb.append("package ").append(pkg).append(";\n\n");
+      String beanQualifier = null;
+      if (every(qualifierEvery, i)) {
+        if ((i / qualifierEvery) % 2 == 0) {
+          beanQualifier = "@javax.inject.Named(\"n" + i + "\")";
+        } else {
+          beanQualifier = "@" + qualifier;
+        }
+        sb.append(beanQualifier).append("\n");
+      }
+      if (markers > 0) {
+        sb.append(markerAnnotations).append('\n');
+      }
+      if (lazy && withInterface) {
+        sb.append("@").append(basePackage).append(".Lazy\n");
+      }
+      sb.append("@javax.inject.Singleton\n");
+      sb.append("public class ").append(name);
+      if (withInterface) {
+        sb.append(" implements IBean").append(i);
+      }
+      sb.append(" {\n\n");
+
+      if (every(fieldInjectEvery, i) && !injectTypes.isEmpty()) {
+        String fieldType = injectTypes.get(random.nextInt(injectTypes.size()));
+        sb.append("  @javax.inject.Inject\n");
+        sb.append("  ").append(fieldType).append(" injected;\n\n");
+      }
+
+      int arity = injectTypes.isEmpty() ? 0 : random.nextInt(maxArity + 1);
+      sb.append("  public ").append(name).append("(");
+      for (int p = 0; p < arity; p++) {
+        if (p > 0) {
+          sb.append(", ");
+        }
+        int dependency = random.nextInt(injectTypes.size());
+        if (qualifyParams && injectQualifiers.get(dependency) != null) {
+          sb.append(injectQualifiers.get(dependency)).append(' ');
+        }
+        sb.append(markerAnnotations);
+        sb.append(injectTypes.get(dependency)).append(" p").append(p);
+      }
+      sb.append(") {\n");
+      sb.append(constructorBody);
+      sb.append("  }\n");
+      if (withInterface) {
+        sb.append("\n  @Override\n  public int id() {\n    return ").append(i).append(";\n  }\n");
+      }
+      sb.append("}\n");
+      sources.put(type, sb.toString());
+
+      injectTypes.add(withInterface ? pkg + ".IBean" + i : type);
+      injectQualifiers.add(beanQualifier);
+
+      if (every(factoryEvery, i)) {
+        addFactory(sources, pkg, i, lazy && withInterface ? pkg + ".IBean" + i : type);
+      }
+    }
+    return sources;
+  }
+
+  private void addFactory(Map<String, String> sources, String pkg, int i, String dependency) {
+    String product = "Product" + i;
+    sources.put(pkg + "." + product, "package " + pkg + ";\n\npublic class " + product + " {\n}\n");
+    sources.put(pkg + ".Factory" + i, "package " + pkg + ";\n\n"
+      + "@io.dinject.Factory\n"
+      + "public class Factory" + i + " {\n\n"
+      + "  @io.dinject.Bean\n"
+      + "  " + product + " product(" + dependency + " dependency) {\n"
+      + "    return new " + product + "();\n"
+      + "  }\n"
+      + "}\n");
+  }
+
+  private String packageOf(int i) {
+    return basePackage + ".p" + (i / packageSize);
+  }
+
+  private static boolean every(int every, int i) {
+    return every > 0 && i % every == every - 1;
+  }
+}
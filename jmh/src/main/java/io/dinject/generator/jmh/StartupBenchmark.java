@@ -0,0 +1,75 @@
+package io.dinject.generator.jmh;
+
+import io.dinject.BeanContext;
+import io.dinject.core.BeanContextFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to create the bean context of a generated 1k bean module where each bean constructor does some work.
+ * <p>
+ * Compares building all the beans eagerly with the beans that implement an interface being
+ * <code>@Lazy</code> (and not created as nothing uses them during the benchmark).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+  @Param({"1000"})
+  int beans;
+
+  @Param({"false", "true"})
+  boolean lazy;
+
+  /**
+   * The amount of work (in Blackhole tokens) done by each bean constructor.
+   */
+  @Param({"1000"})
+  int work;
+
+  private Class<?> factoryType;
+
+  @Setup
+  public void setup() throws ClassNotFoundException {
+    SourceGenerator generator = new SourceGenerator()
+      .beans(beans)
+      .lazy(lazy)
+      .constructorBody("    org.openjdk.jmh.infra.Blackhole.consumeCPU(" + work + ");\n");
+
+    InMemoryCompiler.Output output = new InMemoryCompiler(generator.generate()).compile(ProcessorBenchmark.processors(), "-Adinject.lazy=bench.Lazy");
+    factoryType = output.loadFactory(getClass().getClassLoader());
+  }
+
+  @Benchmark
+  public BeanContext createContext() throws ReflectiveOperationException {
+    BeanContextFactory factory = (BeanContextFactory) factoryType.newInstance();
+    return factory.createContext(null);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+      .include(StartupBenchmark.class.getSimpleName())
+      .build();
+    new Runner(options).run();
+  }
+}
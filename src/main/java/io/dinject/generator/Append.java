@@ -1,51 +1,59 @@
 package io.dinject.generator;
 
-import java.io.IOException;
-import java.io.Writer;
-
 /**
- * Helper that wraps a writer with some useful methods to append content.
+ * Buffer for generated source code with typed append methods.
+ * <p>
+ * Content is appended to an in memory buffer (no String.format, varargs or Formatter per line)
+ * and the source is then written as a whole via {@link #toString()}.
+ * </p>
  */
 class Append {
 
-  private final Writer writer;
+  private final StringBuilder buffer = new StringBuilder(4096);
 
-  Append(Writer writer) {
-    this.writer = writer;
+  Append append(String content) {
+    buffer.append(content);
+    return this;
   }
 
-  Append append(String content) {
-    try {
-      writer.append(content);
-      return this;
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+  Append append(char content) {
+    buffer.append(content);
+    return this;
   }
 
-  void close() {
-    try {
-      writer.flush();
-      writer.close();
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+  Append append(int content) {
+    buffer.append(content);
+    return this;
   }
 
   Append eol() {
-    try {
-      writer.append("\n");
-      return this;
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+    buffer.append('\n');
+    return this;
   }
 
   /**
-   * Append content with formatted arguments.
+   * Append the content indenting each line that is not empty.
    */
-  Append append(String format, Object... args) {
-    return append(String.format(format, args));
+  Append appendIndented(String content, String indent) {
+    int start = 0;
+    int length = content.length();
+    while (start < length) {
+      int end = content.indexOf('\n', start);
+      end = (end == -1) ? length : end + 1;
+      if (content.charAt(start) != '\n') {
+        buffer.append(indent);
+      }
+      buffer.append(content, start, end);
+      start = end;
+    }
+    return this;
   }
 
+  /**
+   * Return the buffered content.
+   */
+  @Override
+  public String toString() {
+    return buffer.toString();
+  }
 }
@@ -0,0 +1,187 @@
+package io.dinject.generator;
+
+import io.dinject.Factory;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.inject.Singleton;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Generates the <code>$di</code> class for each bean.
+ * <p>
+ * This is an isolating processor (in Gradle terms) - each generated <code>$di</code> class is derived
+ * only from its bean type and has that bean type as its single originating element. The factory
+ * that aggregates all the beans of the module is generated by {@link Processor}.
+ * </p>
+ */
+public class BeanProcessor extends AbstractProcessor {
+
+  private ProcessingContext processingContext;
+
+  private Elements elementUtils;
+
+  private Set<String> readBeans = new HashSet<>();
+
+  private ForkJoinPool renderPool;
+
+  private ProcessorMetrics metrics;
+
+  public BeanProcessor() {
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.RELEASE_8;
+  }
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+    this.processingContext = new ProcessingContext(processingEnv);
+    this.elementUtils = processingEnv.getElementUtils();
+    this.metrics = new ProcessorMetrics(processingContext.isMetrics(), "BeanProcessor");
+  }
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    return ProcessingContext.supportedOptions();
+  }
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+
+    Set<String> annotations = new LinkedHashSet<>();
+    annotations.add(Factory.class.getCanonicalName());
+    annotations.add(Singleton.class.getCanonicalName());
+    annotations.add(Constants.CONTROLLER);
+    return annotations;
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+    Set<? extends Element> controllers = Collections.emptySet();
+    TypeElement typeElement = elementUtils.getTypeElement(Constants.CONTROLLER);
+    if (typeElement != null) {
+      controllers = roundEnv.getElementsAnnotatedWith(typeElement);
+    }
+
+    metrics.startRound();
+    long start = metrics.start();
+    List<BeanReader> beanReaders = new ArrayList<>();
+    readChangedBeans(beanReaders, roundEnv.getElementsAnnotatedWith(Factory.class), true);
+    readChangedBeans(beanReaders, roundEnv.getElementsAnnotatedWith(Singleton.class), false);
+    readChangedBeans(beanReaders, controllers, false);
+    metrics.phase("readChangedBeans", start);
+
+    writeBeanHelpers(beanReaders);
+    if (roundEnv.processingOver()) {
+      if (renderPool != null) {
+        renderPool.shutdown();
+      }
+      // only the NOTE as a report of all the beans would not derive from a single originating element
+      metrics.log(processingContext);
+    }
+    return false;
+  }
+
+  private void writeBeanHelpers(List<BeanReader> beanReaders) {
+
+    List<SimpleBeanWriter> writers = new ArrayList<>(beanReaders.size());
+    for (BeanReader beanReader : beanReaders) {
+      writers.add(new SimpleBeanWriter(beanReader, processingContext));
+    }
+    long start = metrics.start();
+    List<String> sources = render(writers);
+    metrics.phase("renderBeanHelpers", start);
+
+    // write on the compiler thread in reading order
+    start = metrics.start();
+    for (int i = 0; i < writers.size(); i++) {
+      BeanReader beanReader = beanReaders.get(i);
+      try {
+        if (writers.get(i).write(sources.get(i))) {
+          metrics.written(1);
+        }
+      } catch (FilerException e) {
+        processingContext.logWarn("FilerException to write $di class " + beanReader.getBeanType() + " " + e.getMessage());
+
+      } catch (IOException e) {
+        e.printStackTrace();
+        processingContext.logError(beanReader.getBeanType(), "Failed to write $di class");
+      }
+    }
+    metrics.phase("writeBeanHelpers", start);
+  }
+
+  /**
+   * Render the source of the $di classes, in parallel when <code>dinject.parallel</code> is greater than 1.
+   */
+  private List<String> render(List<SimpleBeanWriter> writers) {
+
+    int parallelism = processingContext.getParallelism();
+    if (parallelism > 1 && writers.size() > 1) {
+      if (renderPool == null) {
+        renderPool = new ForkJoinPool(parallelism);
+      }
+      try {
+        return renderPool.submit(() -> writers.parallelStream().map(SimpleBeanWriter::render).collect(Collectors.toList())).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Failed to render $di classes", e.getCause());
+      }
+    }
+
+    List<String> sources = new ArrayList<>(writers.size());
+    for (SimpleBeanWriter writer : writers) {
+      sources.add(writer.render());
+    }
+    return sources;
+  }
+
+  /**
+   * Read the beans that have changed.
+   */
+  private void readChangedBeans(List<BeanReader> beanReaders, Set<? extends Element> beans, boolean factory) {
+    for (Element element : beans) {
+      if (!(element instanceof TypeElement)) {
+        processingContext.logError("unexpected type [" + element + "]");
+      } else {
+        TypeElement beanType = (TypeElement) element;
+        if (beanType.getKind() == ElementKind.ANNOTATION_TYPE) {
+          // skipped with a warning by the Processor
+          metrics.skipped(1);
+          continue;
+        }
+        if (readBeans.add(element.toString())) {
+          BeanReader beanReader = new BeanReader(beanType, processingContext);
+          beanReader.read(factory);
+          beanReader.checkLazy(factory);
+          beanReaders.add(beanReader);
+          metrics.read(1);
+        } else {
+          metrics.skipped(1);
+        }
+      }
+    }
+  }
+}
@@ -10,7 +10,6 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.inject.Qualifier;
 import javax.inject.Singleton;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
@@ -50,6 +49,8 @@ class BeanReader {
 
   private final String shortName;
 
+  private final String qualifiedName;
+
   private String name;
 
   private MethodReader injectConstructor;
@@ -58,9 +59,9 @@ class BeanReader {
 
   private List<MethodReader> factoryMethods = new ArrayList<>();
 
-  private Element postConstructMethod;
+  private String postConstructMethod;
 
-  private Element preDestroyMethod;
+  private String preDestroyMethod;
 
   private final List<FieldReader> injectFields = new ArrayList<>();
 
@@ -74,7 +75,10 @@ class BeanReader {
 
   private String registrationTypes;
 
-  private boolean writtenToFile;
+  /**
+   * The raw interface and annotation types the bean is registered by.
+   */
+  private final List<String> registerTypes = new ArrayList<>();
 
   /**
    * Set to true when the bean directly implements BeanLifecycle.
@@ -83,9 +87,24 @@ class BeanReader {
   private boolean primary;
   private boolean secondary;
 
+  /**
+   * Set to true when the bean is created on first use.
+   */
+  private boolean lazy;
+
+  /**
+   * The methods of the proxy for a lazy bean with interfaces.
+   */
+  private String proxyMethods;
+
+  private final List<DeclaredType> proxyInterfaces = new ArrayList<>();
+
+  private final List<String> proxyTypes = new ArrayList<>();
+
   BeanReader(TypeElement beanType, ProcessingContext context) {
     this.beanType = beanType;
     this.shortName = beanType.getSimpleName().toString();
+    this.qualifiedName = beanType.getQualifiedName().toString();
     this.context = context;
     init();
   }
@@ -95,30 +114,43 @@ class BeanReader {
     StringBuilder sb = new StringBuilder();
 
     for (TypeMirror anInterface : beanType.getInterfaces()) {
-      String type = Util.unwrapProvider(anInterface.toString());
+      TypeDescriptor descriptor = context.getTypeDescriptor(anInterface);
+      boolean provider = descriptor.getKind() == TypeDescriptor.Kind.PROVIDER;
+      String type = provider ? descriptor.getType() : descriptor.getFullType();
       if (Constants.isBeanLifecycle(type)) {
         beanLifeCycle = true;
       } else {
+        // registered by the raw type (of the provided type for a Provider)
+        String rawType = provider ? descriptor.getRawType() : descriptor.getErasure();
+        proxyInterfaces.add((DeclaredType) anInterface);
+        proxyTypes.add(anInterface.toString());
         interfaceTypes.add(type);
-        importTypes.add(type);
-        sb.append(", ").append(Util.shortName(type)).append(".class");
+        importTypes.add(rawType);
+        registerTypes.add(rawType);
+        sb.append(", ").append(Util.shortName(rawType)).append(".class");
+        if (addForType == null) {
+          addForType = Util.shortName(rawType);
+        }
       }
     }
-    if (interfaceTypes.size() == 1) {
-      addForType = Util.shortName(interfaceTypes.get(0));
+    if (interfaceTypes.size() != 1) {
+      addForType = null;
     }
 
     // get class level annotations (that are not Named and Singleton)
     for (AnnotationMirror annotationMirror : beanType.getAnnotationMirrors()) {
 
       DeclaredType annotationType = annotationMirror.getAnnotationType();
-      Qualifier qualifier = annotationType.asElement().getAnnotation(Qualifier.class);
+      String qualifier = context.getQualifierName(annotationType);
       String annType = annotationType.toString();
-      if (qualifier != null) {
-        this.name = Util.shortName(annType);
+      if (context.isLazyAnnotation(annotationType)) {
+        lazy = true;
+      } else if (qualifier != null) {
+        this.name = qualifier;
       } else {
         if (includeAnnotation(annType)) {
           importTypes.add(annType);
+          registerTypes.add(annType);
           sb.append(", ").append(Util.shortName(annType)).append(".class");
         }
       }
@@ -141,11 +173,17 @@ class BeanReader {
     return name;
   }
 
-  Element getPostConstructMethod() {
+  /**
+   * Return the name of the PostConstruct method (or null).
+   */
+  String getPostConstructMethod() {
     return postConstructMethod;
   }
 
-  Element getPreDestroyMethod() {
+  /**
+   * Return the name of the PreDestroy method (or null).
+   */
+  String getPreDestroyMethod() {
     return preDestroyMethod;
   }
 
@@ -176,6 +214,102 @@ class BeanReader {
     for (MethodReader factoryMethod : factoryMethods) {
       factoryMethod.addImports(importTypes);
     }
+    if (lazy && !proxyInterfaces.isEmpty()) {
+      proxyMethods = new LazyProxyReader(context).read(proxyInterfaces);
+    }
+  }
+
+  /**
+   * Read only what the meta data of the bean needs - the constructor and the factory methods.
+   * <p>
+   * The fields, lifecycle methods, imports and lazy proxy are only used to write the $di class
+   * so are not read.
+   * </p>
+   */
+  void readMeta(boolean factory) {
+
+    for (Element element : beanType.getEnclosedElements()) {
+      ElementKind kind = element.getKind();
+      if (kind == ElementKind.CONSTRUCTOR) {
+        readConstructor(element);
+      } else if (factory && kind == ElementKind.METHOD) {
+        Bean bean = element.getAnnotation(Bean.class);
+        if (bean != null) {
+          addFactoryMethod((ExecutableElement) element, bean);
+        }
+      }
+    }
+    constructor = findConstructor();
+  }
+
+  /**
+   * Check the use of <code>@Lazy</code> by this bean logging errors for unsupported usage.
+   */
+  void checkLazy(boolean factory) {
+    if (lazy) {
+      if (factory) {
+        context.logError(beanType, "@Lazy is not supported on @Factory beans");
+      }
+      if (preDestroyMethod != null || beanLifeCycle) {
+        context.logError(beanType, "@Lazy beans do not support @PreDestroy or BeanLifecycle");
+      }
+    }
+    if (constructor != null) {
+      for (MethodReader.MethodParam param : constructor.getParams()) {
+        checkLazyDependency(param.isProvider(), param.getDependsOn());
+      }
+    }
+    for (FieldReader field : injectFields) {
+      checkLazyDependency(field.isProvider(), field.getDependsOn());
+    }
+  }
+
+  private void checkLazyDependency(boolean provider, String dependsOn) {
+    boolean lazyDependency = context.isLazy(dependsOn);
+    if (provider && !lazyDependency) {
+      context.logError(beanType, "Provider<%s> requires %s to be @Lazy", dependsOn, dependsOn);
+    } else if (lazyDependency && !provider) {
+      context.logError(beanType, "%s is @Lazy - inject Provider<%s> or an interface it implements", dependsOn, dependsOn);
+    }
+  }
+
+  boolean isLazy() {
+    return lazy;
+  }
+
+  /**
+   * Return the methods of the proxy for a lazy bean (null when the bean has no interfaces).
+   */
+  String getProxyMethods() {
+    return proxyMethods;
+  }
+
+  /**
+   * Return the interfaces the proxy of a lazy bean implements.
+   */
+  List<String> getProxyTypes() {
+    return proxyTypes;
+  }
+
+  /**
+   * Return true if a dependency of the bean (or of its factory methods) is a generic type looked up
+   * by its raw type.
+   */
+  boolean isUnchecked() {
+    if (constructor != null && constructor.isUnchecked()) {
+      return true;
+    }
+    for (FieldReader field : injectFields) {
+      if (field.isUnchecked()) {
+        return true;
+      }
+    }
+    for (MethodReader factoryMethod : factoryMethods) {
+      if (factoryMethod.isUnchecked()) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private MethodReader findConstructor() {
@@ -218,6 +352,22 @@ class BeanReader {
     return registrationTypes;
   }
 
+  /**
+   * Return the registrations the $di of the bean makes (a lazy bean registers its provider and the proxy).
+   */
+  List<MetaData.Registration> getRegistrations() {
+    int priority = primary ? MetaData.Registration.PRIMARY : secondary ? MetaData.Registration.SECONDARY : 0;
+    if (!lazy) {
+      return Collections.singletonList(new MetaData.Registration(qualifiedName, name, priority, registerTypes));
+    }
+    List<MetaData.Registration> registrations = new ArrayList<>(2);
+    registrations.add(new MetaData.Registration(qualifiedName + "$di.Lazy", name, 0, Collections.emptyList()));
+    if (!proxyInterfaces.isEmpty()) {
+      registrations.add(new MetaData.Registration(qualifiedName + "$di.LazyProxy", name, priority, registerTypes));
+    }
+    return registrations;
+  }
+
   private boolean includeAnnotation(String annotationType) {
     return !EXCLUDED_ANNOTATIONS.contains(annotationType);
   }
@@ -240,7 +390,7 @@ class BeanReader {
   private void readField(Element element) {
     Inject inject = element.getAnnotation(Inject.class);
     if (inject != null) {
-      injectFields.add(new FieldReader(element));
+      injectFields.add(new FieldReader(element, context));
     }
   }
 
@@ -257,12 +407,12 @@ class BeanReader {
     if (context.isPostConstructAvailable()) {
       PostConstruct pcMarker = element.getAnnotation(PostConstruct.class);
       if (pcMarker != null) {
-        postConstructMethod = element;
+        postConstructMethod = element.getSimpleName().toString();
       }
 
       PreDestroy pdMarker = element.getAnnotation(PreDestroy.class);
       if (pdMarker != null) {
-        preDestroyMethod = element;
+        preDestroyMethod = element.getSimpleName().toString();
       }
     }
   }
@@ -274,18 +424,23 @@ class BeanReader {
   }
 
   String getSimpleName() {
-    return beanType.getSimpleName().toString();
+    return shortName;
+  }
+
+  String getQualifiedName() {
+    return qualifiedName;
   }
 
   boolean isLifecycleRequired() {
-    return beanLifeCycle || isLifecycleWrapperRequired();
+    return (beanLifeCycle && !lazy) || isLifecycleWrapperRequired();
   }
 
   /**
    * Return true if lifecycle via annotated methods is required.
    */
   boolean isLifecycleWrapperRequired() {
-    return postConstructMethod != null || preDestroyMethod != null;
+    // a lazy bean invokes PostConstruct when it is created
+    return !lazy && (postConstructMethod != null || preDestroyMethod != null);
   }
 
   List<MetaData> createFactoryMethodMeta() {
@@ -301,7 +456,8 @@ class BeanReader {
   }
 
   MetaData createMeta() {
-    MetaData metaData = new MetaData(beanType.getQualifiedName().toString());
+    MetaData metaData = new MetaData(qualifiedName);
+    metaData.setSource(metaData.getType());
     metaData.update(this);
     return metaData;
   }
@@ -311,51 +467,93 @@ class BeanReader {
   }
 
   void buildAddFor(Append writer) {
-    writer.append("    if (builder.isAddBeanFor(");
+    writer.append("    if (");
+    buildIsAddBeanFor(writer);
+    writer.append(") {").eol();
+  }
+
+  void buildIsAddBeanFor(Append writer) {
+    if (isRegistrationTable()) {
+      writer.append("builder.isAddBeanFor(ADD_FOR)");
+      return;
+    }
+    writer.append("builder.isAddBeanFor(");
     if (addForType != null) {
       writer.append(addForType).append(".class, ");
     }
-    writer.append(shortName).append(".class)) {").eol();
+    writer.append(shortName).append(".class)");
   }
 
   void buildRegister(Append writer) {
 
     String flags = primary ? "Primary" : secondary ? "Secondary" : "";
-    writer.append("      builder.register%s(bean, ", flags);
+    writer.append("      builder.register").append(flags).append("(bean, ");
     if (name == null) {
       writer.append("null");
     } else {
-      writer.append("\"%s\"", name);
+      writer.append("\"").append(name).append("\"");
     }
     // add interfaces and annotations
-    writer.append(getInterfacesAndAnnotations()).append(");").eol();
+    if (isRegistrationTable()) {
+      writer.append(", TYPES);").eol();
+    } else {
+      writer.append(getInterfacesAndAnnotations()).append(");").eol();
+    }
+  }
+
+  /**
+   * Return true if the constant type arrays are written (for a bean with a constructor) and used
+   * by the isAddBeanFor and register calls.
+   */
+  boolean isRegistrationTable() {
+    return context.isRegistrationTable() && constructor != null;
+  }
+
+  /**
+   * Write the types the bean is added for and registered by as constant arrays such that the
+   * builder calls do not create a varargs array for each bean.
+   */
+  void writeRegistrationTable(Append writer) {
+    writer.append("  private static final Class<?>[] ADD_FOR = {");
+    if (addForType != null) {
+      writer.append(addForType).append(".class, ");
+    }
+    writer.append(shortName).append(".class};").eol().eol();
+    writer.append("  private static final Class<?>[] TYPES = {");
+    String types = getInterfacesAndAnnotations();
+    // the types are each prefixed with ", "
+    writer.append(types.isEmpty() ? "" : types.substring(2)).append("};").eol().eol();
   }
 
   void buildAddLifecycle(Append writer) {
     writer.append("      builder.addLifecycle(");
+    buildLifecycle(writer);
+    writer.append(");").eol();
+  }
+
+  void buildLifecycle(Append writer) {
     if (beanLifeCycle) {
       writer.append("bean");
     } else {
-      writer.append("new %s$di(bean)", shortName);
+      writer.append("new ").append(shortName).append("$di(bean)");
     }
-    writer.append(");").eol();
   }
 
   private Set<String> importTypes() {
-    if (isLifecycleWrapperRequired()) {
+    if (isLifecycleWrapperRequired() || (isLifecycleRequired() && context.isFactoryLifecycle())) {
       importTypes.add(Constants.BEAN_LIFECYCLE);
     }
     if (context.isGeneratedAvailable()) {
       importTypes.add(Constants.GENERATED);
     }
     importTypes.add(Constants.BUILDER);
-    importTypes.add(beanType.getQualifiedName().toString());
+    importTypes.add(qualifiedName);
     return importTypes;
   }
 
   void writeImports(Append writer) {
     for (String importType : importTypes()) {
-      writer.append("import %s;", importType).eol();
+      writer.append("import ").append(importType).append(";").eol();
     }
     writer.eol();
   }
@@ -364,12 +562,4 @@ class BeanReader {
     return constructor;
   }
 
-  boolean isWrittenToFile() {
-    return writtenToFile;
-  }
-
-  void setWrittenToFile() {
-    this.writtenToFile = true;
-  }
-
 }
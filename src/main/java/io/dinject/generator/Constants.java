@@ -10,7 +10,123 @@ class Constants {
   static final String CONTROLLER = "io.dinject.controller.Controller";
 
   static final String AT_GENERATED = "@Generated(\"io.dinject.generator\")";
+
+  static final String AT_SUPPRESS_UNCHECKED = "@SuppressWarnings(\"unchecked\")";
   static final String META_INF_FACTORY = "META-INF/services/io.dinject.core.BeanContextFactory";
+  static final String META_INF_INDEX = "META-INF/dinject/metadata.idx";
+  static final String META_INF_GENERATED = "META-INF/dinject/generated.idx";
+
+  static final String META_INF_FACTORY_METRICS = "META-INF/dinject/factory-metrics.json";
+
+  static final String META_INF_GRAPH_JSON = "META-INF/dinject/graph.json";
+
+  static final String META_INF_GRAPH_DOT = "META-INF/dinject/graph.dot";
+
+  /**
+   * The module descriptors are <code>[name].module</code> with <code>[feature].provides</code> naming the module providing a feature.
+   */
+  static final String META_INF_MODULE_DIR = "META-INF/dinject/";
+
+  static final String MODULES_SHORT_NAME = "_di$Modules";
+
+  /**
+   * The registry of the application factories in the package of the factory (refer to {@link #OPTION_REGISTRY}).
+   */
+  static final String REGISTRY_SHORT_NAME = "_di$Registry";
+
+  /**
+   * Processor option - the number of threads used to render the $di classes (default 1).
+   */
+  static final String OPTION_PARALLEL = "dinject.parallel";
+
+  /**
+   * Processor option - wire uniquely provided dependencies directly in the factory (default false).
+   */
+  static final String OPTION_DIRECT_WIRING = "dinject.directWiring";
+
+  /**
+   * Processor option - the number of threads the factory uses to create the beans of each dependency
+   * level concurrently (default 0 for sequential, without a value the number of processors at runtime).
+   */
+  static final String OPTION_PARALLEL_BUILD = "dinject.parallelBuild";
+
+  /**
+   * Processor option - the factory runs the lifecycle methods of each dependency level concurrently (default false).
+   */
+  static final String OPTION_PARALLEL_LIFECYCLE = "dinject.parallelLifecycle";
+
+  /**
+   * Processor option - the factory injects the fields of all the beans in one method rather than each
+   * bean adding an injector lambda to the builder (default false).
+   */
+  static final String OPTION_FACTORY_INJECT = "dinject.factoryInject";
+
+  /**
+   * Processor option - the factory times building each bean and its PostConstruct into a StartupReport (default false).
+   */
+  static final String OPTION_STARTUP_TIMING = "dinject.startupTiming";
+
+  /**
+   * Processor option - log the processor phase timing and bean counts as a NOTE summary and write those
+   * of the factory processor as JSON to CLASS_OUTPUT (default false).
+   */
+  static final String OPTION_METRICS = "dinject.metrics";
+
+  /**
+   * Processor option - the number of beans per chunk class the build methods of the factory are split
+   * into (default 0 for no chunks, without a value {@link #DEFAULT_CHUNK_SIZE}).
+   */
+  static final String OPTION_FACTORY_CHUNK_SIZE = "dinject.factoryChunkSize";
+
+  static final int DEFAULT_CHUNK_SIZE = 500;
+
+  /**
+   * Processor option - read the descriptors of the modules this module depends on from the classpath
+   * and generate _di$Modules listing the module factories in load order (default false).
+   */
+  static final String OPTION_MODULE_ORDER = "dinject.moduleOrder";
+
+  /**
+   * Processor option - generate the registry {@link #REGISTRY_SHORT_NAME} that creates the factories of the
+   * application directly (without ServiceLoader). Requires {@link #OPTION_MODULE_ORDER} for the factories
+   * of the modules the application depends on. Only enable for the application module (default false).
+   */
+  static final String OPTION_REGISTRY = "dinject.registry";
+
+  /**
+   * Processor option - write the ordered dependency graph of the module as JSON and Graphviz DOT to
+   * CLASS_OUTPUT (default false).
+   */
+  static final String OPTION_GRAPH = "dinject.graph";
+
+  /**
+   * Processor option - warn when the longest dependency chain of the module is deeper than this
+   * (default 0 for no check, without a value {@link #DEFAULT_MAX_DEPTH}).
+   */
+  static final String OPTION_MAX_DEPTH = "dinject.maxDepth";
+
+  static final int DEFAULT_MAX_DEPTH = 20;
+
+  /**
+   * Processor option - warn when a bean has more dependents than this (default 0 for no check,
+   * without a value {@link #DEFAULT_MAX_FAN_IN}).
+   */
+  static final String OPTION_MAX_FAN_IN = "dinject.maxFanIn";
+
+  static final int DEFAULT_MAX_FAN_IN = 50;
+
+  /**
+   * Processor option - register the beans with constant arrays of their types and write the registration
+   * table with the bean and type counts into the factory (default false).
+   */
+  static final String OPTION_REGISTRATION_TABLE = "dinject.registrationTable";
+
+  /**
+   * Processor option - the comma separated fully qualified names of the annotations marking a bean
+   * to be created on first use. Required for lazy beans as dinject does not provide such an annotation
+   * (no default, other annotations named Lazy are noted as not matching).
+   */
+  static final String OPTION_LAZY = "dinject.lazy";
 
   static final String BEAN_LIFECYCLE = "io.dinject.core.BeanLifecycle";
   static final String BUILDER = "io.dinject.core.Builder";
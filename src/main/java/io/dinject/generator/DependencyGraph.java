@@ -0,0 +1,368 @@
+package io.dinject.generator;
+
+import javax.lang.model.element.Element;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ordered dependency graph of the module written for tooling (<code>dinject.graph</code>).
+ * <p>
+ * The nodes are the beans with their dependency level (-1 for beans with unsatisfied dependencies) and
+ * the edges go from a bean to the providers of each of its dependencies (to null for an external
+ * dependency). The qualifier and kind (List, Set, Optional or Provider) of an edge are known for the
+ * constructor dependencies of the beans that are built directly and are otherwise null and plain.
+ * The critical path is the longest chain of dependencies which bounds how far building the beans by
+ * level can be parallelised.
+ * </p>
+ */
+class DependencyGraph {
+
+  private final MetaDataOrdering ordering;
+
+  private final List<List<MetaData>> levels;
+
+  private final Map<MetaData, Integer> levelOf = new IdentityHashMap<>();
+
+  private final List<MetaData> criticalPath;
+
+  /**
+   * The position of each bean on the critical path.
+   */
+  private final Map<MetaData, Integer> criticalIndex = new IdentityHashMap<>();
+
+  DependencyGraph(MetaDataOrdering ordering) {
+    this.ordering = ordering;
+    this.levels = ordering.getLevels();
+    for (int i = 0; i < levels.size(); i++) {
+      for (MetaData metaData : levels.get(i)) {
+        levelOf.put(metaData, i);
+      }
+    }
+    this.criticalPath = criticalPath();
+    for (int i = 0; i < criticalPath.size(); i++) {
+      criticalIndex.put(criticalPath.get(i), i);
+    }
+  }
+
+  /**
+   * Return the longest chain of dependencies from a bean in the last level down to level 0.
+   */
+  private List<MetaData> criticalPath() {
+    if (levels.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<MetaData> path = new ArrayList<>(levels.size());
+    MetaData current = levels.get(levels.size() - 1).get(0);
+    path.add(current);
+    for (int level = levels.size() - 2; level >= 0; level--) {
+      current = providerAtLevel(current, level);
+      path.add(current);
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
+  /**
+   * Return a provider of a dependency of the bean that is at the given level (one below the bean).
+   */
+  private MetaData providerAtLevel(MetaData metaData, int level) {
+    for (String dependsOn : metaData.getDependsOn()) {
+      for (MetaData provider : ordering.getProviders(dependsOn)) {
+        Integer providerLevel = levelOf.get(provider);
+        if (providerLevel != null && providerLevel == level) {
+          return provider;
+        }
+      }
+    }
+    throw new IllegalStateException("No provider at level " + level + " for " + metaData.getType());
+  }
+
+  /**
+   * Return the number of levels (the length of the critical path).
+   */
+  int getCriticalPathLength() {
+    return levels.size();
+  }
+
+  List<MetaData> getCriticalPath() {
+    return criticalPath;
+  }
+
+  /**
+   * Return the number of beans in each dependency level (the beans that can be built concurrently).
+   */
+  int[] getLevelWidths() {
+    int[] widths = new int[levels.size()];
+    for (int i = 0; i < widths.length; i++) {
+      widths[i] = levels.get(i).size();
+    }
+    return widths;
+  }
+
+  /**
+   * Return the number of beans that depend on each bean keyed by the bean index.
+   */
+  int[] getDependentCounts() {
+    List<MetaData> nodes = nodes();
+    int[] dependents = new int[nodes.size()];
+    // the last bean counted as a dependent of each bean (a bean depending on a provider twice counts once)
+    int[] lastDependent = new int[nodes.size()];
+    Arrays.fill(lastDependent, -1);
+    for (MetaData metaData : nodes) {
+      for (String dependsOn : metaData.getDependsOn()) {
+        for (MetaData provider : ordering.getProviders(dependsOn)) {
+          int index = provider.getIndex();
+          if (lastDependent[index] != metaData.getIndex()) {
+            lastDependent[index] = metaData.getIndex();
+            dependents[index]++;
+          }
+        }
+      }
+    }
+    return dependents;
+  }
+
+  /**
+   * Log the level widths and warn when the critical path is deeper than the max depth or a bean has
+   * more dependents than the max fan in (each 0 for no check).
+   */
+  void checkLimits(ProcessingContext context, int maxDepth, int maxFanIn) {
+    context.logDebug("dinject dependency levels %s widths %s", levels.size(), Arrays.toString(getLevelWidths()));
+    if (maxDepth > 0 && levels.size() > maxDepth) {
+      StringBuilder path = new StringBuilder(criticalPath.size() * 20);
+      for (MetaData metaData : criticalPath) {
+        path.append(path.length() == 0 ? "" : " -> ").append(metaData.getShortType());
+      }
+      context.logWarn("Dependency chain of depth %s exceeds %s (beans built one after the other) %s", levels.size(), maxDepth, path);
+    }
+    if (maxFanIn > 0) {
+      List<MetaData> nodes = nodes();
+      int[] dependents = getDependentCounts();
+      for (MetaData metaData : nodes) {
+        int count = dependents[metaData.getIndex()];
+        if (count > maxFanIn) {
+          context.logWarn("Bean %s has %s dependents which exceeds %s", metaData.getType(), count, maxFanIn);
+        }
+      }
+    }
+  }
+
+  private int level(MetaData metaData) {
+    Integer level = levelOf.get(metaData);
+    return level == null ? -1 : level;
+  }
+
+  /**
+   * Return all the beans (the ordered beans include those with unsatisfied dependencies last).
+   */
+  private List<MetaData> nodes() {
+    return ordering.getOrdered();
+  }
+
+  /**
+   * Return the edges of the bean - one per provider of each dependency.
+   */
+  private List<Edge> edges(MetaData metaData) {
+    List<Edge> edges = new ArrayList<>();
+    List<String> dependsOn = metaData.getDependsOn();
+    List<MethodReader.MethodParam> params = metaData.getParams();
+    for (int i = 0; i < dependsOn.size(); i++) {
+      MethodReader.MethodParam param = (params != null && params.size() == dependsOn.size()) ? params.get(i) : null;
+      String kind = (param == null) ? "plain" : param.getKind().name().toLowerCase();
+      String qualifier = (param == null) ? null : param.getNamed();
+      List<MetaData> providers = ordering.getProviders(dependsOn.get(i));
+      if (providers.isEmpty()) {
+        edges.add(new Edge(metaData, null, dependsOn.get(i), kind, qualifier));
+      }
+      for (MetaData provider : providers) {
+        edges.add(new Edge(metaData, provider, dependsOn.get(i), kind, qualifier));
+      }
+    }
+    return edges;
+  }
+
+  /**
+   * Return the graph as JSON.
+   */
+  String toJson() {
+    List<MetaData> nodes = nodes();
+    StringBuilder sb = new StringBuilder(200 + nodes.size() * 200);
+    sb.append("{\n");
+    sb.append("  \"levels\": ").append(levels.size()).append(",\n");
+    sb.append("  \"criticalPathLength\": ").append(levels.size()).append(",\n");
+    sb.append("  \"criticalPath\": [");
+    for (int i = 0; i < criticalPath.size(); i++) {
+      sb.append(i == 0 ? "" : ", ");
+      string(sb, criticalPath.get(i).getType());
+    }
+    sb.append("],\n");
+    sb.append("  \"nodes\": [");
+    for (int i = 0; i < nodes.size(); i++) {
+      MetaData metaData = nodes.get(i);
+      sb.append(i == 0 ? "\n" : ",\n");
+      sb.append("    {\"type\": ");
+      string(sb, metaData.getType());
+      sb.append(", \"method\": ");
+      string(sb, metaData.getMethod());
+      sb.append(", \"level\": ").append(level(metaData));
+      sb.append(", \"provides\": [");
+      List<String> provides = metaData.getProvides();
+      for (int j = 0; j < provides.size(); j++) {
+        sb.append(j == 0 ? "" : ", ");
+        string(sb, provides.get(j));
+      }
+      sb.append("]}");
+    }
+    sb.append("\n  ],\n");
+    sb.append("  \"edges\": [");
+    boolean first = true;
+    for (MetaData metaData : nodes) {
+      for (Edge edge : edges(metaData)) {
+        sb.append(first ? "\n" : ",\n");
+        first = false;
+        sb.append("    {\"from\": ");
+        string(sb, edge.from.getType());
+        sb.append(", \"to\": ");
+        string(sb, edge.to == null ? null : edge.to.getType());
+        sb.append(", \"dependsOn\": ");
+        string(sb, edge.dependsOn);
+        sb.append(", \"kind\": ");
+        string(sb, edge.kind);
+        sb.append(", \"qualifier\": ");
+        string(sb, edge.qualifier);
+        sb.append('}');
+      }
+    }
+    sb.append("\n  ]\n");
+    sb.append("}\n");
+    return sb.toString();
+  }
+
+  private static void string(StringBuilder sb, String value) {
+    if (value == null) {
+      sb.append("null");
+      return;
+    }
+    sb.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char ch = value.charAt(i);
+      if (ch == '"' || ch == '\\') {
+        sb.append('\\');
+      }
+      sb.append(ch);
+    }
+    sb.append('"');
+  }
+
+  /**
+   * Return the graph in Graphviz DOT format (beans ranked by level, the critical path in red).
+   */
+  String toDot() {
+    List<MetaData> nodes = nodes();
+    StringBuilder sb = new StringBuilder(200 + nodes.size() * 150);
+    sb.append("digraph dinject {\n");
+    sb.append("  rankdir=BT;\n");
+    sb.append("  node [shape=box];\n");
+    for (MetaData metaData : nodes) {
+      sb.append("  ");
+      string(sb, metaData.getType());
+      sb.append(" [label=");
+      string(sb, metaData.getShortType() + " [" + level(metaData) + "]");
+      if (criticalIndex.containsKey(metaData)) {
+        sb.append(", color=red");
+      } else if (level(metaData) == -1) {
+        sb.append(", style=dashed");
+      }
+      sb.append("];\n");
+    }
+    for (int i = 0; i < levels.size(); i++) {
+      sb.append("  { rank=same;");
+      for (MetaData metaData : levels.get(i)) {
+        sb.append(' ');
+        string(sb, metaData.getType());
+      }
+      sb.append(" }\n");
+    }
+    for (MetaData metaData : nodes) {
+      for (Edge edge : edges(metaData)) {
+        sb.append("  ");
+        string(sb, edge.from.getType());
+        sb.append(" -> ");
+        string(sb, edge.to == null ? edge.dependsOn : edge.to.getType());
+        String label = edge.label();
+        List<String> attributes = new ArrayList<>();
+        if (label != null) {
+          StringBuilder quoted = new StringBuilder("label=");
+          string(quoted, label);
+          attributes.add(quoted.toString());
+        }
+        if (edge.to == null) {
+          attributes.add("style=dashed");
+        } else if (onCriticalPath(edge)) {
+          attributes.add("color=red");
+        }
+        if (!attributes.isEmpty()) {
+          sb.append(" [").append(String.join(", ", attributes)).append(']');
+        }
+        sb.append(";\n");
+      }
+    }
+    sb.append("}\n");
+    return sb.toString();
+  }
+
+  private boolean onCriticalPath(Edge edge) {
+    Integer pos = criticalIndex.get(edge.from);
+    return pos != null && pos > 0 && criticalPath.get(pos - 1) == edge.to;
+  }
+
+  /**
+   * Write the graph as JSON and DOT to CLASS_OUTPUT.
+   */
+  void write(ProcessingContext context, Element... originatingElements) throws IOException {
+    try (Writer writer = context.createResource(Constants.META_INF_GRAPH_JSON, originatingElements).openWriter()) {
+      writer.write(toJson());
+    }
+    try (Writer writer = context.createResource(Constants.META_INF_GRAPH_DOT, originatingElements).openWriter()) {
+      writer.write(toDot());
+    }
+  }
+
+  private static class Edge {
+
+    private final MetaData from;
+
+    private final MetaData to;
+
+    private final String dependsOn;
+
+    private final String kind;
+
+    private final String qualifier;
+
+    Edge(MetaData from, MetaData to, String dependsOn, String kind, String qualifier) {
+      this.from = from;
+      this.to = to;
+      this.dependsOn = dependsOn;
+      this.kind = kind;
+      this.qualifier = qualifier;
+    }
+
+    /**
+     * Return the DOT label of a qualified or wrapped dependency (null for a plain dependency).
+     */
+    String label() {
+      String label = "plain".equals(kind) ? null : kind;
+      if (qualifier != null) {
+        label = (label == null) ? "@" + qualifier : label + " @" + qualifier;
+      }
+      return label;
+    }
+  }
+}
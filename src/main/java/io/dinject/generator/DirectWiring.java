@@ -0,0 +1,143 @@
+package io.dinject.generator;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Wires the beans of the factory directly where the dependency is known at compile time.
+ * <p>
+ * A plain dependency that is provided by a single bean built earlier in the factory is passed from
+ * a field holding that bean rather than looked up from the builder. External, ambiguous, named, list
+ * and optional dependencies are still looked up from the builder. The builder is also used when the
+ * provider was not added (for example, a test supplied its own bean for the type).
+ * </p>
+ */
+class DirectWiring {
+
+  private final MetaDataOrdering ordering;
+
+  private final List<MetaData> ordered;
+
+  private final Map<MetaData, Integer> position = new IdentityHashMap<>();
+
+  /**
+   * The beans that are held in a field as they are passed directly to other beans.
+   */
+  private final Set<MetaData> fieldBeans = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  DirectWiring(MetaDataOrdering ordering) {
+    this.ordering = ordering;
+    this.ordered = ordering.getOrdered();
+    for (int i = 0; i < ordered.size(); i++) {
+      position.put(ordered.get(i), i);
+    }
+    for (MetaData metaData : ordered) {
+      if (isDirect(metaData)) {
+        for (MethodReader.MethodParam param : metaData.getParams()) {
+          MetaData provider = provider(metaData, param);
+          if (provider != null) {
+            fieldBeans.add(provider);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Return true if the bean is built via the direct build method of its $di class.
+   */
+  boolean isDirect(MetaData metaData) {
+    return metaData.isConstructed();
+  }
+
+  private MetaData provider(MetaData metaData, MethodReader.MethodParam param) {
+    if (!param.isPlain()) {
+      return null;
+    }
+    MetaData provider = ordering.getUniqueProvider(param.getDependsOn());
+    if (provider == null || !isDirect(provider)) {
+      return null;
+    }
+    // the provider must be built before the bean
+    return position.get(provider) < position.get(metaData) ? provider : null;
+  }
+
+  /**
+   * Return true if the bean is held in a field as it is passed directly to other beans.
+   */
+  boolean isField(MetaData metaData) {
+    return fieldBeans.contains(metaData);
+  }
+
+  String field(MetaData metaData) {
+    return "bean_" + metaData.getShortType();
+  }
+
+  /**
+   * Return true if a dependency the factory looks up is a generic type looked up by its raw type.
+   */
+  boolean isUnchecked() {
+    for (MetaData metaData : ordered) {
+      if (isDirect(metaData)) {
+        for (MethodReader.MethodParam param : metaData.getParams()) {
+          if (param.isUnchecked()) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Write the fields holding the beans that are passed directly.
+   *
+   * @param modifier The access modifier of the fields (package private when set from the chunk classes)
+   */
+  void writeFields(Append writer, String modifier) {
+    if (fieldBeans.isEmpty()) {
+      return;
+    }
+    for (MetaData metaData : ordered) {
+      if (fieldBeans.contains(metaData)) {
+        writer.append("  ").append(modifier).append(metaData.getType()).append(' ').append(field(metaData)).append(';').eol();
+      }
+    }
+    writer.eol();
+  }
+
+  /**
+   * Write the body of the factory build method for a directly wired bean.
+   */
+  void writeBuild(Append writer, MetaData metaData) {
+    writer.append("    ");
+    if (isField(metaData)) {
+      writer.append(field(metaData)).append(" = ");
+    }
+    writeBuildExpression(writer, metaData);
+    writer.append(';').eol();
+  }
+
+  /**
+   * Write the call to the direct build method of the bean.
+   */
+  void writeBuildExpression(Append writer, MetaData metaData) {
+    writer.append(metaData.getShortType()).append("$di.buildDirect(builder");
+    for (MethodReader.MethodParam param : metaData.getParams()) {
+      writer.append(", ");
+      MetaData provider = provider(metaData, param);
+      if (provider == null) {
+        param.builderGetDependencyFull(writer);
+      } else {
+        String field = field(provider);
+        writer.append('(').append(field).append(" != null ? ").append(field).append(" : ");
+        param.builderGetDependencyFull(writer);
+        writer.append(')');
+      }
+    }
+    writer.append(')');
+  }
+}
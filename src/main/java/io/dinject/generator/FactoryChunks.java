@@ -0,0 +1,118 @@
+package io.dinject.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the build methods of the factory into inner chunk classes of a fixed number of beans.
+ * <p>
+ * A module with thousands of beans otherwise has a factory with thousands of build methods and a
+ * createContext method calling all of them (risking the 64KB method size limit). Each chunk class
+ * holds the build methods of its beans (in build order) and <code>createBeans()</code> calling them
+ * such that createContext just calls each chunk in order.
+ * </p>
+ */
+class FactoryChunks {
+
+  private final List<List<MetaData>> chunks = new ArrayList<>();
+
+  private final int chunkSize;
+
+  /**
+   * The chunk of each bean by ordering index.
+   */
+  private final int[] chunkOf;
+
+  FactoryChunks(MetaDataOrdering ordering, int size) {
+    List<MetaData> ordered = ordering.getOrdered();
+    this.chunkSize = size;
+    this.chunkOf = new int[ordered.size()];
+    for (int start = 0; start < ordered.size(); start += size) {
+      List<MetaData> chunk = ordered.subList(start, Math.min(start + size, ordered.size()));
+      for (MetaData metaData : chunk) {
+        chunkOf[metaData.getIndex()] = chunks.size();
+      }
+      chunks.add(chunk);
+    }
+  }
+
+  /**
+   * Return the number of chunks.
+   */
+  int size() {
+    return chunks.size();
+  }
+
+  /**
+   * Return the maximum number of beans of a chunk.
+   */
+  int getChunkSize() {
+    return chunkSize;
+  }
+
+  private String field(int chunk) {
+    return "chunk" + chunk;
+  }
+
+  /**
+   * Write the fields holding the chunks.
+   */
+  void writeFields(Append writer) {
+    for (int i = 0; i < chunks.size(); i++) {
+      writer.append("  private final Chunk").append(i).append(' ').append(field(i)).append(" = new Chunk").append(i).append("();").eol();
+    }
+    writer.eol();
+  }
+
+  /**
+   * Write the calls creating the beans of each chunk in order.
+   */
+  void writeCreateCalls(Append writer) {
+    for (int i = 0; i < chunks.size(); i++) {
+      writer.append("    ").append(field(i)).append(".createBeans();").eol();
+    }
+  }
+
+  /**
+   * Write the call of the build method of the given bean.
+   */
+  void writeBuildCall(Append writer, String indent, MetaData metaData) {
+    writer.append(indent).append(field(chunkOf[metaData.getIndex()])).append(".build_").append(metaData.getShortType()).append("();").eol();
+  }
+
+  /**
+   * Write the chunk classes.
+   *
+   * @param createBeans True to include createBeans() (not used by the parallel build)
+   */
+  void writeClasses(Append writer, DirectWiring wiring, ParallelLifecycle lifecycle, FactoryInjection injection, StartupTiming timing, boolean createBeans) {
+
+    for (int i = 0; i < chunks.size(); i++) {
+      List<MetaData> chunk = chunks.get(i);
+      writer.append("  final class Chunk").append(i).append(" {").eol().eol();
+      if (createBeans) {
+        writer.append("    void createBeans() {").eol();
+        if (timing != null) {
+          timing.writeStart(writer, "      ");
+        }
+        for (MetaData metaData : chunk) {
+          writer.append("      build_").append(metaData.getShortType()).append("();").eol();
+          if (timing != null) {
+            timing.writeBuilt(writer, "      ", metaData);
+          }
+        }
+        writer.append("    }").eol().eol();
+      }
+
+      Append methods = new Append();
+      for (int j = 0; j < chunk.size(); j++) {
+        if (j > 0) {
+          methods.eol();
+        }
+        chunk.get(j).buildMethod(methods, wiring, lifecycle, injection);
+      }
+      writer.appendIndented(methods.toString(), "  ");
+      writer.append("  }").eol().eol();
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package io.dinject.generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the field injection of the beans as one method of the factory.
+ * <p>
+ * Rather than each bean with field injection adding an injector lambda to the builder (a lambda
+ * class spun up at runtime per bean) the factory holds each such bean in a field as it is built and
+ * once all the beans are built calls the static inject method of each $di class in build order.
+ * This runs before the builder is built (and hence before the lifecycle methods) the same as the
+ * injectors.
+ * </p>
+ */
+class FactoryInjection {
+
+  private final List<MetaData> injected = new ArrayList<>();
+
+  private final Set<MetaData> injectedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  FactoryInjection(MetaDataOrdering ordering, ProcessingContext context) {
+    for (MetaData metaData : ordering.getOrdered()) {
+      // read from the $di as the meta data may be from the factory
+      if (!metaData.hasMethod() && context.hasMethod(metaData.getType() + "$di", "inject")) {
+        injected.add(metaData);
+        injectedSet.add(metaData);
+      }
+    }
+  }
+
+  /**
+   * Return true if the fields of the bean are injected by the factory.
+   */
+  boolean isInjected(MetaData metaData) {
+    return injectedSet.contains(metaData);
+  }
+
+  String field(MetaData metaData) {
+    return "inject_" + metaData.getShortType();
+  }
+
+  /**
+   * Write the fields holding the beans to inject.
+   *
+   * @param modifier The access modifier of the fields (package private when set from the chunk classes)
+   */
+  void writeFields(Append writer, String modifier) {
+    for (MetaData metaData : injected) {
+      writer.append("  ").append(modifier).append(metaData.getType()).append(' ').append(field(metaData)).append(';').eol();
+    }
+    if (!injected.isEmpty()) {
+      writer.eol();
+    }
+  }
+
+  /**
+   * Write holding the given bean expression for injection.
+   */
+  void writeHold(Append writer, MetaData metaData, String bean) {
+    writer.append("    ").append(field(metaData)).append(" = ").append(bean).append(';').eol();
+  }
+
+  /**
+   * Write the call to inject the beans (after all the beans are built).
+   */
+  void writeInjectCall(Append writer) {
+    if (!injected.isEmpty()) {
+      writer.append("    inject();").eol();
+    }
+  }
+
+  /**
+   * Write the method injecting the fields of the beans that were added.
+   */
+  void writeInjectMethod(Append writer) {
+    if (injected.isEmpty()) {
+      return;
+    }
+    writer.append("  private void inject() {").eol();
+    for (MetaData metaData : injected) {
+      String field = field(metaData);
+      writer.append("    if (").append(field).append(" != null) {").eol();
+      writer.append("      ").append(metaData.getShortType()).append("$di.inject(builder, ").append(field).append(");").eol();
+      writer.append("      ").append(field).append(" = null;").eol();
+      writer.append("    }").eol();
+    }
+    writer.append("  }").eol().eol();
+  }
+}
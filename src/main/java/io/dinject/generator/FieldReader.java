@@ -1,50 +1,44 @@
 package io.dinject.generator;
 
 import javax.lang.model.element.Element;
-import javax.lang.model.type.TypeMirror;
 
 class FieldReader {
 
-  private final Element element;
+  private final String fieldName;
+
+  private final TypeDescriptor fieldType;
 
   private final String name;
 
-  FieldReader(Element element) {
-    this.element = element;
-    this.name = Util.getNamed(element);
+  FieldReader(Element element, ProcessingContext context) {
+    this.fieldName = element.getSimpleName().toString();
+    this.fieldType = context.getTypeDescriptor(element.asType());
+    this.name = context.getNamed(element);
   }
 
   String getFieldName() {
-    return element.getSimpleName().toString();
+    return fieldName;
+  }
+
+  /**
+   * Return true if a <code>Provider</code> of a lazy bean is injected.
+   */
+  boolean isProvider() {
+    return fieldType.getKind() == TypeDescriptor.Kind.PROVIDER;
+  }
+
+  /**
+   * Return true if the field is a generic type looked up by its raw type.
+   */
+  boolean isUnchecked() {
+    return fieldType.isUnchecked();
+  }
+
+  String getDependsOn() {
+    return fieldType.getType();
   }
 
-  String builderGetDependency() {
-
-    TypeMirror type = element.asType();
-    String rawType = type.toString();
-
-    boolean listType = Util.isList(rawType);
-    boolean optionalType = !listType && Util.isOptional(rawType);
-    if (optionalType) {
-      rawType = Util.extractOptionalType(rawType);
-    } else if (listType) {
-      rawType = Util.extractList(rawType);
-    }
-
-    StringBuilder sb = new StringBuilder();
-    if (listType) {
-      sb.append("b.getList(");
-    } else if (optionalType) {
-      sb.append("b.getOptional(");
-    } else {
-      sb.append("b.get(");
-    }
-
-    sb.append(rawType).append(".class");
-    if (name != null) {
-      sb.append(",\"").append(name).append("\"");
-    }
-    sb.append(")");
-    return sb.toString();
+  void builderGetDependency(Append writer) {
+    fieldType.builderGet(writer, "b", name, false);
   }
 }
@@ -0,0 +1,89 @@
+package io.dinject.generator;
+
+import javax.lang.model.element.Element;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index of the content hashes of the files generated by the previous compile.
+ * <p>
+ * Stored in CLASS_OUTPUT and used to skip rewriting a generated file when its content is unchanged
+ * (rewriting bumps the timestamp and triggers recompilation of everything that depends on it).
+ * </p>
+ */
+class GeneratedIndex {
+
+  private final Map<String, String> previous = new TreeMap<>();
+
+  private final Map<String, String> current = new TreeMap<>();
+
+  /**
+   * Read the index of the previous compile (empty if there is none).
+   */
+  static GeneratedIndex read(ProcessingContext context) {
+    GeneratedIndex index = new GeneratedIndex();
+    try (InputStream is = context.openResource(Constants.META_INF_GENERATED)) {
+      if (is != null) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+          int pos = line.indexOf(' ');
+          if (pos > 0) {
+            index.previous.put(line.substring(pos + 1), line.substring(0, pos));
+          }
+        }
+      }
+    } catch (IOException e) {
+      context.logWarn("Error reading generated index " + e.getMessage());
+    }
+    return index;
+  }
+
+  /**
+   * Register the content of a generated file returning true if it is the same as the previous compile.
+   */
+  boolean register(String name, String content) {
+    String hash = hash(content);
+    current.put(name, hash);
+    return hash.equals(previous.get(name));
+  }
+
+  /**
+   * Write the index if it has changed.
+   */
+  void write(ProcessingContext context, Element... originatingElements) throws IOException {
+    if (current.equals(previous)) {
+      return;
+    }
+    try (Writer writer = context.createResource(Constants.META_INF_GENERATED, originatingElements).openWriter()) {
+      for (Map.Entry<String, String> entry : current.entrySet()) {
+        writer.write(entry.getValue());
+        writer.write(' ');
+        writer.write(entry.getKey());
+        writer.write('\n');
+      }
+    }
+  }
+
+  static String hash(String content) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] bytes = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder(bytes.length * 2);
+      for (byte b : bytes) {
+        sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
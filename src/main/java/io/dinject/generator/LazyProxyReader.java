@@ -0,0 +1,127 @@
+package io.dinject.generator;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the interface methods of a <code>@Lazy</code> bean rendering the methods of the proxy
+ * that delegate to the lazily created bean.
+ */
+class LazyProxyReader {
+
+  private final ProcessingContext context;
+
+  private final Append writer = new Append();
+
+  private final Set<String> signatures = new HashSet<>();
+
+  LazyProxyReader(ProcessingContext context) {
+    this.context = context;
+  }
+
+  /**
+   * Return the source of the proxy methods for all the methods of the given interfaces.
+   */
+  String read(List<DeclaredType> interfaces) {
+    for (DeclaredType anInterface : interfaces) {
+      TypeElement element = (TypeElement) anInterface.asElement();
+      for (Element member : context.getAllMembers(element)) {
+        if (member.getKind() == ElementKind.METHOD && isAbstract(member)) {
+          readMethod(anInterface, (ExecutableElement) member);
+        }
+      }
+    }
+    return writer.toString();
+  }
+
+  private boolean isAbstract(Element member) {
+    // abstract interface methods (excluding default, static and the methods inherited from Object)
+    return member.getModifiers().contains(Modifier.ABSTRACT);
+  }
+
+  private void readMethod(DeclaredType anInterface, ExecutableElement method) {
+
+    ExecutableType type = context.asMemberOf(anInterface, method);
+    List<? extends TypeMirror> paramTypes = type.getParameterTypes();
+    String name = method.getSimpleName().toString();
+
+    StringBuilder signature = new StringBuilder(name);
+    for (TypeMirror paramType : paramTypes) {
+      signature.append(',').append(paramType);
+    }
+    if (!signatures.add(signature.toString())) {
+      // same method from more than one interface
+      return;
+    }
+
+    writer.append("    @Override").eol();
+    writer.append("    public ");
+    List<? extends TypeParameterElement> typeParameters = method.getTypeParameters();
+    if (!typeParameters.isEmpty()) {
+      writer.append('<');
+      for (int i = 0; i < typeParameters.size(); i++) {
+        if (i > 0) {
+          writer.append(", ");
+        }
+        writeTypeParameter(typeParameters.get(i));
+      }
+      writer.append("> ");
+    }
+    TypeMirror returnType = type.getReturnType();
+    writer.append(returnType.toString()).append(' ').append(name).append('(');
+    for (int i = 0; i < paramTypes.size(); i++) {
+      if (i > 0) {
+        writer.append(", ");
+      }
+      String paramType = paramTypes.get(i).toString();
+      if (method.isVarArgs() && i == paramTypes.size() - 1 && paramType.endsWith("[]")) {
+        paramType = paramType.substring(0, paramType.length() - 2) + "...";
+      }
+      writer.append(paramType).append(" p").append(i);
+    }
+    writer.append(')');
+    List<? extends TypeMirror> thrownTypes = type.getThrownTypes();
+    for (int i = 0; i < thrownTypes.size(); i++) {
+      writer.append(i == 0 ? " throws " : ", ").append(thrownTypes.get(i).toString());
+    }
+    writer.append(" {").eol();
+
+    writer.append("      ");
+    if (returnType.getKind() != TypeKind.VOID) {
+      writer.append("return ");
+    }
+    writer.append("lazy.get().").append(name).append('(');
+    for (int i = 0; i < paramTypes.size(); i++) {
+      if (i > 0) {
+        writer.append(", ");
+      }
+      writer.append('p').append(i);
+    }
+    writer.append(");").eol();
+    writer.append("    }").eol().eol();
+  }
+
+  private void writeTypeParameter(TypeParameterElement typeParameter) {
+    writer.append(typeParameter.getSimpleName().toString());
+    List<? extends TypeMirror> bounds = typeParameter.getBounds();
+    boolean first = true;
+    for (TypeMirror bound : bounds) {
+      if (first && "java.lang.Object".equals(bound.toString())) {
+        continue;
+      }
+      writer.append(first ? " extends " : " & ").append(bound.toString());
+      first = false;
+    }
+  }
+}
@@ -12,12 +12,15 @@ import java.util.Set;
  */
 class MetaData {
 
-  private static final String NEWLINE = "\n";
-
   private final String type;
 
   private String method;
 
+  /**
+   * The type (bean or factory) that this meta data was read from.
+   */
+  private String source;
+
   private boolean wired;
 
   /**
@@ -30,6 +33,27 @@ class MetaData {
    */
   private List<String> dependsOn;
 
+  /**
+   * The constructor parameters of a bean (null when unknown or the bean is from a factory method).
+   */
+  private List<MethodReader.MethodParam> params;
+
+  /**
+   * The registrations the $di of the bean makes (null when unknown as read from the factory).
+   */
+  private List<Registration> registrations;
+
+  /**
+   * The position in the ordering and the symbol ids of the type, provides and dependsOn.
+   */
+  private int index;
+
+  private int typeId;
+
+  private int[] provideIds;
+
+  private int[] dependsOnIds;
+
   MetaData(DependencyMeta meta) {
     this.type = meta.type();
     this.method = meta.method();
@@ -65,12 +89,60 @@ class MetaData {
   void update(BeanReader beanReader) {
     this.provides = beanReader.getInterfaces();
     this.dependsOn = beanReader.getDependsOn();
+    MethodReader constructor = beanReader.getConstructor();
+    // a lazy bean is not built directly
+    this.params = (constructor == null || beanReader.isLazy()) ? null : constructor.getParams();
+    this.registrations = beanReader.getRegistrations();
   }
 
   String getType() {
     return type;
   }
 
+  String getMethod() {
+    return method;
+  }
+
+  /**
+   * Return the type this meta data originates from (the bean or the factory with the bean method).
+   */
+  String getSource() {
+    if (source == null) {
+      return hasMethod() ? Util.trimDi(Util.classOfMethod(method)) : type;
+    }
+    return source;
+  }
+
+  void setSource(String source) {
+    this.source = source;
+  }
+
+  /**
+   * Resolve the symbol ids of the type, provides and dependsOn for the ordering.
+   */
+  void resolve(TypeSymbols symbols, int index) {
+    this.index = index;
+    this.typeId = symbols.id(type);
+    this.provideIds = symbols.ids(provides);
+    this.dependsOnIds = symbols.ids(dependsOn);
+  }
+
+  int getIndex() {
+    return index;
+  }
+
+  int getTypeId() {
+    return typeId;
+  }
+
+  int[] getProvideIds() {
+    return provideIds;
+  }
+
+  int[] getDependsOnIds() {
+    return dependsOnIds;
+  }
+
   List<String> getProvides() {
     return provides;
   }
@@ -99,48 +171,78 @@ class MetaData {
     }
   }
 
-  String buildMethod() {
+  void buildMethod(Append writer, DirectWiring wiring, ParallelLifecycle lifecycle, FactoryInjection injection) {
 
-    StringBuilder sb = new StringBuilder(200);
-    sb.append("  @DependencyMeta(type=\"").append(type).append("\"");
+    writer.append("  @DependencyMeta(type=\"").append(type).append('"');
     if (hasMethod()) {
-      sb.append(", method=\"").append(method).append("\"");
+      writer.append(", method=\"").append(method).append('"');
     }
     if (!provides.isEmpty()) {
-      appendProvides(sb, "provides", provides);
+      appendProvides(writer, "provides", provides);
     }
     if (!dependsOn.isEmpty()) {
-      appendProvides(sb, "dependsOn", dependsOn);
+      appendProvides(writer, "dependsOn", dependsOn);
     }
-    sb.append(")").append(NEWLINE);
+    writer.append(')').eol();
 
-    String shortName = Util.shortName(type);
-    sb.append("  protected void build_").append(shortName).append("() {").append(NEWLINE);
+    String shortName = getShortType();
+    writer.append("  protected void build_").append(shortName).append("() {").eol();
+    boolean direct = wiring != null && wiring.isDirect(this);
+    boolean managed = lifecycle != null && lifecycle.isManaged(this);
+    boolean injected = injection != null && injection.isInjected(this);
     if (hasMethod()) {
-      sb.append("    ").append(Util.shortMethod(method)).append("(builder);").append(NEWLINE);
+      if (lifecycle != null) {
+        lifecycle.writeFlush(writer);
+      }
+      writer.append("    ").append(Util.shortMethod(method)).append("(builder);").eol();
+    } else if (managed || injected) {
+      writer.append("    ").append(type).append(" bean = ");
+      if (direct) {
+        wiring.writeBuildExpression(writer, this);
+      } else {
+        writer.append(shortName).append("$di.build(builder)");
+      }
+      writer.append(';').eol();
+      if (direct && wiring.isField(this)) {
+        writer.append("    ").append(wiring.field(this)).append(" = bean;").eol();
+      }
+      if (managed) {
+        lifecycle.writeAdd(writer, this, "bean");
+      }
+      if (injected) {
+        injection.writeHold(writer, this, "bean");
+      }
+    } else if (direct) {
+      wiring.writeBuild(writer, this);
     } else {
-      sb.append("    ").append(shortName).append("$di.build(builder);").append(NEWLINE);
+      writer.append("    ").append(shortName).append("$di.build(builder);").eol();
     }
-    sb.append("  }").append(NEWLINE);
+    writer.append("  }").eol();
+  }
 
-    return sb.toString();
+  /**
+   * Return true if this is a bean with a known constructor (not a factory method or lazy bean).
+   * <p>
+   * The $di class of such a bean has the additional build methods for direct wiring and parallel build.
+   * </p>
+   */
+  boolean isConstructed() {
+    return !hasMethod() && params != null;
   }
 
-  private boolean hasMethod() {
+  boolean hasMethod() {
     return method != null && !method.isEmpty();
   }
 
-  private void appendProvides(StringBuilder sb, String attribute, List<String> types) {
-    sb.append(",").append(attribute).append("={");
+  private void appendProvides(Append writer, String attribute, List<String> types) {
+    writer.append(',').append(attribute).append("={");
     for (int i = 0; i < types.size(); i++) {
       if (i > 0) {
-        sb.append(",");
+        writer.append(',');
       }
-      sb.append("\"");
-      sb.append(types.get(i));
-      sb.append("\"");
+      writer.append('"').append(types.get(i)).append('"');
     }
-    sb.append("}");
+    writer.append('}');
   }
 
   void setProvides(List<String> provides) {
@@ -151,11 +253,77 @@ class MetaData {
     this.dependsOn = dependsOn;
   }
 
+  List<MethodReader.MethodParam> getParams() {
+    return params;
+  }
+
+  void setParams(List<MethodReader.MethodParam> params) {
+    this.params = params;
+  }
+
+  List<Registration> getRegistrations() {
+    return registrations;
+  }
+
+  void setRegistrations(List<Registration> registrations) {
+    this.registrations = registrations;
+  }
+
   void setMethod(String method) {
     this.method = method;
   }
 
+  /**
+   * Return the short name of the type (without generic parameters of a factory method bean).
+   */
   String getShortType() {
-    return Util.shortName(type);
+    return Util.shortName(Util.trimGenerics(type));
+  }
+
+  /**
+   * A bean registered with the builder by its type, name, priority and the types it is registered by.
+   */
+  static class Registration {
+
+    static final int PRIMARY = 1;
+
+    static final int SECONDARY = -1;
+
+    private final String type;
+
+    private final String name;
+
+    private final int priority;
+
+    private final List<String> types;
+
+    Registration(String type, String name, int priority, List<String> types) {
+      this.type = type;
+      this.name = name;
+      this.priority = priority;
+      this.types = types;
+    }
+
+    String getType() {
+      return type;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    /**
+     * Return the priority ({@link #PRIMARY}, {@link #SECONDARY} or 0).
+     */
+    int getPriority() {
+      return priority;
+    }
+
+    /**
+     * Return the raw interface and annotation types the bean is registered by.
+     */
+    List<String> getTypes() {
+      return types;
+    }
   }
 }
@@ -0,0 +1,255 @@
+package io.dinject.generator;
+
+import javax.lang.model.element.Element;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary index of all the bean <code>MetaData</code> of the module.
+ * <p>
+ * Written to CLASS_OUTPUT with the factory and read back on the next (incremental) compile such that
+ * only the changed beans need to be read and the factory is regenerated from the merged meta data.
+ * All the type names are written once into a string table and referenced by index.
+ * </p>
+ * <p>
+ * The references and sizes are checked when read such that a truncated or corrupt index is an
+ * IOException (and the factory is read instead) rather than failing the compile.
+ * </p>
+ */
+class MetaDataIndex {
+
+  private static final int MAGIC = 0x64696e6a;
+
+  private static final int VERSION = 3;
+
+  private final List<String> strings = new ArrayList<>();
+
+  private final Map<String, Integer> stringIds = new HashMap<>();
+
+  /**
+   * Read the index returning null if it does not exist or is not readable.
+   */
+  static List<MetaData> read(ProcessingContext context) {
+    try (InputStream is = context.openResource(Constants.META_INF_INDEX)) {
+      if (is == null) {
+        return null;
+      }
+      return read(new DataInputStream(new BufferedInputStream(is)));
+
+    } catch (IOException e) {
+      context.logWarn("Error reading meta data index, reading factory instead: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Write the index for the given meta data.
+   */
+  static void write(ProcessingContext context, Collection<MetaData> metaData, Element... originatingElements) throws IOException {
+    try (OutputStream os = context.createResource(Constants.META_INF_INDEX, originatingElements).openOutputStream()) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+      new MetaDataIndex().write(out, metaData);
+      out.flush();
+    }
+  }
+
+  static List<MetaData> read(DataInputStream in) throws IOException {
+    if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+      return null;
+    }
+    // not sized by the counts read as those are not trusted
+    int stringCount = readSize(in);
+    List<String> table = new ArrayList<>();
+    for (int i = 0; i < stringCount; i++) {
+      table.add(in.readUTF());
+    }
+    String[] strings = table.toArray(new String[0]);
+    int count = readSize(in);
+    List<MetaData> list = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      MetaData meta = new MetaData(readString(in, strings));
+      meta.setMethod(readOptionalString(in, strings));
+      meta.setSource(readString(in, strings));
+      readStrings(in, strings, meta.getProvides());
+      readStrings(in, strings, meta.getDependsOn());
+      meta.setParams(readParams(in, strings));
+      meta.setRegistrations(readRegistrations(in, strings));
+      list.add(meta);
+    }
+    return list;
+  }
+
+  private static int readSize(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    if (size < 0) {
+      throw new IOException("invalid size " + size);
+    }
+    return size;
+  }
+
+  private static String readString(DataInputStream in, String[] strings) throws IOException {
+    String value = readOptionalString(in, strings);
+    if (value == null) {
+      throw new IOException("missing string");
+    }
+    return value;
+  }
+
+  /**
+   * Read a string reference returning null for -1.
+   */
+  private static String readOptionalString(DataInputStream in, String[] strings) throws IOException {
+    int id = in.readInt();
+    if (id == -1) {
+      return null;
+    }
+    if (id < 0 || id >= strings.length) {
+      throw new IOException("invalid string reference " + id);
+    }
+    return strings[id];
+  }
+
+  private static void readStrings(DataInputStream in, String[] strings, List<String> target) throws IOException {
+    int size = readSize(in);
+    for (int i = 0; i < size; i++) {
+      target.add(readString(in, strings));
+    }
+  }
+
+  private static List<MethodReader.MethodParam> readParams(DataInputStream in, String[] strings) throws IOException {
+    int size = in.readInt();
+    if (size == -1) {
+      return null;
+    }
+    if (size < 0) {
+      throw new IOException("invalid size " + size);
+    }
+    List<MethodReader.MethodParam> params = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      String rawType = readString(in, strings);
+      params.add(new MethodReader.MethodParam(rawType, readOptionalString(in, strings)));
+    }
+    return params;
+  }
+
+  private static List<MetaData.Registration> readRegistrations(DataInputStream in, String[] strings) throws IOException {
+    int size = in.readInt();
+    if (size == -1) {
+      return null;
+    }
+    if (size < 0) {
+      throw new IOException("invalid size " + size);
+    }
+    List<MetaData.Registration> registrations = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      String type = readString(in, strings);
+      String name = readOptionalString(in, strings);
+      int priority = in.readByte();
+      List<String> types = new ArrayList<>();
+      readStrings(in, strings, types);
+      registrations.add(new MetaData.Registration(type, name, priority, types));
+    }
+    return registrations;
+  }
+
+  void write(DataOutputStream out, Collection<MetaData> metaData) throws IOException {
+
+    // register all the strings first such that the string table precedes the entries
+    for (MetaData meta : metaData) {
+      id(meta.getType());
+      id(meta.getMethod());
+      id(meta.getSource());
+      for (String provide : meta.getProvides()) {
+        id(provide);
+      }
+      for (String dependsOn : meta.getDependsOn()) {
+        id(dependsOn);
+      }
+      if (meta.getParams() != null) {
+        for (MethodReader.MethodParam param : meta.getParams()) {
+          id(param.getRawType());
+          id(param.getNamed());
+        }
+      }
+      if (meta.getRegistrations() != null) {
+        for (MetaData.Registration registration : meta.getRegistrations()) {
+          id(registration.getType());
+          id(registration.getName());
+          for (String type : registration.getTypes()) {
+            id(type);
+          }
+        }
+      }
+    }
+
+    out.writeInt(MAGIC);
+    out.writeShort(VERSION);
+    out.writeInt(strings.size());
+    for (String value : strings) {
+      out.writeUTF(value);
+    }
+    out.writeInt(metaData.size());
+    for (MetaData meta : metaData) {
+      out.writeInt(id(meta.getType()));
+      out.writeInt(id(meta.getMethod()));
+      out.writeInt(id(meta.getSource()));
+      writeStrings(out, meta.getProvides());
+      writeStrings(out, meta.getDependsOn());
+      writeParams(out, meta.getParams());
+      writeRegistrations(out, meta.getRegistrations());
+    }
+  }
+
+  private void writeRegistrations(DataOutputStream out, List<MetaData.Registration> registrations) throws IOException {
+    if (registrations == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(registrations.size());
+    for (MetaData.Registration registration : registrations) {
+      out.writeInt(id(registration.getType()));
+      out.writeInt(id(registration.getName()));
+      out.writeByte(registration.getPriority());
+      writeStrings(out, registration.getTypes());
+    }
+  }
+
+  private void writeParams(DataOutputStream out, List<MethodReader.MethodParam> params) throws IOException {
+    if (params == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(params.size());
+    for (MethodReader.MethodParam param : params) {
+      out.writeInt(id(param.getRawType()));
+      out.writeInt(id(param.getNamed()));
+    }
+  }
+
+  private void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      out.writeInt(id(value));
+    }
+  }
+
+  private int id(String value) {
+    if (value == null || value.isEmpty()) {
+      return -1;
+    }
+    return stringIds.computeIfAbsent(value, s -> {
+      strings.add(s);
+      return strings.size() - 1;
+    });
+  }
+}
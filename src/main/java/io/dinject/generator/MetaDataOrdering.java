@@ -1,11 +1,11 @@
 package io.dinject.generator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -17,14 +17,30 @@ class MetaDataOrdering {
 
   private final List<MetaData> queue = new ArrayList<>();
 
-  private final Map<String, ProviderList> providers = new HashMap<>();
+  /**
+   * The type names of the bean graph (only live for this ordering).
+   */
+  private final TypeSymbols symbols = new TypeSymbols();
+
+  private final MetaData[] beans;
+
+  /**
+   * The beans (index) providing each symbol in compressed form - the providers of symbol s are
+   * <code>providerBeans[providerStart[s]]</code> to <code>providerBeans[providerStart[s + 1] - 1]</code>.
+   */
+  private final int[] providerStart;
+
+  private final int[] providerBeans;
 
   private String topPackage;
 
   MetaDataOrdering(Collection<MetaData> values, ProcessingContext processingContext) {
     this.processingContext = processingContext;
+    this.beans = values.toArray(new MetaData[0]);
 
-    for (MetaData metaData : values) {
+    for (int i = 0; i < beans.length; i++) {
+      MetaData metaData = beans[i];
+      metaData.resolve(symbols, i);
       if (metaData.noDepends()) {
         orderedList.add(metaData);
         metaData.setWired();
@@ -32,75 +48,434 @@ class MetaDataOrdering {
         queue.add(metaData);
       }
       topPackage = Util.commonParent(topPackage, metaData.getTopPackage());
+    }
 
-      // register into map keyed by provider
-      providers.computeIfAbsent(metaData.getType(), s -> new ProviderList()).add(metaData);
-      for (String provide : metaData.getProvides()) {
-        providers.computeIfAbsent(provide, s -> new ProviderList()).add(metaData);
+    // register the beans keyed by the types they provide
+    int symbolCount = symbols.size();
+    providerStart = new int[symbolCount + 1];
+    for (MetaData metaData : beans) {
+      providerStart[metaData.getTypeId() + 1]++;
+      for (int provide : metaData.getProvideIds()) {
+        providerStart[provide + 1]++;
+      }
+    }
+    for (int i = 0; i < symbolCount; i++) {
+      providerStart[i + 1] += providerStart[i];
+    }
+    providerBeans = new int[providerStart[symbolCount]];
+    int[] fill = new int[symbolCount];
+    for (int i = 0; i < beans.length; i++) {
+      int type = beans[i].getTypeId();
+      providerBeans[providerStart[type] + fill[type]++] = i;
+      for (int provide : beans[i].getProvideIds()) {
+        providerBeans[providerStart[provide] + fill[provide]++] = i;
       }
     }
 
     // order no dependency list by ... name asc (order does not matter but for consistency)
   }
 
+  /**
+   * Order the queued beans such that each bean follows all the providers of its dependencies.
+   * <p>
+   * This is a topological sort (Kahn) where each queued bean counts the providers it is still
+   * waiting on. The ready beans are taken in the same order as repeatedly sweeping the queue
+   * would take them - a bean that becomes ready ahead of the current sweep position is taken
+   * in this sweep, otherwise it is taken in the next sweep.
+   * </p>
+   * <p>
+   * The ready beans are held in a heap of primitive (sweep, position) keys so this is log-linear,
+   * O((V + E) log V), rather than the O(V * sweeps) of sweeping the queue.
+   * </p>
+   *
+   * @return The number of beans with unsatisfied dependencies
+   */
   int processQueue() {
 
-    int count;
-    do {
-      count = processQueueRound();
-    } while (count > 0);
+    int size = queue.size();
+    int[] position = new int[beans.length];
+    Arrays.fill(position, -1);
+    for (int i = 0; i < size; i++) {
+      position[queue.get(i).getIndex()] = i;
+    }
+
+    // the number of (dependency, provider) pairs each bean is waiting on
+    int[] waiting = new int[size];
+    boolean[] unsatisfied = new boolean[size];
+    int[] edgeCount = new int[size + 1];
+    for (int i = 0; i < size; i++) {
+      for (int dependency : queue.get(i).getDependsOnIds()) {
+        if (providerStart[dependency] == providerStart[dependency + 1]) {
+          // missing dependencies - leave to end
+          unsatisfied[i] = true;
+        } else {
+          for (int p = providerStart[dependency]; p < providerStart[dependency + 1]; p++) {
+            int from = position[providerBeans[p]];
+            if (from > -1) {
+              waiting[i]++;
+              edgeCount[from + 1]++;
+            }
+          }
+        }
+      }
+    }
+
+    // reverse edges (provider -> dependents) in compressed form
+    for (int i = 0; i < size; i++) {
+      edgeCount[i + 1] += edgeCount[i];
+    }
+    int[] dependents = new int[edgeCount[size]];
+    int[] fill = new int[size];
+    for (int i = 0; i < size; i++) {
+      for (int dependency : queue.get(i).getDependsOnIds()) {
+        for (int p = providerStart[dependency]; p < providerStart[dependency + 1]; p++) {
+          int from = position[providerBeans[p]];
+          if (from > -1) {
+            dependents[edgeCount[from] + fill[from]++] = i;
+          }
+        }
+      }
+    }
+
+    // ready beans keyed by (sweep, queue position)
+    SlotHeap ready = new SlotHeap(size);
+    for (int i = 0; i < size; i++) {
+      if (waiting[i] == 0 && !unsatisfied[i]) {
+        ready.add(slot(1, i));
+      }
+    }
+
+    while (!ready.isEmpty()) {
+      long next = ready.poll();
+      long sweep = next >>> 32;
+      int pos = (int) next;
+      MetaData wiredMeta = queue.get(pos);
+      orderedList.add(wiredMeta);
+      wiredMeta.setWired();
+
+      for (int e = edgeCount[pos]; e < edgeCount[pos + 1]; e++) {
+        int dependent = dependents[e];
+        if (--waiting[dependent] == 0 && !unsatisfied[dependent]) {
+          ready.add(slot(dependent > pos ? sweep : sweep + 1, dependent));
+        }
+      }
+    }
+
+    List<MetaData> remaining = new ArrayList<>();
+    for (MetaData queuedMeta : queue) {
+      if (!queuedMeta.isWired()) {
+        remaining.add(queuedMeta);
+      }
+    }
+    queue.clear();
+    queue.addAll(remaining);
+    orderedList.addAll(remaining);
+    return remaining.size();
+  }
+
+  private static long slot(long sweep, int position) {
+    return (sweep << 32) | position;
+  }
+
+  /**
+   * Binary min heap of the (sweep, position) slots of the ready beans. Each bean is added at most once.
+   */
+  private static final class SlotHeap {
+
+    private final long[] heap;
+
+    private int size;
+
+    SlotHeap(int capacity) {
+      this.heap = new long[Math.max(capacity, 1)];
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    void add(long slot) {
+      int i = size++;
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (heap[parent] <= slot) {
+          break;
+        }
+        heap[i] = heap[parent];
+        i = parent;
+      }
+      heap[i] = slot;
+    }
 
-    int remaining = queue.size();
-    if (remaining != 0) {
-      orderedList.addAll(queue);
+    long poll() {
+      long top = heap[0];
+      long last = heap[--size];
+      int i = 0;
+      int half = size >>> 1;
+      while (i < half) {
+        int child = 2 * i + 1;
+        if (child + 1 < size && heap[child + 1] < heap[child]) {
+          child++;
+        }
+        if (last <= heap[child]) {
+          break;
+        }
+        heap[i] = heap[child];
+        i = child;
+      }
+      heap[i] = last;
+      return top;
     }
-    return remaining;
   }
 
-  void warnOnDependencies() {
+  /**
+   * Warn on the beans with unsatisfied dependencies that are not in one of the given cycles (which are errors).
+   */
+  void warnOnDependencies(List<List<MetaData>> cycles) {
+    Set<MetaData> cyclic = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (List<MetaData> cycle : cycles) {
+      cyclic.addAll(cycle);
+    }
     for (MetaData m : queue) {
-      processingContext.logWarn("unsatisfied dependencies on %s dependsOn %s", m.getType(), m.getDependsOn());
+      if (cyclic.contains(m)) {
+        continue;
+      }
+      List<String> external = getExternalDependencies(m);
+      if (external.isEmpty()) {
+        processingContext.logWarn("unsatisfied dependencies on %s dependsOn %s (depends on beans that are not wired)", m.getType(), m.getDependsOn());
+      } else {
+        processingContext.logWarn("unsatisfied dependencies on %s dependsOn %s (assuming external %s)", m.getType(), m.getDependsOn(), external);
+      }
     }
   }
 
-  String getTopPackage() {
-    return topPackage;
+  /**
+   * Return the dependencies of the bean that no bean of this module provides.
+   */
+  List<String> getExternalDependencies(MetaData metaData) {
+    List<String> external = new ArrayList<>();
+    for (int dependency : metaData.getDependsOnIds()) {
+      if (providerStart[dependency] == providerStart[dependency + 1]) {
+        external.add(symbols.name(dependency));
+      }
+    }
+    return external;
   }
 
-  private int processQueueRound() {
+  /**
+   * Return the dependency cycles among the beans with unsatisfied dependencies.
+   * <p>
+   * These are the strongly connected components (Tarjan) of the graph from each unsatisfied bean to
+   * the unsatisfied providers of its dependencies that have more than one bean or a bean that depends
+   * on a type it provides itself. Each cycle is a path of beans where each bean depends on the next
+   * and the last depends on the first. This is linear in the number of beans and dependencies (the
+   * depth first search uses an explicit stack).
+   * </p>
+   */
+  List<List<MetaData>> findCycles() {
+
+    int size = queue.size();
+    int[] position = new int[beans.length];
+    Arrays.fill(position, -1);
+    for (int i = 0; i < size; i++) {
+      position[queue.get(i).getIndex()] = i;
+    }
+
+    // edges (bean -> provider) in compressed form
+    int[] edgeStart = new int[size + 1];
+    for (int i = 0; i < size; i++) {
+      for (int dependency : queue.get(i).getDependsOnIds()) {
+        for (int p = providerStart[dependency]; p < providerStart[dependency + 1]; p++) {
+          if (position[providerBeans[p]] > -1) {
+            edgeStart[i + 1]++;
+          }
+        }
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      edgeStart[i + 1] += edgeStart[i];
+    }
+    int[] edges = new int[edgeStart[size]];
+    int fill = 0;
+    for (int i = 0; i < size; i++) {
+      for (int dependency : queue.get(i).getDependsOnIds()) {
+        for (int p = providerStart[dependency]; p < providerStart[dependency + 1]; p++) {
+          int to = position[providerBeans[p]];
+          if (to > -1) {
+            edges[fill++] = to;
+          }
+        }
+      }
+    }
+
+    List<List<MetaData>> cycles = new ArrayList<>();
+    int[] visitIndex = new int[size];
+    Arrays.fill(visitIndex, -1);
+    int[] lowLink = new int[size];
+    int[] nextEdge = new int[size];
+    int[] component = new int[size];
+    Arrays.fill(component, -1);
+    boolean[] onStack = new boolean[size];
+    int[] stack = new int[size];
+    int[] callStack = new int[size];
+    int stackSize = 0;
+    int counter = 0;
+    int components = 0;
+    // reused by the search for the path of each cycle
+    int[] parent = new int[size];
+    int[] pathQueue = new int[size];
 
-    // loop queue looking for entry that has all provides marked as included
+    for (int root = 0; root < size; root++) {
+      if (visitIndex[root] != -1) {
+        continue;
+      }
+      int calls = 0;
+      visitIndex[root] = lowLink[root] = counter++;
+      nextEdge[root] = edgeStart[root];
+      stack[stackSize++] = root;
+      onStack[root] = true;
+      callStack[calls++] = root;
 
-    int count = 0;
+      while (calls > 0) {
+        int v = callStack[calls - 1];
+        if (nextEdge[v] < edgeStart[v + 1]) {
+          int w = edges[nextEdge[v]++];
+          if (visitIndex[w] == -1) {
+            visitIndex[w] = lowLink[w] = counter++;
+            nextEdge[w] = edgeStart[w];
+            stack[stackSize++] = w;
+            onStack[w] = true;
+            callStack[calls++] = w;
+          } else if (onStack[w]) {
+            lowLink[v] = Math.min(lowLink[v], visitIndex[w]);
+          }
+        } else {
+          calls--;
+          if (calls > 0) {
+            int u = callStack[calls - 1];
+            lowLink[u] = Math.min(lowLink[u], lowLink[v]);
+          }
+          if (lowLink[v] == visitIndex[v]) {
+            int w;
+            do {
+              w = stack[--stackSize];
+              onStack[w] = false;
+              component[w] = components;
+            } while (w != v);
+            List<MetaData> cycle = cyclePath(v, components++, component, edgeStart, edges, parent, pathQueue);
+            if (cycle != null) {
+              cycles.add(cycle);
+            }
+          }
+        }
+      }
+    }
+    return cycles;
+  }
 
-    Iterator<MetaData> iterator = queue.iterator();
-    while (iterator.hasNext()) {
-      MetaData queuedMeta = iterator.next();
-      if (allDependenciesWired(queuedMeta)) {
-        orderedList.add(queuedMeta);
-        queuedMeta.setWired();
-        iterator.remove();
-        count++;
+  /**
+   * Return the shortest path from the start bean back to itself within its component (null when
+   * the component is a single bean that does not depend on itself).
+   */
+  private List<MetaData> cyclePath(int start, int id, int[] component, int[] edgeStart, int[] edges, int[] parent, int[] pathQueue) {
+    int head = 0;
+    int tail = 0;
+    pathQueue[tail++] = start;
+    parent[start] = -1;
+    while (head < tail) {
+      int x = pathQueue[head++];
+      for (int e = edgeStart[x]; e < edgeStart[x + 1]; e++) {
+        int y = edges[e];
+        if (y == start) {
+          List<MetaData> path = new ArrayList<>();
+          for (int at = x; at != -1; at = parent[at]) {
+            path.add(queue.get(at));
+          }
+          Collections.reverse(path);
+          return path;
+        }
+        if (component[y] == id) {
+          // mark as visited by moving it out of the component
+          component[y] = -2;
+          parent[y] = x;
+          pathQueue[tail++] = y;
+        }
       }
     }
+    return null;
+  }
+
+  String getTopPackage() {
+    return topPackage;
+  }
+
+  /**
+   * Return the beans that provide the given type (empty when there are none in this module).
+   */
+  List<MetaData> getProviders(String type) {
+    int id = symbols.find(type);
+    if (id == -1) {
+      return Collections.emptyList();
+    }
+    List<MetaData> list = new ArrayList<>(providerStart[id + 1] - providerStart[id]);
+    for (int p = providerStart[id]; p < providerStart[id + 1]; p++) {
+      list.add(beans[providerBeans[p]]);
+    }
+    return list;
+  }
 
-    return count;
+  /**
+   * Return the single bean that provides the given type or null when there is none or more than one.
+   */
+  MetaData getUniqueProvider(String type) {
+    int id = symbols.find(type);
+    if (id == -1 || providerStart[id + 1] - providerStart[id] != 1) {
+      return null;
+    }
+    return beans[providerBeans[providerStart[id]]];
   }
 
-  private boolean allDependenciesWired(MetaData queuedMeta) {
+  /**
+   * Return the wired beans grouped by dependency level.
+   * <p>
+   * The beans with no dependencies in this module are level 0 and otherwise a bean is one level
+   * above the highest level of the providers of its dependencies. The beans of a level do not depend
+   * on each other and so can be created concurrently. Within a level the beans are in build order.
+   * Beans with unsatisfied dependencies are not included (refer to {@link #getUnsatisfied()}).
+   * </p>
+   */
+  List<List<MetaData>> getLevels() {
 
-    for (String dependency : queuedMeta.getDependsOn()) {
-      ProviderList providerList = providers.get(dependency);
-      if (providerList == null) {
-        // missing dependencies - leave to end
-        return false;
-      } else {
-        if (!providerList.isAllWired()) {
-          return false;
+    int[] levelOf = new int[beans.length];
+    Arrays.fill(levelOf, -1);
+    List<List<MetaData>> levels = new ArrayList<>();
+    for (MetaData metaData : orderedList) {
+      if (!metaData.isWired()) {
+        continue;
+      }
+      int level = 0;
+      for (int dependency : metaData.getDependsOnIds()) {
+        for (int p = providerStart[dependency]; p < providerStart[dependency + 1]; p++) {
+          int providerLevel = levelOf[providerBeans[p]];
+          if (providerLevel >= level) {
+            level = providerLevel + 1;
+          }
         }
       }
+      levelOf[metaData.getIndex()] = level;
+      if (level == levels.size()) {
+        levels.add(new ArrayList<>());
+      }
+      levels.get(level).add(metaData);
     }
-    return true;
+    return levels;
+  }
+
+  /**
+   * Return the beans with unsatisfied dependencies (built last).
+   */
+  List<MetaData> getUnsatisfied() {
+    return queue;
   }
 
   List<MetaData> getOrdered() {
@@ -114,22 +489,4 @@ class MetaDataOrdering {
     }
     return importTypes;
   }
-
-  private static class ProviderList {
-
-    private List<MetaData> list = new ArrayList<>();
-
-    void add(MetaData beanMeta) {
-      list.add(beanMeta);
-    }
-
-    boolean isAllWired() {
-      for (MetaData metaData : list) {
-        if (!metaData.isWired()) {
-          return false;
-        }
-      }
-      return true;
-    }
-  }
 }
@@ -9,6 +9,7 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeMirror;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -16,9 +17,11 @@ class MethodReader {
 
   private final ProcessingContext processingContext;
   private final ExecutableElement element;
+  private final String methodName;
   private final String factoryType;
   private final TypeMirror returnType;
   private final String returnTypeRaw;
+  private final TypeDescriptor returnDescriptor;
   private final String shortName;
   private final boolean isVoid;
   private final List<MethodParam> params = new ArrayList<>();
@@ -35,9 +38,11 @@ class MethodReader {
     this.isFactory = bean != null;
     this.processingContext = processingContext;
     this.element = element;
+    this.methodName = element.getSimpleName().toString();
     this.returnType = element.getReturnType();
     this.returnTypeRaw = returnType.toString();
-    this.shortName = Util.shortName(returnTypeRaw);
+    this.returnDescriptor = processingContext.getTypeDescriptor(returnType);
+    this.shortName = Util.shortName(returnDescriptor.getErasure());
     this.factoryType = beanType.getQualifiedName().toString();
     this.factoryShortName = Util.shortName(factoryType);
     this.isVoid = returnTypeRaw.equals("void");
@@ -54,16 +59,16 @@ class MethodReader {
       if (te.getKind() == ElementKind.INTERFACE) {
         interfaceTypes.add(te.getQualifiedName().toString());
       }
-      for (TypeMirror anInterface : te.getInterfaces()) {
-        if (Constants.isBeanLifecycle(anInterface.toString())) {
+      for (String anInterface : processingContext.getInterfaces(te)) {
+        if (Constants.isBeanLifecycle(anInterface)) {
           // directly implements BeanLifecycle
           beanLifeCycle = true;
         } else {
-          interfaceTypes.add(anInterface.toString());
+          interfaceTypes.add(anInterface);
         }
       }
       if (interfaceTypes.size() == 1) {
-        addForType = interfaceTypes.get(0);
+        addForType = Util.trimGenerics(interfaceTypes.get(0));
       }
     }
   }
@@ -71,7 +76,7 @@ class MethodReader {
   void read() {
     List<? extends VariableElement> ps = element.getParameters();
     for (VariableElement p : ps) {
-      params.add(new MethodParam(p));
+      params.add(new MethodParam(p, processingContext));
     }
   }
 
@@ -80,64 +85,89 @@ class MethodReader {
   }
 
   String getName() {
-    return element.getSimpleName().toString();
+    return methodName;
+  }
+
+  /**
+   * Return true if a dependency of the method is a generic type looked up by its raw type.
+   */
+  boolean isUnchecked() {
+    for (MethodParam param : params) {
+      if (param.isUnchecked()) {
+        return true;
+      }
+    }
+    return false;
   }
 
   MetaData createMeta() {
 
     MetaData metaData = new MetaData(returnTypeRaw);
     metaData.setMethod(fullBuildMethod());
+    metaData.setSource(factoryType);
 
     List<String> dependsOn = new ArrayList<>(params.size() + 1);
     dependsOn.add(factoryType);
     for (MethodParam param : params) {
-      dependsOn.add(param.paramType);
+      dependsOn.add(param.getDependsOn());
     }
     metaData.setDependsOn(dependsOn);
     metaData.setProvides(new ArrayList<>());
+    metaData.setRegistrations(getRegistrations());
     return metaData;
   }
 
+  /**
+   * Return the registration of the bean (none for a void method).
+   */
+  private List<MetaData.Registration> getRegistrations() {
+    if (isVoid) {
+      return Collections.emptyList();
+    }
+    List<String> types = new ArrayList<>(interfaceTypes.size());
+    for (String anInterface : interfaceTypes) {
+      types.add(Util.trimGenerics(anInterface));
+    }
+    return Collections.singletonList(new MetaData.Registration(returnDescriptor.getErasure(), null, 0, types));
+  }
+
   private String fullBuildMethod() {
-    return factoryType + "$di.build_" + element.getSimpleName().toString();
+    return factoryType + "$di.build_" + methodName;
   }
 
-  String builderGetFactory() {
-    return String.format("      %s factory = builder.get(%s.class);", factoryShortName, factoryShortName);
+  void builderGetFactory(Append writer) {
+    writer.append("      ").append(factoryShortName).append(" factory = builder.get(").append(factoryShortName).append(".class);");
   }
 
-  String builderBuildBean() {
+  void builderBuildBean(Append writer) {
 
-    String methodName = element.getSimpleName().toString();
-    StringBuilder sb = new StringBuilder();
     if (isVoid) {
-      sb.append(String.format("      factory.%s(", methodName));
+      writer.append("      factory.").append(methodName).append('(');
     } else {
-      sb.append(String.format("      %s bean = factory.%s(", Util.shortName(returnTypeRaw), methodName));
+      writer.append("      ").append(shortName).append(" bean = factory.").append(methodName).append('(');
     }
 
     for (int i = 0; i < params.size(); i++) {
       if (i > 0) {
-        sb.append(",");
+        writer.append(',');
       }
-      sb.append(params.get(i).builderGetDependency());
+      params.get(i).builderGetDependency(writer);
     }
-    sb.append(");");
-    return sb.toString();
+    writer.append(");");
   }
 
   void builderBuildAddBean(Append writer) {
     if (!isVoid) {
       writer.append("      builder.register(bean, null");
       for (String anInterface : interfaceTypes) {
-        writer.append(", ").append(Util.shortName(anInterface)).append(".class");
+        writer.append(", ").append(Util.shortName(Util.trimGenerics(anInterface))).append(".class");
       }
       writer.append(");").eol();
     }
     if (beanLifeCycle) {
       writer.append("      builder.addLifecycle(bean);").eol();
     } else if (hasLifecycleMethods()) {
-      writer.append("      builder.addLifecycle(new %s$lifecycle(bean));", shortName).eol();
+      writer.append("      builder.addLifecycle(new ").append(shortName).append("$lifecycle(bean));").eol();
     }
   }
 
@@ -154,7 +184,10 @@ class MethodReader {
       param.addImports(importTypes);
     }
     if (isFactory) {
-      importTypes.add(returnTypeRaw);
+      importTypes.add(returnDescriptor.getErasure());
+      for (String anInterface : interfaceTypes) {
+        importTypes.add(Util.trimGenerics(anInterface));
+      }
     }
     if (beanLifeCycle || hasLifecycleMethods()) {
       importTypes.add(Constants.BEAN_LIFECYCLE);
@@ -182,16 +215,16 @@ class MethodReader {
       return;
     }
 
-    writer.append("  static class %s$lifecycle implements BeanLifecycle {", shortName).eol().eol();
-    writer.append("    final %s bean;", shortName).eol().eol();
-    writer.append("    %s$lifecycle(%s bean) {", shortName, shortName).eol();
+    writer.append("  static class ").append(shortName).append("$lifecycle implements BeanLifecycle {").eol().eol();
+    writer.append("    final ").append(shortName).append(" bean;").eol().eol();
+    writer.append("    ").append(shortName).append("$lifecycle(").append(shortName).append(" bean) {").eol();
     writer.append("      this.bean = bean;").eol();
     writer.append("    }").eol().eol();
 
     writer.append("    @Override").eol();
     writer.append("    public void postConstruct() {").eol();
     if (notEmpty(initMethod)) {
-      writer.append("      bean.%s();", initMethod).eol();
+      writer.append("      bean.").append(initMethod).append("();").eol();
     } else {
       writer.append("      // do nothing ").eol();
     }
@@ -200,7 +233,7 @@ class MethodReader {
     writer.append("    @Override").eol();
     writer.append("    public void preDestroy() {").eol();
     if (notEmpty(destroyMethod)) {
-      writer.append("      bean.%s();", destroyMethod).eol();
+      writer.append("      bean.").append(destroyMethod).append("();").eol();
     } else {
       writer.append("      // do nothing ").eol();
     }
@@ -211,50 +244,78 @@ class MethodReader {
 
   static class MethodParam {
 
-    private final String rawType;
+    private final TypeDescriptor type;
     private final String named;
-    private final boolean listType;
-    private final boolean optionalType;
-    private final String paramType;
-
-    MethodParam(VariableElement param) {
-      TypeMirror type = param.asType();
-      this.rawType = type.toString();
-      this.named = Util.getNamed(param);
-      this.listType = Util.isList(rawType);
-      this.optionalType = !listType && Util.isOptional(rawType);
-      if (optionalType) {
-        paramType = Util.extractOptionalType(rawType);
-      } else if (listType) {
-        paramType = Util.extractList(rawType);
-      } else {
-        paramType = rawType;
-      }
+
+    MethodParam(VariableElement param, ProcessingContext context) {
+      this(context.getTypeDescriptor(param.asType()), context.getNamed(param));
     }
 
-    String builderGetDependency() {
-      StringBuilder sb = new StringBuilder();
-      if (listType) {
-        sb.append("builder.getList(");
-      } else if (optionalType) {
-        sb.append("builder.getOptional(");
-      } else {
-        sb.append("builder.get(");
-      }
-      sb.append(Util.shortName(paramType)).append(".class");
-      if (named != null) {
-        sb.append(",\"").append(named).append("\"");
-      }
-      sb.append(")");
-      return sb.toString();
+    MethodParam(String rawType, String named) {
+      this(TypeDescriptor.parse(rawType), named);
+    }
+
+    private MethodParam(TypeDescriptor type, String named) {
+      this.type = type;
+      this.named = named;
+    }
+
+    void builderGetDependency(Append writer) {
+      type.builderGet(writer, "builder", named, true);
+    }
+
+    /**
+     * Append the builder lookup for the dependency using the fully qualified type.
+     */
+    void builderGetDependencyFull(Append writer) {
+      type.builderGet(writer, "builder", named, false);
+    }
+
+    /**
+     * Return true if this is a plain (not named, list or optional) dependency.
+     */
+    boolean isPlain() {
+      return named == null && type.getKind() == TypeDescriptor.Kind.PLAIN;
+    }
+
+    /**
+     * Return the kind of dependency (plain or a List, Set, Optional or Provider of the dependency type).
+     */
+    TypeDescriptor.Kind getKind() {
+      return type.getKind();
+    }
+
+    /**
+     * Return true if the dependency is a generic type looked up by its raw type.
+     */
+    boolean isUnchecked() {
+      return type.isUnchecked();
+    }
+
+    /**
+     * Return true if a <code>Provider</code> of a lazy bean is injected.
+     */
+    boolean isProvider() {
+      return type.getKind() == TypeDescriptor.Kind.PROVIDER;
+    }
+
+    String getRawType() {
+      return type.getFullType();
+    }
+
+    String getNamed() {
+      return named;
     }
 
     String getDependsOn() {
-      return paramType;
+      return type.getType();
     }
 
     void addImports(Set<String> importTypes) {
-      importTypes.add(paramType);
+      importTypes.add(type.getRawType());
+      if (isProvider()) {
+        importTypes.add(type.getRawType() + "$di");
+      }
     }
   }
 }
@@ -0,0 +1,166 @@
+package io.dinject.generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The descriptor of a module - its name, factory, provides, dependsOn and the bean types it registers.
+ * <p>
+ * Written with the factory to CLASS_OUTPUT as <code>META-INF/dinject/[name].module</code> (one
+ * <code>key=value,value</code> line per attribute) along with <code>META-INF/dinject/[feature].provides</code>
+ * holding the module name for each feature it provides. The application module reads the descriptors
+ * of the modules it depends on from the classpath to order them at compile time.
+ * </p>
+ */
+class ModuleDescriptor {
+
+  private final String name;
+
+  private final String factory;
+
+  private final List<String> provides;
+
+  private final List<String> dependsOn;
+
+  private final Set<String> beans;
+
+  ModuleDescriptor(String name, String factory, List<String> provides, List<String> dependsOn, Set<String> beans) {
+    this.name = name;
+    this.factory = factory;
+    this.provides = provides;
+    this.dependsOn = dependsOn;
+    this.beans = beans;
+  }
+
+  /**
+   * Create the descriptor of the module with the given ordered beans.
+   */
+  static ModuleDescriptor of(ProcessingContext context, String factory, List<MetaData> ordered) {
+    Set<String> beans = new LinkedHashSet<>();
+    for (MetaData metaData : ordered) {
+      beans.add(metaData.getType());
+      beans.addAll(metaData.getProvides());
+    }
+    return new ModuleDescriptor(context.getContextName(), factory, asList(context.getContextProvides()), asList(context.getContextDependsOn()), beans);
+  }
+
+  private static List<String> asList(String[] values) {
+    return values == null ? Collections.emptyList() : Arrays.asList(values);
+  }
+
+  /**
+   * Return the resource name of the descriptor of the given module.
+   */
+  static String resourceName(String name) {
+    return Constants.META_INF_MODULE_DIR + name + ".module";
+  }
+
+  /**
+   * Return the resource name holding the name of the module that provides the given feature.
+   */
+  static String providesName(String feature) {
+    return Constants.META_INF_MODULE_DIR + feature + ".provides";
+  }
+
+  /**
+   * Parse the descriptor content returning null if it does not have a name and factory.
+   */
+  static ModuleDescriptor parse(String content) {
+    String name = null;
+    String factory = null;
+    List<String> provides = new ArrayList<>();
+    List<String> dependsOn = new ArrayList<>();
+    Set<String> beans = new LinkedHashSet<>();
+    for (String line : content.split("\n")) {
+      int pos = line.indexOf('=');
+      if (pos > 0) {
+        String value = line.substring(pos + 1).trim();
+        switch (line.substring(0, pos).trim()) {
+          case "name":
+            name = value;
+            break;
+          case "factory":
+            factory = value;
+            break;
+          case "provides":
+            split(value, provides);
+            break;
+          case "dependsOn":
+            split(value, dependsOn);
+            break;
+          case "beans":
+            split(value, beans);
+            break;
+          default:
+            // ignore unknown attributes
+        }
+      }
+    }
+    if (name == null || factory == null) {
+      return null;
+    }
+    return new ModuleDescriptor(name, factory, provides, dependsOn, beans);
+  }
+
+  private static void split(String value, Collection<String> target) {
+    for (String entry : value.split(",")) {
+      if (!entry.trim().isEmpty()) {
+        target.add(entry.trim());
+      }
+    }
+  }
+
+  /**
+   * Return the descriptor content.
+   */
+  String toContent() {
+    StringBuilder sb = new StringBuilder(100 + beans.size() * 40);
+    sb.append("name=").append(name).append('\n');
+    sb.append("factory=").append(factory).append('\n');
+    append(sb, "provides", provides);
+    append(sb, "dependsOn", dependsOn);
+    append(sb, "beans", beans);
+    return sb.toString();
+  }
+
+  private static void append(StringBuilder sb, String key, Iterable<String> values) {
+    sb.append(key).append('=');
+    boolean first = true;
+    for (String value : values) {
+      if (!first) {
+        sb.append(',');
+      }
+      sb.append(value);
+      first = false;
+    }
+    sb.append('\n');
+  }
+
+  String getName() {
+    return name;
+  }
+
+  String getFactory() {
+    return factory;
+  }
+
+  List<String> getProvides() {
+    return provides;
+  }
+
+  List<String> getDependsOn() {
+    return dependsOn;
+  }
+
+  /**
+   * Return the types of the beans the module registers (bean types and the interfaces they provide).
+   */
+  Set<String> getBeans() {
+    return beans;
+  }
+}
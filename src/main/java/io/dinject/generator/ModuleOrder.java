@@ -0,0 +1,196 @@
+package io.dinject.generator;
+
+import javax.lang.model.element.Element;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Orders the application module and the modules it depends on at compile time.
+ * <p>
+ * The descriptors of the modules are read from the classpath following the dependsOn of each module
+ * (by module name or by a feature the module provides). Each module follows the modules it depends
+ * on and otherwise the modules are in dependsOn order. The application module is last. Refer to
+ * {@link #write(String, Element...)} for the generated <code>_di$Modules</code>.
+ * </p>
+ */
+class ModuleOrder {
+
+  private final ProcessingContext context;
+
+  private final List<ModuleDescriptor> ordered = new ArrayList<>();
+
+  /**
+   * The descriptors read keyed by the dependsOn name (null when not found).
+   */
+  private final Map<String, ModuleDescriptor> resolved = new HashMap<>();
+
+  private final Set<String> visiting = new HashSet<>();
+
+  private final Set<String> added = new HashSet<>();
+
+  /**
+   * The dependsOn names for which no descriptor was found on the classpath.
+   */
+  private final Set<String> missing = new LinkedHashSet<>();
+
+  private final List<String> warnings = new ArrayList<>();
+
+  ModuleOrder(ProcessingContext context, ModuleDescriptor module) {
+    this.context = context;
+    add(module);
+  }
+
+  private void add(ModuleDescriptor module) {
+    if (added.contains(module.getName())) {
+      return;
+    }
+    if (!visiting.add(module.getName())) {
+      warnings.add(String.format("Cyclic module dependency on %s", module.getName()));
+      return;
+    }
+    for (String dependsOn : module.getDependsOn()) {
+      ModuleDescriptor dependency = lookup(dependsOn);
+      if (dependency == null) {
+        missing.add(dependsOn);
+        warnings.add(String.format("No module descriptor found on the classpath for %s (dependency of %s)", dependsOn, module.getName()));
+      } else {
+        add(dependency);
+      }
+    }
+    visiting.remove(module.getName());
+    added.add(module.getName());
+    ordered.add(module);
+  }
+
+  /**
+   * Return the descriptor of the module with the given name or providing the given feature.
+   */
+  private ModuleDescriptor lookup(String dependsOn) {
+    if (resolved.containsKey(dependsOn)) {
+      return resolved.get(dependsOn);
+    }
+    ModuleDescriptor descriptor = read(dependsOn);
+    if (descriptor == null) {
+      String module = context.readClassPathResource(ModuleDescriptor.providesName(dependsOn));
+      if (module != null) {
+        descriptor = read(module.trim());
+      }
+    }
+    resolved.put(dependsOn, descriptor);
+    return descriptor;
+  }
+
+  private ModuleDescriptor read(String name) {
+    String content = context.readClassPathResource(ModuleDescriptor.resourceName(name));
+    return content == null ? null : ModuleDescriptor.parse(content);
+  }
+
+  /**
+   * Log the descriptors that were not found and the cyclic module dependencies.
+   */
+  void logWarnings() {
+    for (String warning : warnings) {
+      context.logWarn("%s", warning);
+    }
+  }
+
+  /**
+   * Return the dependsOn names (of the module or the modules it depends on) without a descriptor on the classpath.
+   */
+  Set<String> getMissing() {
+    return missing;
+  }
+
+  /**
+   * Return the modules the application module depends on (directly or indirectly) keyed by each bean type they register.
+   */
+  Map<String, ModuleDescriptor> providers() {
+    Map<String, ModuleDescriptor> providers = new HashMap<>();
+    for (int i = 0; i < ordered.size() - 1; i++) {
+      ModuleDescriptor module = ordered.get(i);
+      for (String type : module.getBeans()) {
+        providers.putIfAbsent(type, module);
+      }
+    }
+    return providers;
+  }
+
+  /**
+   * Write <code>_di$Modules</code> into the given package with the module names and factories in load order.
+   */
+  void write(String factoryPackage, Element... originatingElements) throws IOException {
+
+    Append writer = new Append();
+    writeStartClass(context, writer, factoryPackage, Constants.MODULES_SHORT_NAME);
+
+    writer.append("  /**").eol();
+    writer.append("   * Return the names of the modules in load order.").eol();
+    writer.append("   */").eol();
+    writer.append("  public static String[] names() {").eol();
+    writer.append("    return new String[]{");
+    for (int i = 0; i < ordered.size(); i++) {
+      writer.append(i == 0 ? "\"" : ", \"").append(ordered.get(i).getName()).append('"');
+    }
+    writer.append("};").eol();
+    writer.append("  }").eol().eol();
+
+    writeFactories(writer, ordered);
+    writeSource(context, writer, factoryPackage + "." + Constants.MODULES_SHORT_NAME, originatingElements);
+  }
+
+  /**
+   * Write the registry (<code>_di$Registry</code>) into the given package creating the factories of the modules directly.
+   */
+  void writeRegistry(String factoryPackage, Element... originatingElements) throws IOException {
+
+    Append writer = new Append();
+    writeStartClass(context, writer, factoryPackage, Constants.REGISTRY_SHORT_NAME);
+    writeFactories(writer, ordered);
+    writeSource(context, writer, factoryPackage + "." + Constants.REGISTRY_SHORT_NAME, originatingElements);
+  }
+
+  private static void writeStartClass(ProcessingContext context, Append writer, String packageName, String shortName) {
+
+    writer.append("package ").append(packageName).append(";").eol().eol();
+    if (context.isGeneratedAvailable()) {
+      writer.append(Constants.IMPORT_GENERATED).eol();
+    }
+    writer.append(Constants.IMPORT_BEANCONTEXTFACTORY).eol().eol();
+    if (context.isGeneratedAvailable()) {
+      writer.append(Constants.AT_GENERATED).eol();
+    }
+    writer.append("public final class ").append(shortName).append(" {").eol().eol();
+    writer.append("  private ").append(shortName).append("() {").eol();
+    writer.append("  }").eol().eol();
+  }
+
+  private static void writeFactories(Append writer, List<ModuleDescriptor> modules) {
+
+    writer.append("  /**").eol();
+    writer.append("   * Return the factories of the modules in load order (each follows the modules it depends on).").eol();
+    writer.append("   */").eol();
+    writer.append("  public static BeanContextFactory[] factories() {").eol();
+    writer.append("    return new BeanContextFactory[]{");
+    for (int i = 0; i < modules.size(); i++) {
+      writer.append(i == 0 ? "" : ", ").append("new ").append(modules.get(i).getFactory()).append("()");
+    }
+    writer.append("};").eol();
+    writer.append("  }").eol();
+    writer.append("}").eol();
+  }
+
+  private static void writeSource(ProcessingContext context, Append writer, String className, Element... originatingElements) throws IOException {
+    JavaFileObject jfo = context.createWriter(className, originatingElements);
+    try (Writer fileWriter = jfo.openWriter()) {
+      fileWriter.write(writer.toString());
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package io.dinject.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the factory <code>createContext</code> to create the beans of each dependency level concurrently.
+ * <p>
+ * The beans of a level do not depend on each other. Each is created via its $di <code>create</code>
+ * method on the executor. All the beans of the level are awaited before any bean of the level is
+ * registered or built sequentially, such that the builder is only read while the beans are created
+ * concurrently. The beans are then registered in build order on the calling thread. Factory method
+ * beans, lazy beans and levels with a single bean are built sequentially.
+ * </p>
+ * <p>
+ * With factory chunks each level is split into parts of at most the chunk size (awaited in turn) and
+ * the level methods are written into inner <code>Levels</code> classes of at most the chunk size beans
+ * such that neither createContext nor the factory class grows with the number of levels.
+ * </p>
+ */
+class ParallelBuild {
+
+  private final List<List<MetaData>> levels;
+
+  /**
+   * The index of the first level of each Levels class (when chunked).
+   */
+  private final List<Integer> groups = new ArrayList<>();
+
+  private final List<MetaData> unsatisfied;
+
+  private final int threads;
+
+  private final ParallelLifecycle lifecycle;
+
+  private final FactoryInjection injection;
+
+  private final StartupTiming timing;
+
+  private final FactoryChunks chunks;
+
+  ParallelBuild(MetaDataOrdering ordering, int threads, ParallelLifecycle lifecycle, FactoryInjection injection, StartupTiming timing, FactoryChunks chunks) {
+    this.levels = (chunks == null) ? ordering.getLevels() : split(ordering.getLevels(), chunks.getChunkSize());
+    this.unsatisfied = ordering.getUnsatisfied();
+    this.threads = threads;
+    this.lifecycle = lifecycle;
+    this.injection = injection;
+    this.timing = timing;
+    this.chunks = chunks;
+  }
+
+  /**
+   * Split the levels into parts of at most the chunk size grouping consecutive parts into Levels classes.
+   */
+  private List<List<MetaData>> split(List<List<MetaData>> levels, int size) {
+    List<List<MetaData>> parts = new ArrayList<>();
+    int groupSize = 0;
+    for (List<MetaData> level : levels) {
+      for (int start = 0; start < level.size(); start += size) {
+        List<MetaData> part = level.subList(start, Math.min(start + size, level.size()));
+        if (groups.isEmpty() || groupSize + part.size() > size) {
+          groups.add(parts.size());
+          groupSize = 0;
+        }
+        groupSize += part.size();
+        parts.add(part);
+      }
+    }
+    return parts;
+  }
+
+  private List<List<MetaData>> group(int index) {
+    int end = (index + 1 < groups.size()) ? groups.get(index + 1) : levels.size();
+    return levels.subList(groups.get(index), end);
+  }
+
+  /**
+   * Return true if a level has more than one bean to create concurrently.
+   */
+  private boolean isConcurrent(List<MetaData> level) {
+    int count = 0;
+    for (MetaData metaData : level) {
+      if (metaData.isConstructed() && ++count > 1) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean hasConcurrentLevel() {
+    return hasConcurrentLevel(levels);
+  }
+
+  private boolean hasConcurrentLevel(List<List<MetaData>> levels) {
+    for (List<MetaData> level : levels) {
+      if (isConcurrent(level)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  void writeImports(Append writer) {
+    writer.append("import java.util.concurrent.Callable;").eol();
+    writer.append("import java.util.concurrent.ExecutionException;").eol();
+    writer.append("import java.util.concurrent.ExecutorService;").eol();
+    writer.append("import java.util.concurrent.Executors;").eol();
+    writer.append("import java.util.concurrent.Future;").eol().eol();
+  }
+
+  void writeCreateMethod(Append writer) {
+
+    boolean concurrent = hasConcurrentLevel();
+    writer.append("  @Override").eol();
+    writer.append("  public BeanContext createContext(Builder parent) {").eol();
+    writer.append("    builder.setParent(parent);").eol();
+    String indent = "    ";
+    if (concurrent) {
+      writer.append("    ExecutorService executor = Executors.newFixedThreadPool(");
+      if (threads > 0) {
+        writer.append(threads);
+      } else {
+        writer.append("Runtime.getRuntime().availableProcessors()");
+      }
+      writer.append(");").eol();
+      writer.append("    try {").eol();
+      indent = "      ";
+    }
+    if (chunks == null) {
+      writeLevelCalls(writer, indent, 0, levels);
+    } else {
+      for (int i = 0; i < groups.size(); i++) {
+        writer.append(indent).append("new Levels").append(i).append("().createBeans(").append(hasConcurrentLevel(group(i)) ? "executor);" : ");").eol();
+      }
+    }
+    if (concurrent) {
+      writer.append("    } finally {").eol();
+      writer.append("      executor.shutdown();").eol();
+      writer.append("    }").eol();
+    }
+    if (timing != null && !unsatisfied.isEmpty()) {
+      timing.writeStart(writer, "    ");
+    }
+    for (MetaData metaData : unsatisfied) {
+      writeBuildCall(writer, metaData);
+      if (timing != null) {
+        timing.writeBuilt(writer, "    ", metaData);
+      }
+    }
+    if (injection != null) {
+      injection.writeInjectCall(writer);
+    }
+    if (lifecycle != null) {
+      lifecycle.writeAddLifecycle(writer);
+    }
+    writer.append("    return builder.build();").eol();
+    writer.append("  }").eol();
+    writer.eol();
+  }
+
+  private void writeLevelCalls(Append writer, String indent, int first, List<List<MetaData>> levels) {
+    for (int i = 0; i < levels.size(); i++) {
+      writer.append(indent).append("level_").append(first + i).append(isConcurrent(levels.get(i)) ? "(executor);" : "();").eol();
+    }
+  }
+
+  void writeLevelMethods(Append writer) {
+    if (chunks == null) {
+      for (int i = 0; i < levels.size(); i++) {
+        writeLevel(writer, i, levels.get(i));
+      }
+    } else {
+      writeLevelClasses(writer);
+    }
+    if (hasConcurrentLevel()) {
+      writeHelpers(writer);
+    }
+  }
+
+  private void writeLevelClasses(Append writer) {
+
+    for (int i = 0; i < groups.size(); i++) {
+      int first = groups.get(i);
+      List<List<MetaData>> group = group(i);
+      writer.append("  final class Levels").append(i).append(" {").eol().eol();
+      writer.append("    void createBeans(").append(hasConcurrentLevel(group) ? "ExecutorService executor" : "").append(") {").eol();
+      writeLevelCalls(writer, "      ", first, group);
+      writer.append("    }").eol().eol();
+
+      Append methods = new Append();
+      for (int j = 0; j < group.size(); j++) {
+        writeLevel(methods, first + j, group.get(j));
+      }
+      // without the blank line after the last method
+      String content = methods.toString();
+      writer.appendIndented(content.substring(0, content.length() - 1), "  ");
+      writer.append("  }").eol().eol();
+    }
+  }
+
+  private void writeLevel(Append writer, int index, List<MetaData> level) {
+
+    boolean concurrent = isConcurrent(level);
+    writer.append("  private void level_").append(index).append(concurrent ? "(ExecutorService executor) {" : "() {").eol();
+    if (concurrent) {
+      int id = 0;
+      for (MetaData metaData : level) {
+        if (metaData.isConstructed()) {
+          String di = metaData.getShortType() + "$di";
+          writer.append("    Future<").append(metaData.getType()).append("> f").append(id++).append(" = submit(executor, ")
+            .append(di).append(".isAddBean(builder), () -> ").append(di).append(".create(builder));").eol();
+        }
+      }
+      // wait for the whole level before the builder is modified
+      id = 0;
+      for (MetaData metaData : level) {
+        if (metaData.isConstructed()) {
+          writer.append("    ").append(metaData.getType()).append(" b").append(id).append(" = await(f").append(id).append(");").eol();
+          id++;
+        }
+      }
+    }
+    if (timing != null) {
+      timing.writeStart(writer, "    ");
+    }
+    int id = 0;
+    for (MetaData metaData : level) {
+      if (concurrent && metaData.isConstructed()) {
+        String register = metaData.getShortType() + "$di.register(builder, b" + (id++) + ")";
+        boolean managed = lifecycle != null && lifecycle.isManaged(metaData);
+        if (injection != null && injection.isInjected(metaData)) {
+          injection.writeHold(writer, metaData, register);
+          if (managed) {
+            lifecycle.writeAdd(writer, metaData, injection.field(metaData));
+          }
+        } else if (managed) {
+          lifecycle.writeAdd(writer, metaData, register);
+        } else {
+          writer.append("    ").append(register).append(';').eol();
+        }
+      } else {
+        writeBuildCall(writer, metaData);
+      }
+      if (timing != null) {
+        timing.writeBuilt(writer, "    ", metaData);
+      }
+    }
+    writer.append("  }").eol().eol();
+  }
+
+  private void writeBuildCall(Append writer, MetaData metaData) {
+    if (chunks != null) {
+      chunks.writeBuildCall(writer, "    ", metaData);
+    } else {
+      writer.append("    build_").append(metaData.getShortType()).append("();").eol();
+    }
+  }
+
+  private void writeHelpers(Append writer) {
+
+    writer.append("  private static <T> Future<T> submit(ExecutorService executor, boolean add, Callable<T> create) {").eol();
+    writer.append("    return add ? executor.submit(create) : null;").eol();
+    writer.append("  }").eol().eol();
+
+    writer.append("  private static <T> T await(Future<T> future) {").eol();
+    writer.append("    if (future == null) {").eol();
+    writer.append("      return null;").eol();
+    writer.append("    }").eol();
+    writer.append("    try {").eol();
+    writer.append("      return future.get();").eol();
+    writer.append("    } catch (InterruptedException e) {").eol();
+    writer.append("      Thread.currentThread().interrupt();").eol();
+    writer.append("      throw new IllegalStateException(e);").eol();
+    writer.append("    } catch (ExecutionException e) {").eol();
+    writer.append("      if (e.getCause() instanceof RuntimeException) {").eol();
+    writer.append("        throw (RuntimeException) e.getCause();").eol();
+    writer.append("      }").eol();
+    writer.append("      throw new IllegalStateException(e.getCause());").eol();
+    writer.append("    }").eol();
+    writer.append("  }").eol().eol();
+  }
+}
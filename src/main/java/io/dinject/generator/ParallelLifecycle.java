@@ -0,0 +1,281 @@
+package io.dinject.generator;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the factory managed lifecycle that runs the lifecycle methods concurrently by dependency level.
+ * <p>
+ * Rather than each bean adding its lifecycle to the builder (run one after another) the factory adds
+ * the lifecycle of each bean to a generated <code>Lifecycle</code> with the dependency level of the
+ * bean. The <code>Lifecycle</code> is added to the builder and runs the PostConstruct methods of each
+ * level concurrently, level by level, and the PreDestroy methods in reverse level order. Each call is
+ * timed and logged at FINE.
+ * </p>
+ * <p>
+ * The lifecycle methods run on an executor created for each run and shut down after it (rather than
+ * the common ForkJoinPool) as they often block, for example opening connection pools. The executor has
+ * the <code>dinject.parallelBuild</code> number of threads (the number of processors at runtime by
+ * default) bounded by the largest level and its threads have the context ClassLoader of the caller.
+ * </p>
+ * <p>
+ * The level is written into the factory as <code>@DependencyMeta</code> is a runtime annotation
+ * without a level attribute. Factory method beans add their lifecycle to the builder as before so
+ * before each factory method bean is built the <code>Lifecycle</code> of the beans built so far is
+ * added to the builder and a new one started. This keeps the dependency order of the lifecycle as
+ * the beans a factory method bean depends on are built before it and the beans that depend on it after it.
+ * </p>
+ * <p>
+ * With startup timing (and without parallel lifecycle) the factory adds the lifecycle of each bean
+ * to the builder as it is built (the same order as the $di) wrapped such that it is timed.
+ * </p>
+ */
+class ParallelLifecycle {
+
+  private final Map<MetaData, Integer> levels = new IdentityHashMap<>();
+
+  private final boolean parallel;
+
+  private final int threads;
+
+  private final StartupTiming timing;
+
+  ParallelLifecycle(MetaDataOrdering ordering, ProcessingContext context, StartupTiming timing) {
+    this.parallel = context.isParallelLifecycle();
+    this.threads = context.getParallelBuildThreads();
+    this.timing = timing;
+    List<List<MetaData>> dependencyLevels = ordering.getLevels();
+    for (int i = 0; i < dependencyLevels.size(); i++) {
+      for (MetaData metaData : dependencyLevels.get(i)) {
+        add(context, metaData, i);
+      }
+    }
+    for (MetaData metaData : ordering.getUnsatisfied()) {
+      add(context, metaData, dependencyLevels.size());
+    }
+  }
+
+  private void add(ProcessingContext context, MetaData metaData, int level) {
+    // the $di of a bean with lifecycle has the lifecycle method (read from the $di as the meta data may be from the factory)
+    if (!metaData.hasMethod() && context.hasMethod(metaData.getType() + "$di", "lifecycle")) {
+      levels.put(metaData, level);
+    }
+  }
+
+  /**
+   * Return true if the lifecycle of the bean is managed by the factory.
+   */
+  boolean isManaged(MetaData metaData) {
+    return levels.containsKey(metaData);
+  }
+
+  /**
+   * Write the statement adding the lifecycle of the given bean expression.
+   */
+  void writeAdd(Append writer, MetaData metaData, String bean) {
+    String beanLifecycle = metaData.getShortType() + "$di.lifecycle(" + bean + ")";
+    if (timing != null) {
+      beanLifecycle = timing.timed(metaData, beanLifecycle);
+    }
+    if (parallel) {
+      writer.append("    lifecycle.add(").append(levels.get(metaData)).append(", \"").append(metaData.getType()).append("\", ")
+        .append(beanLifecycle).append(");").eol();
+    } else {
+      writer.append("    addLifecycle(").append(beanLifecycle).append(");").eol();
+    }
+  }
+
+  void writeImports(Append writer) {
+    if (!parallel) {
+      return;
+    }
+    writer.append("import io.dinject.core.BeanLifecycle;").eol();
+    writer.append("import java.util.ArrayList;").eol();
+    writer.append("import java.util.List;").eol();
+    writer.append("import java.util.concurrent.ExecutionException;").eol();
+    writer.append("import java.util.concurrent.ExecutorService;").eol();
+    writer.append("import java.util.concurrent.Executors;").eol();
+    writer.append("import java.util.concurrent.Future;").eol();
+    writer.append("import java.util.logging.Level;").eol();
+    writer.append("import java.util.logging.Logger;").eol().eol();
+  }
+
+  void writeField(Append writer) {
+    if (!parallel) {
+      return;
+    }
+    writer.append("  private Lifecycle lifecycle = new Lifecycle();").eol().eol();
+  }
+
+  /**
+   * Write adding the lifecycle to the builder before a factory method bean (that adds its own lifecycle) is built.
+   */
+  void writeFlush(Append writer) {
+    if (parallel) {
+      writer.append("    flushLifecycle();").eol();
+    }
+  }
+
+  /**
+   * Write adding the lifecycle to the builder (after all the beans are built).
+   */
+  void writeAddLifecycle(Append writer) {
+    writeFlush(writer);
+  }
+
+  void writeClasses(Append writer) {
+    if (!parallel) {
+      writer.append("  private void addLifecycle(io.dinject.core.BeanLifecycle lifecycle) {").eol();
+      writer.append("    if (lifecycle != null) {").eol();
+      writer.append("      builder.addLifecycle(lifecycle);").eol();
+      writer.append("    }").eol();
+      writer.append("  }").eol().eol();
+      return;
+    }
+
+    writer.append("  /**").eol();
+    writer.append("   * Add the lifecycle of the beans built since the last flush to the builder.").eol();
+    writer.append("   */").eol();
+    writer.append("  private void flushLifecycle() {").eol();
+    writer.append("    if (!lifecycle.isEmpty()) {").eol();
+    writer.append("      builder.addLifecycle(lifecycle);").eol();
+    writer.append("      lifecycle = new Lifecycle();").eol();
+    writer.append("    }").eol();
+    writer.append("  }").eol().eol();
+
+    writer.append("  /**").eol();
+    writer.append("   * Runs the lifecycle methods concurrently by dependency level (PreDestroy in reverse level order).").eol();
+    writer.append("   */").eol();
+    writer.append("  static final class Lifecycle implements BeanLifecycle {").eol().eol();
+    writer.append("    private static final int THREADS = ");
+    if (threads > 0) {
+      writer.append(threads);
+    } else {
+      writer.append("Runtime.getRuntime().availableProcessors()");
+    }
+    writer.append(";").eol().eol();
+    writer.append("    private final List<List<Entry>> levels = new ArrayList<>();").eol().eol();
+
+    writer.append("    void add(int level, String name, BeanLifecycle lifecycle) {").eol();
+    writer.append("      if (lifecycle == null) {").eol();
+    writer.append("        return;").eol();
+    writer.append("      }").eol();
+    writer.append("      while (levels.size() <= level) {").eol();
+    writer.append("        levels.add(new ArrayList<>());").eol();
+    writer.append("      }").eol();
+    writer.append("      levels.get(level).add(new Entry(name, lifecycle));").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    boolean isEmpty() {").eol();
+    writer.append("      return levels.isEmpty();").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    @Override").eol();
+    writer.append("    public void postConstruct() {").eol();
+    writer.append("      ExecutorService executor = executor();").eol();
+    writer.append("      try {").eol();
+    writer.append("        for (List<Entry> level : levels) {").eol();
+    writer.append("          run(executor, level, true);").eol();
+    writer.append("        }").eol();
+    writer.append("      } finally {").eol();
+    writer.append("        shutdown(executor);").eol();
+    writer.append("      }").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    @Override").eol();
+    writer.append("    public void preDestroy() {").eol();
+    writer.append("      ExecutorService executor = executor();").eol();
+    writer.append("      try {").eol();
+    writer.append("        for (int i = levels.size() - 1; i >= 0; i--) {").eol();
+    writer.append("          run(executor, levels.get(i), false);").eol();
+    writer.append("        }").eol();
+    writer.append("      } finally {").eol();
+    writer.append("        shutdown(executor);").eol();
+    writer.append("      }").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    /**").eol();
+    writer.append("     * Return an executor for this run (null when no level has more than one bean).").eol();
+    writer.append("     */").eol();
+    writer.append("    private ExecutorService executor() {").eol();
+    writer.append("      int size = 0;").eol();
+    writer.append("      for (List<Entry> level : levels) {").eol();
+    writer.append("        size = Math.max(size, level.size());").eol();
+    writer.append("      }").eol();
+    writer.append("      int threads = Math.min(size, THREADS);").eol();
+    writer.append("      if (threads < 2) {").eol();
+    writer.append("        return null;").eol();
+    writer.append("      }").eol();
+    writer.append("      ClassLoader loader = Thread.currentThread().getContextClassLoader();").eol();
+    writer.append("      return Executors.newFixedThreadPool(threads, runnable -> {").eol();
+    writer.append("        Thread thread = new Thread(runnable, \"dinject-lifecycle\");").eol();
+    writer.append("        thread.setDaemon(true);").eol();
+    writer.append("        thread.setContextClassLoader(loader);").eol();
+    writer.append("        return thread;").eol();
+    writer.append("      });").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    private static void shutdown(ExecutorService executor) {").eol();
+    writer.append("      if (executor != null) {").eol();
+    writer.append("        executor.shutdown();").eol();
+    writer.append("      }").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    private static void run(ExecutorService executor, List<Entry> level, boolean postConstruct) {").eol();
+    writer.append("      if (executor == null || level.size() < 2) {").eol();
+    writer.append("        for (Entry entry : level) {").eol();
+    writer.append("          entry.run(postConstruct);").eol();
+    writer.append("        }").eol();
+    writer.append("        return;").eol();
+    writer.append("      }").eol();
+    writer.append("      List<Future<?>> futures = new ArrayList<>(level.size());").eol();
+    writer.append("      for (Entry entry : level) {").eol();
+    writer.append("        futures.add(executor.submit(() -> entry.run(postConstruct)));").eol();
+    writer.append("      }").eol();
+    writer.append("      RuntimeException failure = null;").eol();
+    writer.append("      for (Future<?> future : futures) {").eol();
+    writer.append("        try {").eol();
+    writer.append("          future.get();").eol();
+    writer.append("        } catch (InterruptedException e) {").eol();
+    writer.append("          Thread.currentThread().interrupt();").eol();
+    writer.append("          throw new IllegalStateException(e);").eol();
+    writer.append("        } catch (ExecutionException e) {").eol();
+    writer.append("          if (failure == null) {").eol();
+    writer.append("            failure = (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());").eol();
+    writer.append("          }").eol();
+    writer.append("        }").eol();
+    writer.append("      }").eol();
+    writer.append("      if (failure != null) {").eol();
+    writer.append("        throw failure;").eol();
+    writer.append("      }").eol();
+    writer.append("    }").eol();
+    writer.append("  }").eol().eol();
+
+    writer.append("  static final class Entry {").eol().eol();
+    writer.append("    private static final Logger log = Logger.getLogger(\"io.dinject.lifecycle\");").eol().eol();
+    writer.append("    final String name;").eol();
+    writer.append("    final BeanLifecycle lifecycle;").eol();
+    writer.append("    long postConstructNanos;").eol();
+    writer.append("    long preDestroyNanos;").eol().eol();
+    writer.append("    Entry(String name, BeanLifecycle lifecycle) {").eol();
+    writer.append("      this.name = name;").eol();
+    writer.append("      this.lifecycle = lifecycle;").eol();
+    writer.append("    }").eol().eol();
+    writer.append("    void run(boolean postConstruct) {").eol();
+    writer.append("      long start = System.nanoTime();").eol();
+    writer.append("      if (postConstruct) {").eol();
+    writer.append("        lifecycle.postConstruct();").eol();
+    writer.append("        postConstructNanos = System.nanoTime() - start;").eol();
+    writer.append("      } else {").eol();
+    writer.append("        lifecycle.preDestroy();").eol();
+    writer.append("        preDestroyNanos = System.nanoTime() - start;").eol();
+    writer.append("      }").eol();
+    writer.append("      if (log.isLoggable(Level.FINE)) {").eol();
+    writer.append("        long nanos = postConstruct ? postConstructNanos : preDestroyNanos;").eol();
+    writer.append("        log.fine((postConstruct ? \"postConstruct \" : \"preDestroy \") + name + \" took \" + (nanos / 1000) + \"us\");").eol();
+    writer.append("      }").eol();
+    writer.append("    }").eol();
+    writer.append("  }").eol().eol();
+  }
+}
@@ -4,8 +4,16 @@ import javax.annotation.processing.Filer;
 import javax.annotation.processing.FilerException;
 import javax.annotation.processing.Messager;
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.inject.Named;
+import javax.inject.Qualifier;
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
@@ -13,11 +21,22 @@ import javax.tools.Diagnostic;
 import javax.tools.FileObject;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardLocation;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.LineNumberReader;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static io.dinject.generator.Constants.GENERATED;
 import static io.dinject.generator.Constants.POSTCONSTRUCT;
@@ -33,6 +52,53 @@ class ProcessingContext {
   private final Elements elementUtils;
   private final Types typeUtils;
   private final boolean generatedAvailable;
+  private final int parallelism;
+  private final boolean directWiring;
+  private final int parallelBuild;
+  private final boolean parallelLifecycle;
+  private final boolean factoryInject;
+  private final boolean startupTiming;
+  private final boolean metrics;
+  private final int factoryChunkSize;
+  private final boolean moduleOrder;
+  private final boolean registry;
+  private final boolean graph;
+  private final int maxDepth;
+  private final int maxFanIn;
+  private final boolean registrationTable;
+  private final Set<String> lazyAnnotations;
+
+  /**
+   * The annotations named Lazy that are not lazy annotations (noted once each).
+   */
+  private final Set<String> otherLazyAnnotations = new HashSet<>();
+
+  /*
+   * Caches for the processing session. These are only used on the compiler thread (reading the beans
+   * and writing the factory) and not when rendering the $di classes in parallel.
+   */
+
+  /**
+   * The short name of the qualifier keyed by annotation type (empty for an annotation that is not a qualifier).
+   */
+  private final Map<String, String> qualifierNames = new HashMap<>();
+
+  private final Map<String, Boolean> availableTypes = new HashMap<>();
+
+  /**
+   * The interfaces keyed by type.
+   */
+  private final Map<String, List<String>> interfaces = new HashMap<>();
+
+  /**
+   * The interned type descriptors keyed by type.
+   */
+  private final Map<String, TypeDescriptor> typeDescriptors = new HashMap<>();
+
+  /**
+   * Lazy beans keyed by type.
+   */
+  private final Map<String, Boolean> lazyTypes = new HashMap<>();
 
   private String contextName;
 
@@ -51,10 +117,84 @@ class ProcessingContext {
     this.elementUtils = processingEnv.getElementUtils();
     this.typeUtils = processingEnv.getTypeUtils();
     this.generatedAvailable = isTypeAvailable(GENERATED);
+    this.parallelism = intOption(Constants.OPTION_PARALLEL, 1);
+    this.directWiring = booleanOption(Constants.OPTION_DIRECT_WIRING);
+    this.parallelLifecycle = booleanOption(Constants.OPTION_PARALLEL_LIFECYCLE);
+    this.factoryInject = booleanOption(Constants.OPTION_FACTORY_INJECT);
+    this.startupTiming = booleanOption(Constants.OPTION_STARTUP_TIMING);
+    this.metrics = booleanOption(Constants.OPTION_METRICS);
+    this.parallelBuild = processingEnv.getOptions().containsKey(Constants.OPTION_PARALLEL_BUILD) ? intOption(Constants.OPTION_PARALLEL_BUILD, -1) : 0;
+    this.moduleOrder = booleanOption(Constants.OPTION_MODULE_ORDER);
+    this.registry = booleanOption(Constants.OPTION_REGISTRY);
+    this.graph = booleanOption(Constants.OPTION_GRAPH);
+    this.registrationTable = booleanOption(Constants.OPTION_REGISTRATION_TABLE);
+    this.lazyAnnotations = namesOption(Constants.OPTION_LAZY);
+    this.factoryChunkSize = processingEnv.getOptions().containsKey(Constants.OPTION_FACTORY_CHUNK_SIZE) ? intOption(Constants.OPTION_FACTORY_CHUNK_SIZE, Constants.DEFAULT_CHUNK_SIZE) : 0;
+    this.maxDepth = processingEnv.getOptions().containsKey(Constants.OPTION_MAX_DEPTH) ? intOption(Constants.OPTION_MAX_DEPTH, Constants.DEFAULT_MAX_DEPTH) : 0;
+    this.maxFanIn = processingEnv.getOptions().containsKey(Constants.OPTION_MAX_FAN_IN) ? intOption(Constants.OPTION_MAX_FAN_IN, Constants.DEFAULT_MAX_FAN_IN) : 0;
+  }
+
+  private boolean booleanOption(String key) {
+    if (!processingEnv.getOptions().containsKey(key)) {
+      return false;
+    }
+    // -Akey without a value enables the option
+    String value = processingEnv.getOptions().get(key);
+    return value == null || value.trim().isEmpty() || Boolean.parseBoolean(value.trim());
+  }
+
+  private int intOption(String key, int defaultValue) {
+    String value = processingEnv.getOptions().get(key);
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      logWarn("Invalid value [%s] for option %s, using %s", value, key, defaultValue);
+      return defaultValue;
+    }
+  }
+
+  private Set<String> namesOption(String key) {
+    String value = processingEnv.getOptions().get(key);
+    Set<String> names = new LinkedHashSet<>();
+    if (value == null) {
+      return names;
+    }
+    for (String name : value.split(",")) {
+      if (!name.trim().isEmpty()) {
+        names.add(name.trim());
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Return the supported processor options.
+   */
+  static Set<String> supportedOptions() {
+    Set<String> options = new LinkedHashSet<>();
+    options.add(Constants.OPTION_PARALLEL);
+    options.add(Constants.OPTION_DIRECT_WIRING);
+    options.add(Constants.OPTION_PARALLEL_BUILD);
+    options.add(Constants.OPTION_PARALLEL_LIFECYCLE);
+    options.add(Constants.OPTION_FACTORY_INJECT);
+    options.add(Constants.OPTION_STARTUP_TIMING);
+    options.add(Constants.OPTION_METRICS);
+    options.add(Constants.OPTION_FACTORY_CHUNK_SIZE);
+    options.add(Constants.OPTION_MODULE_ORDER);
+    options.add(Constants.OPTION_REGISTRY);
+    options.add(Constants.OPTION_GRAPH);
+    options.add(Constants.OPTION_MAX_DEPTH);
+    options.add(Constants.OPTION_MAX_FAN_IN);
+    options.add(Constants.OPTION_REGISTRATION_TABLE);
+    options.add(Constants.OPTION_LAZY);
+    return options;
   }
 
   private boolean isTypeAvailable(String canonicalName) {
-    return null != elementUtils.getTypeElement(canonicalName);
+    return availableTypes.computeIfAbsent(canonicalName, name -> null != elementUtils.getTypeElement(name));
   }
 
   boolean isPostConstructAvailable() {
@@ -65,6 +205,133 @@ class ProcessingContext {
     return generatedAvailable;
   }
 
+  /**
+   * Return the number of threads to use to render the $di classes.
+   */
+  int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Return true if the factory should wire uniquely provided dependencies directly.
+   */
+  boolean isDirectWiring() {
+    return directWiring;
+  }
+
+  /**
+   * Return true if the factory creates the beans of each dependency level concurrently.
+   */
+  boolean isParallelBuild() {
+    return parallelBuild != 0;
+  }
+
+  /**
+   * Return the number of threads used to create the beans (-1 for the number of processors at runtime).
+   */
+  int getParallelBuildThreads() {
+    return parallelBuild;
+  }
+
+  /**
+   * Return the number of beans per chunk class of the factory (0 for no chunks).
+   */
+  int getFactoryChunkSize() {
+    return factoryChunkSize;
+  }
+
+  /**
+   * Return true if the module order of the application is generated.
+   */
+  boolean isModuleOrder() {
+    return moduleOrder;
+  }
+
+  /**
+   * Return true if the registry of the application factories is generated.
+   */
+  boolean isRegistry() {
+    return registry;
+  }
+
+  /**
+   * Return the depth of the longest dependency chain above which a warning is logged (0 for no check).
+   */
+  int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Return the number of dependents of a bean above which a warning is logged (0 for no check).
+   */
+  int getMaxFanIn() {
+    return maxFanIn;
+  }
+
+  /**
+   * Return true if the beans register with constant type arrays.
+   */
+  boolean isRegistrationTable() {
+    return registrationTable;
+  }
+
+  /**
+   * Return true if the dependency graph is written.
+   */
+  boolean isGraph() {
+    return graph;
+  }
+
+  /**
+   * Return true if the factory manages the lifecycle running it concurrently by dependency level.
+   */
+  boolean isParallelLifecycle() {
+    return parallelLifecycle;
+  }
+
+  /**
+   * Return true if the factory adds the lifecycle of the beans (rather than each $di adding it to the builder).
+   */
+  boolean isFactoryLifecycle() {
+    return parallelLifecycle || startupTiming;
+  }
+
+  /**
+   * Return true if the factory times building the beans into a StartupReport.
+   */
+  boolean isStartupTiming() {
+    return startupTiming;
+  }
+
+  /**
+   * Return true if the processor phase timing and bean counts are reported.
+   */
+  boolean isMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Return true if the factory injects the fields of the beans (rather than injector lambdas).
+   */
+  boolean isFactoryInject() {
+    return factoryInject;
+  }
+
+  /**
+   * Return true if the given type has a method of the given name.
+   */
+  boolean hasMethod(String className, String methodName) {
+    TypeElement element = elementUtils.getTypeElement(className);
+    if (element != null) {
+      for (Element member : element.getEnclosedElements()) {
+        if (member.getKind() == ElementKind.METHOD && member.getSimpleName().contentEquals(methodName)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   /**
    * Log an error message.
    */
@@ -118,17 +385,98 @@ class ProcessingContext {
   }
 
   /**
-   * Create a file writer for the given class name.
+   * Open a resource previously written to CLASS_OUTPUT returning null if it does not exist.
+   */
+  InputStream openResource(String relativeName) throws IOException {
+    try {
+      FileObject fileObject = filer.getResource(StandardLocation.CLASS_OUTPUT, "", relativeName);
+      return fileObject == null ? null : fileObject.openInputStream();
+
+    } catch (FileNotFoundException | NoSuchFileException e) {
+      return null;
+
+    } catch (FilerException e) {
+      logDebug("FilerException reading " + relativeName);
+      return null;
+    }
+  }
+
+  /**
+   * Read the content of a resource on the classpath returning null if it does not exist.
+   */
+  String readClassPathResource(String relativeName) {
+    try {
+      FileObject fileObject = filer.getResource(StandardLocation.CLASS_PATH, "", relativeName);
+      return fileObject == null ? null : fileObject.getCharContent(true).toString();
+
+    } catch (IOException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Return true if the class resolves from the compile classpath (compiled by a previous compile).
+   * <p>
+   * A class in CLASS_OUTPUT is not enough as with plain javac (or any build that does not put the
+   * output directory on the classpath) a generated source that is not written again is not compiled
+   * and the class would then be missing.
+   * </p>
    */
-  JavaFileObject createWriter(String cls, Element origin) throws IOException {
-    return filer.createSourceFile(cls, origin);
+  boolean isResolvable(String className) {
+    return elementUtils.getTypeElement(className) != null;
+  }
+
+  /**
+   * Return the source previously generated for the given class (or null if there is none).
+   */
+  String readGeneratedSource(String className) {
+    try (InputStream is = open(StandardLocation.SOURCE_OUTPUT, className, ".java")) {
+      if (is == null) {
+        return null;
+      }
+      ByteArrayOutputStream content = new ByteArrayOutputStream(4096);
+      byte[] buffer = new byte[4096];
+      int len;
+      while ((len = is.read(buffer)) != -1) {
+        content.write(buffer, 0, len);
+      }
+      return new String(content.toByteArray(), StandardCharsets.UTF_8);
+
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private InputStream open(StandardLocation location, String className, String suffix) throws IOException {
+    try {
+      String relativeName = Util.shortName(className) + suffix;
+      FileObject fileObject = filer.getResource(location, Util.packageOf(className), relativeName);
+      return fileObject == null ? null : fileObject.openInputStream();
+
+    } catch (FileNotFoundException | NoSuchFileException | FilerException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Create a resource in CLASS_OUTPUT.
+   */
+  FileObject createResource(String relativeName, Element... originatingElements) throws IOException {
+    return filer.createResource(StandardLocation.CLASS_OUTPUT, "", relativeName, originatingElements);
   }
 
   /**
    * Create a file writer for the given class name.
    */
-  FileObject createMetaInfWriter() throws IOException {
-    return filer.createResource(StandardLocation.CLASS_OUTPUT, "", Constants.META_INF_FACTORY);
+  JavaFileObject createWriter(String cls, Element... originatingElements) throws IOException {
+    return filer.createSourceFile(cls, originatingElements);
+  }
+
+  /**
+   * Create a file writer for the META-INF services file.
+   */
+  FileObject createMetaInfWriter(Element... originatingElements) throws IOException {
+    return createResource(Constants.META_INF_FACTORY, originatingElements);
   }
 
   void setContextDetails(String name, String[] provides, String[] dependsOn, Element contextElement) {
@@ -142,6 +490,18 @@ class ProcessingContext {
     this.contextPackage = (pkg == null) ? null : pkg.getQualifiedName().toString();
   }
 
+  String getContextName() {
+    return contextName;
+  }
+
+  String[] getContextProvides() {
+    return contextProvides;
+  }
+
+  String[] getContextDependsOn() {
+    return contextDependsOn;
+  }
+
   void deriveContextName(String factoryPackage) {
     if (contextName == null) {
       contextName = factoryPackage;
@@ -156,8 +516,117 @@ class ProcessingContext {
     return typeUtils.asElement(returnType);
   }
 
+  /**
+   * Return the method as a member of the given (possibly parameterised) type.
+   */
+  ExecutableType asMemberOf(DeclaredType containing, ExecutableElement method) {
+    return (ExecutableType) typeUtils.asMemberOf(containing, method);
+  }
+
+  List<? extends Element> getAllMembers(TypeElement type) {
+    return elementUtils.getAllMembers(type);
+  }
+
+  /**
+   * Return true if the annotation type is a <code>@Lazy</code> annotation (refer to {@link Constants#OPTION_LAZY}).
+   */
+  boolean isLazyAnnotation(DeclaredType annotationType) {
+    TypeElement element = (TypeElement) annotationType.asElement();
+    String name = element.getQualifiedName().toString();
+    if (lazyAnnotations.contains(name)) {
+      return true;
+    }
+    if (element.getSimpleName().contentEquals("Lazy") && otherLazyAnnotations.add(name)) {
+      Set<String> names = new LinkedHashSet<>(lazyAnnotations);
+      names.add(name);
+      logDebug("%s is not a lazy annotation so the beans annotated with it are created eagerly (to create them on first use set -A%s=%s)",
+        name, Constants.OPTION_LAZY, String.join(",", names));
+    }
+    return false;
+  }
+
+  /**
+   * Return true if the element is annotated with <code>@Lazy</code>.
+   */
+  boolean isLazy(Element element) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      if (isLazyAnnotation(annotation.getAnnotationType())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Return true if the given type is a bean annotated with <code>@Lazy</code>.
+   */
+  boolean isLazy(String type) {
+    return lazyTypes.computeIfAbsent(Util.trimGenerics(type), rawType -> {
+      TypeElement element = elementUtils.getTypeElement(rawType);
+      return element != null && isLazy(element);
+    });
+  }
+
+  /**
+   * Return the name via <code>@Named</code> or a Qualifier annotation.
+   */
+  String getNamed(Element element) {
+    Named named = element.getAnnotation(Named.class);
+    if (named != null) {
+      return named.value();
+    }
+    for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+      String qualifier = getQualifierName(annotationMirror.getAnnotationType());
+      if (qualifier != null) {
+        return qualifier;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Return the short name of the annotation type if it is a Qualifier (otherwise null).
+   */
+  String getQualifierName(DeclaredType annotationType) {
+    String name = qualifierNames.computeIfAbsent(annotationType.toString(), type -> {
+      Qualifier qualifier = annotationType.asElement().getAnnotation(Qualifier.class);
+      return (qualifier == null) ? "" : Util.shortName(type);
+    });
+    return name.isEmpty() ? null : name;
+  }
+
+  /**
+   * Return the (interned) descriptor of the given type.
+   */
+  TypeDescriptor getTypeDescriptor(TypeMirror type) {
+    String key = type.toString();
+    TypeDescriptor descriptor = typeDescriptors.get(key);
+    if (descriptor == null) {
+      descriptor = TypeDescriptor.of(type);
+      typeDescriptors.put(key, descriptor);
+    }
+    return descriptor;
+  }
+
+  /**
+   * Return the interfaces directly implemented by the given type.
+   */
+  List<String> getInterfaces(TypeElement type) {
+    return interfaces.computeIfAbsent(type.getQualifiedName().toString(), name -> {
+      List<? extends TypeMirror> typeInterfaces = type.getInterfaces();
+      if (typeInterfaces.isEmpty()) {
+        return Collections.emptyList();
+      }
+      List<String> list = new ArrayList<>(typeInterfaces.size());
+      for (TypeMirror anInterface : typeInterfaces) {
+        list.add(anInterface.toString());
+      }
+      return list;
+    });
+  }
+
   void buildNewBuilder(Append writer) {
-    writer.append("    this.builder = BuilderFactory.newBuilder(\"%s\"", contextName);
+    writer.append("    this.builder = BuilderFactory.newBuilder(\"").append(contextName).append("\"");
     writer.append(", ");
     buildStringArray(writer, contextProvides, true);
     writer.append(", ");
@@ -169,7 +638,7 @@ class ProcessingContext {
     if (isGeneratedAvailable()) {
       writer.append(Constants.AT_GENERATED).eol();
     }
-    writer.append("@ContextModule(name=\"%s\"", contextName);
+    writer.append("@ContextModule(name=\"").append(contextName).append("\"");
     if (!isEmpty(contextProvides)) {
       writer.append(", provides=");
       buildStringArray(writer, contextProvides, false);
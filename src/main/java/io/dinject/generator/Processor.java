@@ -17,7 +17,9 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -26,6 +28,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Generates the factory (<code>_di$Factory</code>) for the module.
+ * <p>
+ * This is an aggregating processor (in Gradle terms) - the factory is derived from the meta data of
+ * all the beans in the module. The <code>$di</code> class for each bean is generated by {@link BeanProcessor}.
+ * </p>
+ */
 public class Processor extends AbstractProcessor {
 
   private ProcessingContext processingContext;
@@ -38,6 +47,17 @@ public class Processor extends AbstractProcessor {
 
   private Set<String> readBeans = new HashSet<>();
 
+  /**
+   * The source type elements keyed by type name (the originating elements of the factory).
+   */
+  private Map<String, TypeElement> sourceElements = new HashMap<>();
+
+  private Element contextElement;
+
+  private boolean moduleRead;
+
+  private ProcessorMetrics metrics;
+
   public Processor() {
   }
 
@@ -51,6 +71,12 @@ public class Processor extends AbstractProcessor {
     super.init(processingEnv);
     this.processingContext = new ProcessingContext(processingEnv);
     this.elementUtils = processingEnv.getElementUtils();
+    this.metrics = new ProcessorMetrics(processingContext.isMetrics(), "Processor");
+  }
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    return ProcessingContext.supportedOptions();
   }
 
   @Override
@@ -76,57 +102,237 @@ public class Processor extends AbstractProcessor {
     Set<? extends Element> factoryBeans = roundEnv.getElementsAnnotatedWith(Factory.class);
     Set<? extends Element> beans = roundEnv.getElementsAnnotatedWith(Singleton.class);
 
+    metrics.startRound();
+    long start = metrics.start();
     readModule(roundEnv);
+    metrics.phase("readModule", start);
+
+    start = metrics.start();
     readChangedBeans(factoryBeans, true);
     readChangedBeans(beans, false);
     readChangedBeans(controllers, false);
+    metrics.phase("readChangedBeans", start);
 
+    start = metrics.start();
     mergeMetaData();
+    metrics.phase("mergeMetaData", start);
 
-    writeBeanHelpers();
     if (roundEnv.processingOver()) {
       writeBeanFactory();
+      metrics.write(processingContext, Constants.META_INF_FACTORY_METRICS);
     }
 
     return false;
   }
 
 
-  private void writeBeanHelpers() {
-    for (BeanReader beanReader : beanReaders) {
-      try {
-        if (!beanReader.isWrittenToFile()) {
-          SimpleBeanWriter writer = new SimpleBeanWriter(beanReader, processingContext);
-          writer.write();
-          beanReader.setWrittenToFile();
-        }
-      } catch (FilerException e) {
-        processingContext.logWarn("FilerException to write $di class " + beanReader.getBeanType() + " " + e.getMessage());
-
-      } catch (IOException e) {
-        e.printStackTrace();
-        processingContext.logError(beanReader.getBeanType(), "Failed to write $di class");
-      }
-    }
-  }
-
   private void writeBeanFactory() {
 
+    long start = metrics.start();
     MetaDataOrdering ordering = new MetaDataOrdering(metaData.values(), processingContext);
+    metrics.phase("buildOrdering", start);
+
+    start = metrics.start();
     int remaining = ordering.processQueue();
+    metrics.phase("processQueue", start);
+
+    start = metrics.start();
     if (remaining > 0) {
+      List<List<MetaData>> cycles = ordering.findCycles();
+      for (List<MetaData> cycle : cycles) {
+        logCycle(cycle);
+      }
       processingContext.logWarn("there are " + remaining + " beans with unsatisfied dependencies (assuming external dependencies)");
-      ordering.warnOnDependencies();
+      ordering.warnOnDependencies(cycles);
     }
+    checkGenericDependencies(ordering);
+    DependencyGraph graph = null;
+    if (processingContext.getMaxDepth() > 0 || processingContext.getMaxFanIn() > 0) {
+      graph = new DependencyGraph(ordering);
+      graph.checkLimits(processingContext, processingContext.getMaxDepth(), processingContext.getMaxFanIn());
+    }
+    metrics.phase("checkGraph", start);
 
+    start = metrics.start();
+    Element[] originatingElements = originatingElements(ordering);
+    GeneratedIndex generatedIndex = GeneratedIndex.read(processingContext);
     try {
-      SimpleFactoryWriter factoryWriter = new SimpleFactoryWriter(ordering, processingContext);
-      factoryWriter.write();
+      SimpleFactoryWriter factoryWriter = new SimpleFactoryWriter(ordering, processingContext, generatedIndex, originatingElements);
+      if (factoryWriter.write()) {
+        metrics.written(1);
+      }
+      generatedIndex.write(processingContext, originatingElements);
     } catch (FilerException e) {
       processingContext.logWarn("FilerException trying to write factory " + e.getMessage());
     } catch (IOException e) {
       processingContext.logError("Failed to write factory " + e.getMessage());
     }
+    verifyExternalDependencies(ordering);
+
+    try {
+      MetaDataIndex.write(processingContext, ordering.getOrdered(), originatingElements);
+    } catch (FilerException e) {
+      processingContext.logWarn("FilerException trying to write meta data index " + e.getMessage());
+    } catch (IOException e) {
+      processingContext.logError("Failed to write meta data index " + e.getMessage());
+    }
+
+    if (processingContext.isGraph()) {
+      try {
+        (graph != null ? graph : new DependencyGraph(ordering)).write(processingContext, originatingElements);
+      } catch (FilerException e) {
+        processingContext.logWarn("FilerException trying to write dependency graph " + e.getMessage());
+      } catch (IOException e) {
+        processingContext.logError("Failed to write dependency graph " + e.getMessage());
+      }
+    }
+    metrics.phase("writeBeanFactory", start);
+  }
+
+  /**
+   * Log the dependency cycle as an error on the source type of each bean in the cycle.
+   */
+  private void logCycle(List<MetaData> cycle) {
+    StringBuilder path = new StringBuilder(cycle.size() * 40);
+    for (MetaData meta : cycle) {
+      path.append(meta.getType()).append(" -> ");
+    }
+    path.append(cycle.get(0).getType());
+
+    Set<Element> elements = new LinkedHashSet<>();
+    for (MetaData meta : cycle) {
+      TypeElement element = sourceElement(meta);
+      if (element != null) {
+        elements.add(element);
+      }
+    }
+    if (elements.isEmpty()) {
+      processingContext.logError("Dependency cycle %s", path);
+    }
+    for (Element element : elements) {
+      processingContext.logError(element, "Dependency cycle %s", path);
+    }
+  }
+
+  /**
+   * Verify that the dependencies no bean of this module provides are registered by the modules it
+   * depends on (directly or indirectly) as read from their module descriptors on the classpath.
+   * <p>
+   * A missing List, Set or Optional dependency is fine. The kind of the dependencies of factory
+   * methods and lazy beans is not known so these only warn.
+   * </p>
+   */
+  private void verifyExternalDependencies(MetaDataOrdering ordering) {
+    String[] dependsOn = processingContext.getContextDependsOn();
+    if (dependsOn == null || dependsOn.length == 0 || ordering.getUnsatisfied().isEmpty()) {
+      return;
+    }
+    ModuleDescriptor module = new ModuleDescriptor(processingContext.getContextName(), null, Collections.emptyList(), Arrays.asList(dependsOn), Collections.emptySet());
+    ModuleOrder modules = new ModuleOrder(processingContext, module);
+    if (!modules.getMissing().isEmpty()) {
+      processingContext.logWarn("Not verifying external dependencies - no module descriptor found on the classpath for %s", modules.getMissing());
+      return;
+    }
+    Map<String, ModuleDescriptor> providers = modules.providers();
+    for (MetaData meta : ordering.getUnsatisfied()) {
+      List<String> external = ordering.getExternalDependencies(meta);
+      List<String> beanDependsOn = meta.getDependsOn();
+      List<MethodReader.MethodParam> params = meta.getParams();
+      boolean kindKnown = params != null && params.size() == beanDependsOn.size();
+      for (int i = 0; i < beanDependsOn.size(); i++) {
+        String dependency = beanDependsOn.get(i);
+        if (!external.contains(dependency) || providers.containsKey(dependency)) {
+          continue;
+        }
+        if (!kindKnown) {
+          processingContext.logWarn("%s depends on %s which is not provided by this module or the modules it depends on %s", meta.getType(), dependency, Arrays.toString(dependsOn));
+        } else if (isRequired(params.get(i).getKind())) {
+          logError(sourceElement(meta), "%s depends on %s which is not provided by this module or the modules it depends on %s", meta.getType(), dependency, Arrays.toString(dependsOn));
+        }
+      }
+    }
+  }
+
+  /**
+   * Error when a generic dependency without a qualifier has a raw type that beans provide with
+   * different type arguments.
+   * <p>
+   * The builder looks up a generic dependency by its raw type and beans are registered by the raw
+   * type of their interfaces so the bean injected would be whichever was registered first. The
+   * qualifiers of the dependencies of factory methods and lazy beans are not known so these only warn.
+   * </p>
+   */
+  private void checkGenericDependencies(MetaDataOrdering ordering) {
+    Map<String, Set<String>> genericTypes = new HashMap<>();
+    for (MetaData meta : ordering.getOrdered()) {
+      addGenericType(genericTypes, meta.getType());
+      for (String provides : meta.getProvides()) {
+        addGenericType(genericTypes, provides);
+      }
+    }
+    genericTypes.values().removeIf(types -> types.size() < 2);
+    if (genericTypes.isEmpty()) {
+      return;
+    }
+    for (MetaData meta : ordering.getOrdered()) {
+      List<String> beanDependsOn = meta.getDependsOn();
+      List<MethodReader.MethodParam> params = meta.getParams();
+      boolean qualifierKnown = params != null && params.size() == beanDependsOn.size();
+      for (int i = 0; i < beanDependsOn.size(); i++) {
+        String dependency = beanDependsOn.get(i);
+        Set<String> types = genericTypes.get(Util.trimGenerics(dependency));
+        if (types == null || dependency.indexOf('<') == -1) {
+          continue;
+        }
+        if (!qualifierKnown) {
+          processingContext.logWarn("%s depends on %s which is looked up by its raw type provided as %s - the dependency requires a qualifier", meta.getType(), dependency, types);
+        } else if (params.get(i).getNamed() == null) {
+          logError(sourceElement(meta), "%s depends on %s which is looked up by its raw type provided as %s - add a qualifier (@Named) to the dependency", meta.getType(), dependency, types);
+        }
+      }
+    }
+  }
+
+  private static void addGenericType(Map<String, Set<String>> genericTypes, String type) {
+    if (type.indexOf('<') > -1) {
+      genericTypes.computeIfAbsent(Util.trimGenerics(type), k -> new LinkedHashSet<>()).add(type);
+    }
+  }
+
+  private static boolean isRequired(TypeDescriptor.Kind kind) {
+    return kind == TypeDescriptor.Kind.PLAIN || kind == TypeDescriptor.Kind.PROVIDER;
+  }
+
+  private void logError(Element element, String msg, Object... args) {
+    if (element == null) {
+      processingContext.logError(msg, args);
+    } else {
+      processingContext.logError(element, msg, args);
+    }
+  }
+
+  /**
+   * Return the source type element of the bean (null when not found).
+   */
+  private TypeElement sourceElement(MetaData meta) {
+    return sourceElements.computeIfAbsent(meta.getSource(), elementUtils::getTypeElement);
+  }
+
+  /**
+   * Return the originating elements of the factory - the source types of all the beans and the ContextModule.
+   */
+  private Element[] originatingElements(MetaDataOrdering ordering) {
+    Set<Element> elements = new LinkedHashSet<>();
+    if (contextElement != null) {
+      elements.add(contextElement);
+    }
+    for (MetaData meta : ordering.getOrdered()) {
+      TypeElement element = sourceElement(meta);
+      if (element != null) {
+        elements.add(element);
+      }
+    }
+    return elements.toArray(new Element[0]);
   }
 
   /**
@@ -141,44 +347,39 @@ public class Processor extends AbstractProcessor {
           readBeanMeta((TypeElement) element, factory);
         } else {
           processingContext.logDebug("skipping already processed bean " + element);
+          metrics.skipped(1);
         }
       }
     }
   }
 
   /**
-   * Merge the changed bean meta data into the existing (factory) metaData.
+   * Merge the changed bean meta data into the existing (index or factory) metaData.
+   * <p>
+   * Existing entries keep their position, entries that the re-read beans no longer produce
+   * (like a removed <code>@Bean</code> method) are removed.
+   * </p>
    */
   private void mergeMetaData() {
 
+    Set<String> readSources = new HashSet<>();
+    Set<String> readTypes = new HashSet<>();
     for (BeanReader beanReader : beanReaders) {
-      String simpleName = beanReader.getSimpleName();
-      MetaData metaData = this.metaData.get(simpleName);
-      if (metaData == null) {
-        addMeta(beanReader);
-
-      } else {
-        updateMeta(metaData, beanReader);
+      readSources.add(beanReader.getBeanType().getQualifiedName().toString());
+      addMeta(beanReader.createMeta(), readTypes);
+      for (MetaData methodMeta : beanReader.createFactoryMethodMeta()) {
+        addMeta(methodMeta, readTypes);
       }
     }
+    metaData.values().removeIf(meta -> readSources.contains(meta.getSource()) && !readTypes.contains(meta.getType()));
   }
 
   /**
-   * Add a new previously unknown bean.
+   * Add or replace the meta data for a bean.
    */
-  private void addMeta(BeanReader beanReader) {
-    MetaData meta = beanReader.createMeta();
+  private void addMeta(MetaData meta, Set<String> readTypes) {
     metaData.put(meta.getType(), meta);
-    for (MetaData methodMeta : beanReader.createFactoryMethodMeta()) {
-      metaData.put(methodMeta.getType(), methodMeta);
-    }
-  }
-
-  /**
-   * Update the meta data on a previously known bean.
-   */
-  private void updateMeta(MetaData metaData, BeanReader beanReader) {
-    metaData.update(beanReader);
+    readTypes.add(meta.getType());
   }
 
   /**
@@ -188,23 +389,33 @@ public class Processor extends AbstractProcessor {
 
     if (typeElement.getKind() == ElementKind.ANNOTATION_TYPE) {
       processingContext.logWarn("skipping annotation type " + typeElement);
+      metrics.skipped(1);
       return;
     }
     BeanReader beanReader = new BeanReader(typeElement, processingContext);
-    beanReader.read(factory);
+    beanReader.readMeta(factory);
     beanReaders.add(beanReader);
+    metrics.read(1);
+    sourceElements.put(typeElement.getQualifiedName().toString(), typeElement);
   }
 
   /**
-   * Read the existing meta data from ContextModule (if found) and the factory bean (if exists).
+   * Read the existing meta data from ContextModule (if found), the meta data index and the factory bean (if exists).
    */
   private void readModule(RoundEnvironment roundEnv) {
 
-    String factory = processingContext.loadMetaInfServices();
-    if (factory != null) {
-      TypeElement factoryType = elementUtils.getTypeElement(factory);
-      if (factoryType != null) {
-        readFactory(factoryType);
+    if (!moduleRead) {
+      moduleRead = true;
+      boolean indexRead = readIndex();
+      String factory = processingContext.loadMetaInfServices();
+      if (factory != null) {
+        TypeElement factoryType = elementUtils.getTypeElement(factory);
+        if (factoryType != null) {
+          readFactory(factoryType, !indexRead);
+        }
+      }
+      if (!indexRead && processingContext.isRegistrationTable()) {
+        readUnknownRegistrations();
       }
     }
 
@@ -215,27 +426,77 @@ public class Processor extends AbstractProcessor {
         Element element = iterator.next();
         ContextModule annotation = element.getAnnotation(ContextModule.class);
         if (annotation != null) {
+          contextElement = element;
           processingContext.setContextDetails(annotation.name(), annotation.provides(), annotation.dependsOn(), element);
         }
       }
     }
   }
 
+  /**
+   * Read the beans of the meta data read from the factory (without the index) as the registration
+   * table needs their names, priorities and annotations.
+   */
+  private void readUnknownRegistrations() {
+    for (MetaData meta : new ArrayList<>(metaData.values())) {
+      if (meta.getRegistrations() == null && readBeans.add(meta.getSource())) {
+        TypeElement element = sourceElement(meta);
+        if (element != null) {
+          readBeanMeta(element, element.getAnnotation(Factory.class) != null);
+        }
+      }
+    }
+  }
+
+  /**
+   * Read the meta data index from the prior compile. Entries for types that no longer exist are dropped.
+   *
+   * @return true if the index was read
+   */
+  private boolean readIndex() {
+    List<MetaData> index = MetaDataIndex.read(processingContext);
+    if (index == null) {
+      return false;
+    }
+    for (MetaData meta : index) {
+      TypeElement element = elementUtils.getTypeElement(meta.getSource());
+      if (element != null) {
+        sourceElements.put(meta.getSource(), element);
+        metaData.put(meta.getType(), meta);
+      }
+    }
+    return true;
+  }
 
   /**
    * Read the existing factory bean. Each of the build methods is annotated with <code>@DependencyMeta</code>
-   * which holds the information we need (to regenerate the factory with any changes).
+   * which holds the information we need (to regenerate the factory with any changes) when there is
+   * no meta data index.
    */
-  private void readFactory(TypeElement factoryType) {
+  private void readFactory(TypeElement factoryType, boolean readBuildMethods) {
 
     ContextModule module = factoryType.getAnnotation(ContextModule.class);
     processingContext.setContextDetails(module.name(), module.provides(), module.dependsOn(), factoryType);
+    if (!readBuildMethods) {
+      return;
+    }
+
+    readBuildMethods(factoryType);
+  }
 
-    List<? extends Element> elements = factoryType.getEnclosedElements();
+  /**
+   * Read the build methods of the factory or one of its chunk classes.
+   */
+  private void readBuildMethods(TypeElement type) {
+
+    List<? extends Element> elements = type.getEnclosedElements();
     if (elements != null) {
       for (Element element : elements) {
         ElementKind kind = element.getKind();
-        if (ElementKind.METHOD == kind) {
+        if (ElementKind.CLASS == kind && element.getSimpleName().toString().startsWith("Chunk")) {
+          readBuildMethods((TypeElement) element);
+
+        } else if (ElementKind.METHOD == kind) {
 
           Name simpleName = element.getSimpleName();
           if (simpleName.toString().startsWith("build")) {
@@ -0,0 +1,190 @@
+package io.dinject.generator;
+
+import javax.lang.model.element.Element;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times the phases of a processor and counts the beans read, skipped and written per round.
+ * <p>
+ * Enabled by <code>dinject.metrics</code> in which case the metrics are summarised as a NOTE when
+ * processing is over and for the aggregating processor also written as JSON to CLASS_OUTPUT. When
+ * not enabled nothing is recorded.
+ * </p>
+ */
+class ProcessorMetrics {
+
+  private final boolean enabled;
+
+  private final String processor;
+
+  /**
+   * The total nanos per phase (in the order the phases first ran).
+   */
+  private final Map<String, Long> phases = new LinkedHashMap<>();
+
+  private final List<Round> rounds = new ArrayList<>();
+
+  private Round round;
+
+  private int read;
+
+  private int skipped;
+
+  private int written;
+
+  ProcessorMetrics(boolean enabled, String processor) {
+    this.enabled = enabled;
+    this.processor = processor;
+  }
+
+  /**
+   * Start a processing round.
+   */
+  void startRound() {
+    if (enabled) {
+      round = new Round(rounds.size() + 1);
+      rounds.add(round);
+    }
+  }
+
+  /**
+   * Return the start time of a phase.
+   */
+  long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Add the time since start to the given phase.
+   */
+  void phase(String name, long start) {
+    if (enabled) {
+      long nanos = System.nanoTime() - start;
+      phases.merge(name, nanos, Long::sum);
+      round.nanos += nanos;
+    }
+  }
+
+  void read(int count) {
+    if (enabled) {
+      round.read += count;
+      read += count;
+    }
+  }
+
+  void skipped(int count) {
+    if (enabled) {
+      round.skipped += count;
+      skipped += count;
+    }
+  }
+
+  void written(int count) {
+    if (enabled) {
+      round.written += count;
+      written += count;
+    }
+  }
+
+  /**
+   * Write the metrics to the given CLASS_OUTPUT resource and log the summary.
+   */
+  void write(ProcessingContext context, String relativeName, Element... originatingElements) {
+    if (!enabled) {
+      return;
+    }
+    try (Writer writer = context.createResource(relativeName, originatingElements).openWriter()) {
+      writer.write(toJson());
+    } catch (IOException e) {
+      context.logWarn("Failed to write metrics " + relativeName + " " + e.getMessage());
+    }
+    log(context);
+  }
+
+  /**
+   * Log the summary only (the isolating processor has no single originating element for a report).
+   */
+  void log(ProcessingContext context) {
+    if (enabled) {
+      context.logDebug(summary());
+    }
+  }
+
+  private long totalNanos() {
+    long total = 0;
+    for (Long nanos : phases.values()) {
+      total += nanos;
+    }
+    return total;
+  }
+
+  /**
+   * Return the concise summary of the metrics (times in milliseconds).
+   */
+  String summary() {
+    StringBuilder sb = new StringBuilder(200);
+    sb.append("dinject ").append(processor).append(' ').append(millis(totalNanos())).append("ms in ").append(rounds.size()).append(" rounds -");
+    for (Map.Entry<String, Long> entry : phases.entrySet()) {
+      sb.append(' ').append(entry.getKey()).append(' ').append(millis(entry.getValue())).append("ms");
+    }
+    sb.append(" - beans read ").append(read).append(" skipped ").append(skipped).append(" written ").append(written);
+    sb.append(" - rounds");
+    for (Round round : rounds) {
+      sb.append(' ').append(round.number).append(": ").append(round.read).append('/').append(round.skipped).append('/').append(round.written);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Return the metrics as JSON (times in nanoseconds).
+   */
+  String toJson() {
+    StringBuilder sb = new StringBuilder(500);
+    sb.append("{\n");
+    sb.append("  \"processor\": \"").append(processor).append("\",\n");
+    sb.append("  \"totalNanos\": ").append(totalNanos()).append(",\n");
+    sb.append("  \"phases\": {");
+    boolean first = true;
+    for (Map.Entry<String, Long> entry : phases.entrySet()) {
+      sb.append(first ? "\n" : ",\n");
+      sb.append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue());
+      first = false;
+    }
+    sb.append(first ? "},\n" : "\n  },\n");
+    sb.append("  \"rounds\": [");
+    for (int i = 0; i < rounds.size(); i++) {
+      Round round = rounds.get(i);
+      sb.append(i == 0 ? "\n" : ",\n");
+      sb.append("    {\"round\": ").append(round.number)
+        .append(", \"nanos\": ").append(round.nanos)
+        .append(", \"read\": ").append(round.read)
+        .append(", \"skipped\": ").append(round.skipped)
+        .append(", \"written\": ").append(round.written).append('}');
+    }
+    sb.append(rounds.isEmpty() ? "]\n" : "\n  ]\n");
+    sb.append("}\n");
+    return sb.toString();
+  }
+
+  private static long millis(long nanos) {
+    return nanos / 1_000_000;
+  }
+
+  private static class Round {
+
+    final int number;
+    long nanos;
+    int read;
+    int skipped;
+    int written;
+
+    Round(int number) {
+      this.number = number;
+    }
+  }
+}
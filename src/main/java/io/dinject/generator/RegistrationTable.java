@@ -0,0 +1,162 @@
+package io.dinject.generator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the registration table of the beans into the factory.
+ * <p>
+ * The table has a row for each registration the $di classes make in build order (a lazy bean
+ * registers its provider and the proxy) with the type, name, priority and the interface and
+ * annotation types the bean is registered by. <code>BEAN_COUNT</code> is the number of rows and
+ * <code>TYPE_COUNT</code> the number of distinct types such that a builder can size its maps up front.
+ * The counts are the upper bound as a bean is not registered when <code>isAddBeanFor</code> is false.
+ * </p>
+ * <p>
+ * The rows are encoded as text split into string constants of at most {@link #PART_LENGTH} characters
+ * and parsed on use. Array initializers would compile into the static initializer of the factory
+ * (growing with the number of beans and exceeding the 64KB method limit for large modules) whereas
+ * this adds a single array element per part. The types are written as names (rather than class
+ * literals) as the proxy of a lazy bean and the annotation types are not necessarily accessible
+ * from the package of the factory.
+ * </p>
+ */
+class RegistrationTable {
+
+  /**
+   * The maximum length of a string constant (the modified UTF-8 of a constant is limited to 65535 bytes).
+   */
+  static final int PART_LENGTH = 8192;
+
+  private final List<MetaData.Registration> rows = new ArrayList<>();
+
+  private final Set<String> types = new LinkedHashSet<>();
+
+  RegistrationTable(MetaDataOrdering ordering, ProcessingContext context) {
+    for (MetaData metaData : ordering.getOrdered()) {
+      List<MetaData.Registration> registrations = metaData.getRegistrations();
+      if (registrations == null) {
+        context.logWarn("registration table does not include %s as its registration is not known", metaData.getType());
+        continue;
+      }
+      for (MetaData.Registration registration : registrations) {
+        rows.add(registration);
+        types.add(registration.getType());
+        types.addAll(registration.getTypes());
+      }
+    }
+  }
+
+  /**
+   * Return the number of registrations.
+   */
+  int getBeanCount() {
+    return rows.size();
+  }
+
+  /**
+   * Return the number of distinct types the beans are registered by.
+   */
+  int getTypeCount() {
+    return types.size();
+  }
+
+  /**
+   * Return the table as text with a line per row of type, name (empty when not named), priority and
+   * the comma separated types separated by '|'.
+   */
+  String encode() {
+    StringBuilder table = new StringBuilder(rows.size() * 64);
+    for (MetaData.Registration row : rows) {
+      table.append(row.getType()).append('|');
+      if (row.getName() != null) {
+        table.append(row.getName());
+      }
+      table.append('|').append(row.getPriority()).append('|');
+      List<String> registerTypes = row.getTypes();
+      for (int i = 0; i < registerTypes.size(); i++) {
+        if (i > 0) {
+          table.append(',');
+        }
+        table.append(registerTypes.get(i));
+      }
+      table.append('\n');
+    }
+    return table.toString();
+  }
+
+  /**
+   * Return the encoded table split into parts of at most {@link #PART_LENGTH} characters.
+   */
+  static List<String> split(String table) {
+    List<String> parts = new ArrayList<>();
+    int start = 0;
+    while (start < table.length()) {
+      int end = Math.min(start + PART_LENGTH, table.length());
+      if (end < table.length() && Character.isHighSurrogate(table.charAt(end - 1))) {
+        // keep the surrogate pair together
+        end--;
+      }
+      parts.add(table.substring(start, end));
+      start = end;
+    }
+    return parts;
+  }
+
+  void writeFields(Append writer) {
+
+    String table = encode();
+
+    writer.append("  /**").eol();
+    writer.append("   * The number of beans registered (upper bound) and of the distinct types they are registered by.").eol();
+    writer.append("   */").eol();
+    writer.append("  public static final int BEAN_COUNT = ").append(getBeanCount()).append(";").eol().eol();
+    writer.append("  public static final int TYPE_COUNT = ").append(getTypeCount()).append(";").eol().eol();
+
+    writer.append("  private static final int REGISTRATION_TABLE_LENGTH = ").append(table.length()).append(";").eol().eol();
+    writer.append("  private static final String[] REGISTRATION_TABLE = {").eol();
+    for (String part : split(table)) {
+      writer.append("    \"");
+      writeEscaped(writer, part);
+      writer.append("\",").eol();
+    }
+    writer.append("  };").eol().eol();
+
+    writer.append("  /**").eol();
+    writer.append("   * Return the registration table by bean index - a row of type, name (empty when not named),").eol();
+    writer.append("   * priority (1 primary, -1 secondary) and the comma separated interface and annotation types").eol();
+    writer.append("   * the bean is registered by, separated by '|'.").eol();
+    writer.append("   */").eol();
+    writer.append("  public static String[] registrationTable() {").eol();
+    writer.append("    if (REGISTRATION_TABLE_LENGTH == 0) {").eol();
+    writer.append("      return new String[0];").eol();
+    writer.append("    }").eol();
+    writer.append("    StringBuilder table = new StringBuilder(REGISTRATION_TABLE_LENGTH);").eol();
+    writer.append("    for (String part : REGISTRATION_TABLE) {").eol();
+    writer.append("      table.append(part);").eol();
+    writer.append("    }").eol();
+    writer.append("    return table.toString().split(\"\\n\");").eol();
+    writer.append("  }").eol().eol();
+  }
+
+  private void writeEscaped(Append writer, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char ch = value.charAt(i);
+      switch (ch) {
+        case '\n':
+          writer.append("\\n");
+          break;
+        case '"':
+          writer.append("\\\"");
+          break;
+        case '\\':
+          writer.append("\\\\");
+          break;
+        default:
+          writer.append(ch);
+      }
+    }
+  }
+}
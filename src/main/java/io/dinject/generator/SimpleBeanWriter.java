@@ -1,6 +1,5 @@
 package io.dinject.generator;
 
-import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.tools.JavaFileObject;
 import java.io.IOException;
@@ -9,6 +8,10 @@ import java.util.List;
 
 /**
  * Write the source code for the bean.
+ * <p>
+ * The writer is created on the compiler thread. Rendering only uses the data the readers
+ * extracted from the javac model (and not the model itself) such that it can run in parallel.
+ * </p>
  */
 class SimpleBeanWriter {
 
@@ -22,6 +25,21 @@ class SimpleBeanWriter {
   private String shortName;
   private String packageName;
 
+  /**
+   * Set to true when the factory manages the lifecycle of the bean (rather than the builder).
+   */
+  private final boolean managedLifecycle;
+
+  /**
+   * Set to true when the factory injects the fields of the bean (rather than an injector lambda).
+   */
+  private final boolean factoryInject;
+
+  /**
+   * Set to true when the build method returns the bean to the factory.
+   */
+  private final boolean returnBean;
+
   SimpleBeanWriter(BeanReader beanReader, ProcessingContext ctx) {
     this.beanReader = beanReader;
     this.ctx = ctx;
@@ -29,6 +47,12 @@ class SimpleBeanWriter {
     this.originName = origin.getQualifiedName().toString();
     this.shortName = origin.getSimpleName().toString();
     this.packageName = Util.packageOf(originName);
+    this.managedLifecycle = ctx.isFactoryLifecycle() && beanReader.isLifecycleRequired();
+    this.factoryInject = ctx.isFactoryInject() && beanReader.isFieldInjectionRequired() && !beanReader.isLazy();
+    this.returnBean = managedLifecycle || factoryInject;
+    if (beanReader.getConstructor() == null) {
+      ctx.logError(beanReader.getBeanType(), "Unable to determine constructor to use?");
+    }
   }
 
   private Writer createFileWriter() throws IOException {
@@ -37,8 +61,36 @@ class SimpleBeanWriter {
   }
 
   void write() throws IOException {
+    write(render());
+  }
 
-    writer = new Append(createFileWriter());
+  /**
+   * Write the rendered source to the $di file unless it is the same as the previously generated source.
+   * <p>
+   * The previously generated source is compared directly (rather than via an index) as each $di
+   * class must only depend on its own bean type.
+   * </p>
+   *
+   * @return true if the source was written
+   */
+  boolean write(String source) throws IOException {
+    String diName = originName + "$di";
+    if (source.equals(ctx.readGeneratedSource(diName)) && ctx.isResolvable(diName)) {
+      ctx.logDebug("skip writing unchanged " + diName);
+      return false;
+    }
+    try (Writer fileWriter = createFileWriter()) {
+      fileWriter.write(source);
+    }
+    return true;
+  }
+
+  /**
+   * Render the source code.
+   */
+  String render() {
+
+    writer = new Append();
     writePackage();
     writeImports();
     writeClassStart();
@@ -49,7 +101,7 @@ class SimpleBeanWriter {
     writeStaticFactoryBeanLifecycle();
     writeClassEnd();
 
-    writer.close();
+    return writer.toString();
   }
 
   private void writeStaticFactoryBeanMethods() {
@@ -65,11 +117,13 @@ class SimpleBeanWriter {
   }
 
   private void writeFactoryBeanMethod(MethodReader method) {
-    writer.append("  public static void build_%s(Builder builder) {", method.getName()).eol();
+    writer.append("  public static void build_").append(method.getName()).append("(Builder builder) {").eol();
 
     method.buildAddFor(writer);
-    writer.append(method.builderGetFactory()).eol();
-    writer.append(method.builderBuildBean()).eol();
+    method.builderGetFactory(writer);
+    writer.eol();
+    method.builderBuildBean(writer);
+    writer.eol();
     method.builderBuildAddBean(writer);
     writer.append("    }").eol();
     writer.append("  }").eol().eol();
@@ -79,62 +133,266 @@ class SimpleBeanWriter {
 
     MethodReader constructor = beanReader.getConstructor();
     if (constructor == null) {
-      ctx.logError(beanReader.getBeanType(), "Unable to determine constructor to use?");
+      // error logged on construction
       return;
     }
 
-    writer.append("  public static void build(Builder builder) {").eol();
+    if (beanReader.isLazy()) {
+      writeLazyFactoryMethod(constructor.getParams());
+      return;
+    }
+
+    if (returnBean) {
+      // return the bean for the factory to add its lifecycle or inject its fields
+      writer.append("  public static ").append(shortName).append(" build(Builder builder) {").eol();
+    } else {
+      writer.append("  public static void build(Builder builder) {").eol();
+    }
 
     beanReader.buildAddFor(writer);
-    writer.append("      %s bean = new %s(", shortName, shortName);
+    writer.append("      ").append(shortName).append(" bean = new ").append(shortName).append("(");
 
     // add constructor dependencies
     List<MethodReader.MethodParam> params = constructor.getParams();
+    writeConstructorDependencies(params);
+    writer.append(");").eol();
+
+    writeRegister();
+    if (returnBean) {
+      writer.append("      return bean;").eol();
+      writer.append("    }").eol();
+      writer.append("    return null;").eol();
+    } else {
+      writer.append("    }").eol();
+    }
+    writer.append("  }").eol().eol();
+
+    if (managedLifecycle) {
+      writeLifecycleMethod();
+    }
+    if (factoryInject) {
+      writeInjectMethod();
+    }
+
+    if (ctx.isParallelBuild()) {
+      writeParallelFactoryMethods(params);
+    } else if (ctx.isDirectWiring()) {
+      writeDirectFactoryMethod(params);
+    }
+  }
+
+  /**
+   * Write the methods the factory uses to create the bean concurrently with the other beans of its
+   * dependency level and then register it (on the thread building the context).
+   */
+  private void writeParallelFactoryMethods(List<MethodReader.MethodParam> params) {
+
+    writer.append("  public static boolean isAddBean(Builder builder) {").eol();
+    writer.append("    return ");
+    beanReader.buildIsAddBeanFor(writer);
+    writer.append(';').eol();
+    writer.append("  }").eol().eol();
+
+    writer.append("  public static ").append(shortName).append(" create(Builder builder) {").eol();
+    writer.append("    return new ").append(shortName).append("(");
+    writeConstructorDependencies(params);
+    writer.append(");").eol();
+    writer.append("  }").eol().eol();
+
+    writer.append("  public static ").append(shortName).append(" register(Builder builder, ").append(shortName).append(" bean) {").eol();
+    writer.append("    if (bean != null) {").eol();
+    writeRegister();
+    writer.append("    }").eol();
+    writer.append("    return bean;").eol();
+    writer.append("  }").eol().eol();
+  }
+
+  /**
+   * Write the build method taking the constructor dependencies that the factory has resolved.
+   * <p>
+   * Returns the bean such that the factory can pass it directly to the beans that depend on it or
+   * null when the bean was not added.
+   * </p>
+   */
+  private void writeDirectFactoryMethod(List<MethodReader.MethodParam> params) {
+
+    writer.append("  public static ").append(shortName).append(" buildDirect(Builder builder");
+    for (int i = 0; i < params.size(); i++) {
+      writer.append(", ").append(params.get(i).getRawType()).append(" p").append(i);
+    }
+    writer.append(") {").eol();
+
+    beanReader.buildAddFor(writer);
+    writer.append("      ").append(shortName).append(" bean = new ").append(shortName).append("(");
     for (int i = 0; i < params.size(); i++) {
       if (i > 0) {
         writer.append(",");
       }
-      writer.append(params.get(i).builderGetDependency());
+      writer.append('p').append(i);
     }
     writer.append(");").eol();
 
+    writeRegister();
+    writer.append("      return bean;").eol();
+    writer.append("    }").eol();
+    writer.append("    return null;").eol();
+    writer.append("  }").eol().eol();
+  }
+
+  private void writeConstructorDependencies(List<MethodReader.MethodParam> params) {
+    for (int i = 0; i < params.size(); i++) {
+      if (i > 0) {
+        writer.append(",");
+      }
+      params.get(i).builderGetDependency(writer);
+    }
+  }
+
+  /**
+   * Write the build method for a lazy bean registering a provider that creates the bean on first use.
+   * <p>
+   * A bean with interfaces also registers a proxy for the interfaces such that it is injected the
+   * same as an eager bean. Dependencies are looked up from the builder when the bean is created.
+   * </p>
+   */
+  private void writeLazyFactoryMethod(List<MethodReader.MethodParam> params) {
+
+    writer.append("  public static void build(Builder builder) {").eol();
+    beanReader.buildAddFor(writer);
+    writer.append("      Lazy lazy = new Lazy(builder);").eol();
+    writer.append("      builder.register(lazy, ");
+    String name = beanReader.getName();
+    if (name == null) {
+      writer.append("null");
+    } else {
+      writer.append('"').append(name).append('"');
+    }
+    writer.append(");").eol();
+    if (beanReader.getProxyMethods() != null) {
+      writer.append("      LazyProxy bean = new LazyProxy(lazy);").eol();
+      beanReader.buildRegister(writer);
+    }
+    writer.append("    }").eol();
+    writer.append("  }").eol().eol();
+
+    writer.append("  /**").eol();
+    writer.append("   * Creates the bean on first use.").eol();
+    writer.append("   */").eol();
+    writer.append("  public static final class Lazy implements javax.inject.Provider<").append(shortName).append("> {").eol().eol();
+    writer.append("    private final Builder builder;").eol().eol();
+    writer.append("    private volatile ").append(shortName).append(" bean;").eol().eol();
+    writer.append("    Lazy(Builder builder) {").eol();
+    writer.append("      this.builder = builder;").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    @Override").eol();
+    writer.append("    public ").append(shortName).append(" get() {").eol();
+    writer.append("      ").append(shortName).append(" result = bean;").eol();
+    writer.append("      if (result == null) {").eol();
+    writer.append("        synchronized (this) {").eol();
+    writer.append("          result = bean;").eol();
+    writer.append("          if (result == null) {").eol();
+    writer.append("            result = create();").eol();
+    writer.append("            bean = result;").eol();
+    writer.append("          }").eol();
+    writer.append("        }").eol();
+    writer.append("      }").eol();
+    writer.append("      return result;").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    private ").append(shortName).append(" create() {").eol();
+    writer.append("      ").append(shortName).append(" bean = new ").append(shortName).append("(");
+    writeConstructorDependencies(params);
+    writer.append(");").eol();
+    if (beanReader.isFieldInjectionRequired()) {
+      writer.append("      Builder b = builder;").eol();
+      writeInjectFields("      ");
+    }
+    if (beanReader.getPostConstructMethod() != null) {
+      writer.append("      bean.").append(beanReader.getPostConstructMethod()).append("();").eol();
+    }
+    writer.append("      return bean;").eol();
+    writer.append("    }").eol();
+    writer.append("  }").eol().eol();
+
+    if (beanReader.getProxyMethods() != null) {
+      writer.append("  static final class LazyProxy implements ");
+      List<String> proxyTypes = beanReader.getProxyTypes();
+      for (int i = 0; i < proxyTypes.size(); i++) {
+        if (i > 0) {
+          writer.append(", ");
+        }
+        writer.append(proxyTypes.get(i));
+      }
+      writer.append(" {").eol().eol();
+      writer.append("    private final Lazy lazy;").eol().eol();
+      writer.append("    LazyProxy(Lazy lazy) {").eol();
+      writer.append("      this.lazy = lazy;").eol();
+      writer.append("    }").eol().eol();
+      writer.append(beanReader.getProxyMethods());
+      writer.append("  }").eol().eol();
+    }
+  }
+
+  /**
+   * Write the method returning the lifecycle of the bean for the factory to run.
+   */
+  private void writeLifecycleMethod() {
+    writer.append("  public static BeanLifecycle lifecycle(").append(shortName).append(" bean) {").eol();
+    writer.append("    return (bean == null) ? null : ");
+    beanReader.buildLifecycle(writer);
+    writer.append(';').eol();
+    writer.append("  }").eol().eol();
+  }
+
+  /**
+   * Write the method injecting the fields of the bean that the factory calls once all the beans are built.
+   */
+  private void writeInjectMethod() {
+    writer.append("  public static void inject(Builder b, ").append(shortName).append(" bean) {").eol();
+    writeInjectFields("    ");
+    writer.append("  }").eol().eol();
+  }
+
+  private void writeInjectFields(String indent) {
+    for (FieldReader fieldReader : beanReader.getInjectFields()) {
+      writer.append(indent).append("bean.").append(fieldReader.getFieldName()).append(" = ");
+      fieldReader.builderGetDependency(writer);
+      writer.append(';').eol();
+    }
+  }
+
+  private void writeRegister() {
     beanReader.buildRegister(writer);
-    if (beanReader.isLifecycleRequired()) {
+    if (beanReader.isLifecycleRequired() && !managedLifecycle) {
       beanReader.buildAddLifecycle(writer);
     }
-    if (beanReader.isFieldInjectionRequired()) {
+    if (beanReader.isFieldInjectionRequired() && !factoryInject) {
       writer.append("      builder.addInjector(b -> {").eol();
-      for (FieldReader fieldReader : beanReader.getInjectFields()) {
-        String fieldName = fieldReader.getFieldName();
-        String getDependency = fieldReader.builderGetDependency();
-        writer.append("        bean.%s = %s;", fieldName, getDependency).eol();
-      }
+      writeInjectFields("        ");
       writer.append("      });").eol();
     }
-    writer.append("    }").eol();
-    writer.append("  }").eol().eol();
   }
 
   private void writeImports() {
     beanReader.writeImports(writer);
   }
 
-  private void lifecycleMethod(String method, Element methodElement) {
+  private void lifecycleMethod(String method, String methodName) {
     writer.append("  @Override").eol();
-    writer.append("  public void %s() {", method).eol();
-    if (methodElement == null) {
-      writer.append("    // do nothing for %s", method).eol();
+    writer.append("  public void ").append(method).append("() {").eol();
+    if (methodName == null) {
+      writer.append("    // do nothing for ").append(method).eol();
     } else {
-      String methodName = methodElement.getSimpleName().toString();
-      writer.append("    bean.%s();", methodName).eol();
+      writer.append("    bean.").append(methodName).append("();").eol();
     }
     writer.append("  }").eol().eol();
   }
 
   private void writeLifecycleWrapper() {
     if (beanReader.isLifecycleWrapperRequired()) {
-      writer.append("  private final %s bean;", shortName).eol().eol();
-      writer.append("  public %s$di(%s bean) {", shortName, shortName).eol();
+      writer.append("  private final ").append(shortName).append(" bean;").eol().eol();
+      writer.append("  public ").append(shortName).append("$di(").append(shortName).append(" bean) {").eol();
       writer.append("    this.bean = bean;").eol();
       writer.append("  }").eol().eol();
 
@@ -151,16 +409,22 @@ class SimpleBeanWriter {
     if (ctx.isGeneratedAvailable()) {
       writer.append(Constants.AT_GENERATED).eol();
     }
+    if (beanReader.isUnchecked()) {
+      writer.append(Constants.AT_SUPPRESS_UNCHECKED).eol();
+    }
     writer.append("public class ").append(shortName).append("$di ");
     if (beanReader.isLifecycleWrapperRequired()) {
       writer.append("implements BeanLifecycle ");
     }
     writer.append(" {").eol().eol();
+    if (beanReader.isRegistrationTable()) {
+      beanReader.writeRegistrationTable(writer);
+    }
   }
 
   private void writePackage() {
     if (packageName != null) {
-      writer.append("package %s;", packageName).eol().eol();
+      writer.append("package ").append(packageName).append(";").eol().eol();
     }
   }
 }
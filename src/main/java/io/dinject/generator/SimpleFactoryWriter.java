@@ -1,5 +1,6 @@
 package io.dinject.generator;
 
+import javax.lang.model.element.Element;
 import javax.tools.FileObject;
 import javax.tools.JavaFileObject;
 import java.io.IOException;
@@ -17,11 +18,39 @@ class SimpleFactoryWriter {
   private final String factoryShortName;
   private final String factoryFullName;
 
+  private final GeneratedIndex generatedIndex;
+
+  private final Element[] originatingElements;
+
+  private final DirectWiring wiring;
+
+  private final ParallelBuild parallelBuild;
+
+  private final ParallelLifecycle lifecycle;
+
+  private final FactoryInjection injection;
+
+  private final StartupTiming timing;
+
+  private final FactoryChunks chunks;
+
+  private final RegistrationTable registrationTable;
+
   private Append writer;
 
-  SimpleFactoryWriter(MetaDataOrdering ordering, ProcessingContext processingContext) {
+  SimpleFactoryWriter(MetaDataOrdering ordering, ProcessingContext processingContext, GeneratedIndex generatedIndex, Element... originatingElements) {
     this.ordering = ordering;
     this.processingContext = processingContext;
+    this.generatedIndex = generatedIndex;
+    this.originatingElements = originatingElements;
+    this.timing = processingContext.isStartupTiming() ? new StartupTiming() : null;
+    this.lifecycle = processingContext.isFactoryLifecycle() ? new ParallelLifecycle(ordering, processingContext, timing) : null;
+    this.injection = processingContext.isFactoryInject() ? new FactoryInjection(ordering, processingContext) : null;
+    int chunkSize = processingContext.getFactoryChunkSize();
+    this.chunks = (chunkSize > 0 && ordering.getOrdered().size() > chunkSize) ? new FactoryChunks(ordering, chunkSize) : null;
+    this.parallelBuild = processingContext.isParallelBuild() ? new ParallelBuild(ordering, processingContext.getParallelBuildThreads(), lifecycle, injection, timing, chunks) : null;
+    this.registrationTable = processingContext.isRegistrationTable() ? new RegistrationTable(ordering, processingContext) : null;
+    this.wiring = (processingContext.isDirectWiring() && parallelBuild == null) ? new DirectWiring(ordering) : null;
 
     String pkg = processingContext.getContextPackage();
     this.factoryPackage = (pkg != null) ? pkg : ordering.getTopPackage();
@@ -30,25 +59,98 @@ class SimpleFactoryWriter {
     this.factoryFullName = factoryPackage + "." + factoryShortName;
   }
 
-  void write() throws IOException {
+  /**
+   * Write the factory and services file skipping each when the content is unchanged from the previous compile.
+   *
+   * @return true if the factory source was written
+   */
+  boolean write() throws IOException {
 
-    writer = new Append(createFileWriter());
+    writer = new Append();
     writePackage();
     writeStartClass();
 
-    writeCreateMethod();
-    writeBuildMethods();
+    if (parallelBuild != null) {
+      parallelBuild.writeCreateMethod(writer);
+      parallelBuild.writeLevelMethods(writer);
+    } else {
+      writeCreateMethod();
+    }
+    if (chunks != null) {
+      chunks.writeClasses(writer, wiring, lifecycle, injection, timing, parallelBuild == null);
+    } else {
+      writeBuildMethods();
+    }
+    if (injection != null) {
+      injection.writeInjectMethod(writer);
+    }
+    if (lifecycle != null) {
+      lifecycle.writeClasses(writer);
+    }
+    if (timing != null) {
+      timing.writeClasses(writer);
+    }
 
     writeEndClass();
-    writer.close();
+
+    String source = writer.toString();
+    boolean written = false;
+    if (generatedIndex.register(factoryFullName, source) && processingContext.isResolvable(factoryFullName)) {
+      processingContext.logDebug("skip writing unchanged " + factoryFullName);
+    } else {
+      try (Writer fileWriter = createFileWriter()) {
+        fileWriter.write(source);
+      }
+      written = true;
+    }
 
     writeServicesFile();
+    writeModuleDescriptor();
+    return written;
+  }
+
+  /**
+   * Write the module descriptor and when enabled the module order (_di$Modules) and registry of the application.
+   */
+  private void writeModuleDescriptor() {
+
+    ModuleDescriptor module = ModuleDescriptor.of(processingContext, factoryFullName, ordering.getOrdered());
+    try {
+      writeResource(ModuleDescriptor.resourceName(module.getName()), module.toContent());
+      for (String feature : module.getProvides()) {
+        writeResource(ModuleDescriptor.providesName(feature), module.getName());
+      }
+      if (processingContext.isModuleOrder()) {
+        ModuleOrder moduleOrder = new ModuleOrder(processingContext, module);
+        moduleOrder.logWarnings();
+        moduleOrder.write(factoryPackage, originatingElements);
+        if (processingContext.isRegistry()) {
+          moduleOrder.writeRegistry(factoryPackage, originatingElements);
+        }
+      } else if (processingContext.isRegistry()) {
+        // without the module order the registry would miss the factories of the modules depended on
+        processingContext.logError("%s requires %s", Constants.OPTION_REGISTRY, Constants.OPTION_MODULE_ORDER);
+      }
+
+    } catch (IOException e) {
+      processingContext.logError("Failed to write module descriptor " + e.getMessage());
+    }
+  }
+
+  private void writeResource(String relativeName, String content) throws IOException {
+    try (Writer writer = processingContext.createResource(relativeName, originatingElements).openWriter()) {
+      writer.write(content);
+    }
   }
 
   private void writeServicesFile() {
 
+    if (factoryFullName.equals(processingContext.loadMetaInfServices())) {
+      // unchanged
+      return;
+    }
     try {
-      FileObject jfo = processingContext.createMetaInfWriter();
+      FileObject jfo = processingContext.createMetaInfWriter(originatingElements);
       if (jfo != null) {
         Writer writer = jfo.openWriter();
         writer.write(factoryFullName);
@@ -63,7 +165,8 @@ class SimpleFactoryWriter {
 
   private void writeBuildMethods() {
     for (MetaData metaData : ordering.getOrdered()) {
-      writer.append(metaData.buildMethod()).eol();
+      metaData.buildMethod(writer, wiring, lifecycle, injection);
+      writer.eol();
     }
   }
 
@@ -72,17 +175,37 @@ class SimpleFactoryWriter {
     writer.append("  @Override").eol();
     writer.append("  public BeanContext createContext(Builder parent) {").eol();
     writer.append("    builder.setParent(parent);").eol();
-    for (MetaData metaData : ordering.getOrdered()) {
-      writer.append("    build_%s();", metaData.getShortType()).eol();
+    if (chunks != null) {
+      chunks.writeCreateCalls(writer);
+    } else {
+      writeBuildCalls();
+    }
+    if (injection != null) {
+      injection.writeInjectCall(writer);
+    }
+    if (lifecycle != null) {
+      lifecycle.writeAddLifecycle(writer);
     }
     writer.append("    return builder.build();").eol();
     writer.append("  }").eol();
     writer.eol();
   }
 
+  private void writeBuildCalls() {
+    if (timing != null) {
+      timing.writeStart(writer, "    ");
+    }
+    for (MetaData metaData : ordering.getOrdered()) {
+      writer.append("    build_").append(metaData.getShortType()).append("();").eol();
+      if (timing != null) {
+        timing.writeBuilt(writer, "    ", metaData);
+      }
+    }
+  }
+
   private void writePackage() {
 
-    writer.append("package %s;", factoryPackage).eol().eol();
+    writer.append("package ").append(factoryPackage).append(";").eol().eol();
 
     if (processingContext.isGeneratedAvailable()) {
       writer.append(Constants.IMPORT_GENERATED).eol();
@@ -93,9 +216,15 @@ class SimpleFactoryWriter {
     writer.append(Constants.IMPORT_BUILDERFACTORY).eol();
     writer.append(Constants.IMPORT_BUILDER).eol();
     writer.append(Constants.IMPORT_DEPENDENCYMETA).eol().eol();
+    if (parallelBuild != null) {
+      parallelBuild.writeImports(writer);
+    }
+    if (lifecycle != null) {
+      lifecycle.writeImports(writer);
+    }
 
     for (String type : ordering.getImportTypes()) {
-      writer.append("import %s;", type).eol();
+      writer.append("import ").append(type).append(";").eol();
     }
     writer.eol();
   }
@@ -103,11 +232,34 @@ class SimpleFactoryWriter {
   private void writeStartClass() {
 
     processingContext.buildAtContextModule(writer);
+    if (wiring != null && wiring.isUnchecked()) {
+      writer.append(Constants.AT_SUPPRESS_UNCHECKED).eol();
+    }
 
-    writer.append("public class %s implements BeanContextFactory {", factoryShortName).eol().eol();
+    writer.append("public class ").append(factoryShortName).append(" implements BeanContextFactory {").eol().eol();
+    if (registrationTable != null) {
+      registrationTable.writeFields(writer);
+    }
     writer.append("  private final Builder builder;").eol().eol();
+    // the fields set by the build methods are package private when in the chunk classes
+    String modifier = (chunks == null) ? "private " : "";
+    if (wiring != null) {
+      wiring.writeFields(writer, modifier);
+    }
+    if (lifecycle != null) {
+      lifecycle.writeField(writer);
+    }
+    if (injection != null) {
+      injection.writeFields(writer, modifier);
+    }
+    if (chunks != null) {
+      chunks.writeFields(writer);
+    }
+    if (timing != null) {
+      timing.writeField(writer);
+    }
 
-    writer.append("  public %s() {", factoryShortName).eol();
+    writer.append("  public ").append(factoryShortName).append("() {").eol();
     processingContext.buildNewBuilder(writer);
     writer.append("  }").eol().eol();
 
@@ -125,6 +277,10 @@ class SimpleFactoryWriter {
     writer.append("  public String[] getDependsOn() {").eol();
     writer.append("    return builder.getDependsOn();").eol();
     writer.append("  }").eol().eol();
+
+    if (timing != null) {
+      timing.writeGetter(writer);
+    }
   }
 
   private void writeEndClass() {
@@ -132,7 +288,7 @@ class SimpleFactoryWriter {
   }
 
   private Writer createFileWriter() throws IOException {
-    JavaFileObject jfo = processingContext.createWriter(factoryFullName, null);
+    JavaFileObject jfo = processingContext.createWriter(factoryFullName, originatingElements);
     return jfo.openWriter();
   }
 }
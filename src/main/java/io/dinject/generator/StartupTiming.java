@@ -0,0 +1,179 @@
+package io.dinject.generator;
+
+/**
+ * Writes the timing of the bean context startup into the factory.
+ * <p>
+ * Each bean build in <code>createContext</code> is timed with <code>System.nanoTime()</code> and
+ * recorded with its number of dependencies into a generated <code>StartupReport</code>. The lifecycle
+ * of each bean is added by the factory wrapped such that its PostConstruct is timed as well. The
+ * report is returned by the <code>getStartupReport()</code> method of the factory.
+ * </p>
+ * <p>
+ * When the beans of a level are created concurrently (parallel build) the time recorded for such a
+ * bean is the time that the building thread waited for it to be created and registered.
+ * </p>
+ */
+class StartupTiming {
+
+  /**
+   * Write the field holding the report.
+   */
+  void writeField(Append writer) {
+    writer.append("  private final StartupReport startupReport = new StartupReport();").eol().eol();
+  }
+
+  /**
+   * Write the method returning the report.
+   */
+  void writeGetter(Append writer) {
+    writer.append("  /**").eol();
+    writer.append("   * Return the time taken to build each bean and run its PostConstruct.").eol();
+    writer.append("   */").eol();
+    writer.append("  public StartupReport getStartupReport() {").eol();
+    writer.append("    return startupReport;").eol();
+    writer.append("  }").eol().eol();
+  }
+
+  /**
+   * Write the start time local variable.
+   */
+  void writeStart(Append writer, String indent) {
+    writer.append(indent).append("long start = System.nanoTime();").eol();
+  }
+
+  /**
+   * Write recording the time taken to build the bean (since the start which is then reset).
+   */
+  void writeBuilt(Append writer, String indent, MetaData metaData) {
+    writer.append(indent).append("start = startupReport.built(\"").append(metaData.getType()).append("\", ")
+      .append(metaData.getDependsOn().size()).append(", start);").eol();
+  }
+
+  /**
+   * Return the given lifecycle expression wrapped such that its PostConstruct is timed.
+   */
+  String timed(MetaData metaData, String lifecycle) {
+    return "startupReport.timed(\"" + metaData.getType() + "\", " + lifecycle + ")";
+  }
+
+  void writeClasses(Append writer) {
+
+    writer.append("  /**").eol();
+    writer.append("   * The time taken to build each bean and run its PostConstruct (in build order).").eol();
+    writer.append("   */").eol();
+    writer.append("  public static final class StartupReport {").eol().eol();
+    writer.append("    private final java.util.Map<String, BeanTiming> beans = new java.util.LinkedHashMap<>();").eol().eol();
+
+    writer.append("    private BeanTiming bean(String name) {").eol();
+    writer.append("      BeanTiming bean = beans.get(name);").eol();
+    writer.append("      if (bean == null) {").eol();
+    writer.append("        bean = new BeanTiming(name);").eol();
+    writer.append("        beans.put(name, bean);").eol();
+    writer.append("      }").eol();
+    writer.append("      return bean;").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    long built(String name, int dependencies, long start) {").eol();
+    writer.append("      long now = System.nanoTime();").eol();
+    writer.append("      BeanTiming bean = bean(name);").eol();
+    writer.append("      bean.buildNanos = now - start;").eol();
+    writer.append("      bean.dependencies = dependencies;").eol();
+    writer.append("      return now;").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    io.dinject.core.BeanLifecycle timed(String name, io.dinject.core.BeanLifecycle lifecycle) {").eol();
+    writer.append("      return (lifecycle == null) ? null : new Timed(bean(name), lifecycle);").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    /**").eol();
+    writer.append("     * Return the timing of each bean in build order.").eol();
+    writer.append("     */").eol();
+    writer.append("    public java.util.List<BeanTiming> getBeans() {").eol();
+    writer.append("      return new java.util.ArrayList<>(beans.values());").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    /**").eol();
+    writer.append("     * Return the total time taken to build the beans.").eol();
+    writer.append("     */").eol();
+    writer.append("    public long getBuildNanos() {").eol();
+    writer.append("      long total = 0;").eol();
+    writer.append("      for (BeanTiming bean : beans.values()) {").eol();
+    writer.append("        total += bean.buildNanos;").eol();
+    writer.append("      }").eol();
+    writer.append("      return total;").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    /**").eol();
+    writer.append("     * Return the total time taken to run the PostConstruct methods.").eol();
+    writer.append("     */").eol();
+    writer.append("    public long getPostConstructNanos() {").eol();
+    writer.append("      long total = 0;").eol();
+    writer.append("      for (BeanTiming bean : beans.values()) {").eol();
+    writer.append("        total += bean.postConstructNanos;").eol();
+    writer.append("      }").eol();
+    writer.append("      return total;").eol();
+    writer.append("    }").eol().eol();
+
+    writer.append("    @Override").eol();
+    writer.append("    public String toString() {").eol();
+    writer.append("      StringBuilder sb = new StringBuilder();").eol();
+    writer.append("      sb.append(\"build \").append(getBuildNanos() / 1000).append(\"us postConstruct \").append(getPostConstructNanos() / 1000).append(\"us\");").eol();
+    writer.append("      for (BeanTiming bean : beans.values()) {").eol();
+    writer.append("        sb.append('\\n').append(bean);").eol();
+    writer.append("      }").eol();
+    writer.append("      return sb.toString();").eol();
+    writer.append("    }").eol();
+    writer.append("  }").eol().eol();
+
+    writer.append("  /**").eol();
+    writer.append("   * The time taken to build a bean and run its PostConstruct.").eol();
+    writer.append("   */").eol();
+    writer.append("  public static final class BeanTiming {").eol().eol();
+    writer.append("    private final String name;").eol();
+    writer.append("    private long buildNanos;").eol();
+    writer.append("    private volatile long postConstructNanos;").eol();
+    writer.append("    private int dependencies;").eol().eol();
+    writer.append("    BeanTiming(String name) {").eol();
+    writer.append("      this.name = name;").eol();
+    writer.append("    }").eol().eol();
+    writer.append("    public String getName() {").eol();
+    writer.append("      return name;").eol();
+    writer.append("    }").eol().eol();
+    writer.append("    public long getBuildNanos() {").eol();
+    writer.append("      return buildNanos;").eol();
+    writer.append("    }").eol().eol();
+    writer.append("    public long getPostConstructNanos() {").eol();
+    writer.append("      return postConstructNanos;").eol();
+    writer.append("    }").eol().eol();
+    writer.append("    /**").eol();
+    writer.append("     * Return the number of dependencies resolved to build the bean.").eol();
+    writer.append("     */").eol();
+    writer.append("    public int getDependencies() {").eol();
+    writer.append("      return dependencies;").eol();
+    writer.append("    }").eol().eol();
+    writer.append("    @Override").eol();
+    writer.append("    public String toString() {").eol();
+    writer.append("      return name + \" build \" + (buildNanos / 1000) + \"us postConstruct \" + (postConstructNanos / 1000) + \"us dependencies \" + dependencies;").eol();
+    writer.append("    }").eol();
+    writer.append("  }").eol().eol();
+
+    writer.append("  static final class Timed implements io.dinject.core.BeanLifecycle {").eol().eol();
+    writer.append("    private final BeanTiming bean;").eol();
+    writer.append("    private final io.dinject.core.BeanLifecycle lifecycle;").eol().eol();
+    writer.append("    Timed(BeanTiming bean, io.dinject.core.BeanLifecycle lifecycle) {").eol();
+    writer.append("      this.bean = bean;").eol();
+    writer.append("      this.lifecycle = lifecycle;").eol();
+    writer.append("    }").eol().eol();
+    writer.append("    @Override").eol();
+    writer.append("    public void postConstruct() {").eol();
+    writer.append("      long start = System.nanoTime();").eol();
+    writer.append("      lifecycle.postConstruct();").eol();
+    writer.append("      bean.postConstructNanos = System.nanoTime() - start;").eol();
+    writer.append("    }").eol().eol();
+    writer.append("    @Override").eol();
+    writer.append("    public void preDestroy() {").eol();
+    writer.append("      lifecycle.preDestroy();").eol();
+    writer.append("    }").eol();
+    writer.append("  }").eol().eol();
+  }
+}
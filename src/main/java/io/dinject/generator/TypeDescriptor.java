@@ -0,0 +1,231 @@
+package io.dinject.generator;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import java.util.List;
+
+/**
+ * The type of a dependency (constructor parameter, field or implemented interface).
+ * <p>
+ * Built once per type from the <code>DeclaredType</code> and its type arguments (interned by the
+ * {@link ProcessingContext}) or parsed from the type string read from the meta data index. A
+ * <code>List</code>, <code>Set</code>, <code>Optional</code> or <code>Provider</code> is a wrapper
+ * of the dependency type which is its single type argument (the upper bound of a wildcard).
+ * </p>
+ * <p>
+ * The class literal used to look up the dependency is always that of the raw type such that
+ * generic dependency types (including nested generics) are supported.
+ * </p>
+ */
+final class TypeDescriptor {
+
+  enum Kind {
+    PLAIN,
+    LIST,
+    SET,
+    OPTIONAL,
+    PROVIDER
+  }
+
+  private static final String OBJECT = "java.lang.Object";
+
+  private final String fullType;
+
+  private final String erasure;
+
+  private final Kind kind;
+
+  private final String type;
+
+  private final String rawType;
+
+  private final String shortName;
+
+  private TypeDescriptor(String fullType, String erasure, Kind kind, String type, String rawType) {
+    this.fullType = fullType;
+    this.erasure = erasure;
+    this.kind = kind;
+    this.type = type;
+    this.rawType = rawType;
+    this.shortName = Util.shortName(rawType);
+  }
+
+  /**
+   * Create from the type (use {@link ProcessingContext#getTypeDescriptor(TypeMirror)} for the interned instance).
+   */
+  static TypeDescriptor of(TypeMirror typeMirror) {
+    String fullType = typeMirror.toString();
+    if (typeMirror.getKind() == TypeKind.DECLARED) {
+      DeclaredType declared = (DeclaredType) typeMirror;
+      String erasure = rawTypeOf(declared);
+      Kind kind = kindOf(erasure);
+      List<? extends TypeMirror> arguments = declared.getTypeArguments();
+      if (kind != Kind.PLAIN && arguments.size() == 1) {
+        TypeMirror argument = upperBound(arguments.get(0));
+        if (argument == null) {
+          return new TypeDescriptor(fullType, erasure, kind, OBJECT, OBJECT);
+        }
+        return new TypeDescriptor(fullType, erasure, kind, argument.toString(), rawTypeOf(argument));
+      }
+      return new TypeDescriptor(fullType, erasure, Kind.PLAIN, fullType, erasure);
+    }
+    String erasure = Util.trimGenerics(fullType);
+    return new TypeDescriptor(fullType, erasure, Kind.PLAIN, fullType, erasure);
+  }
+
+  /**
+   * Parse the type string (as per <code>TypeMirror.toString()</code>).
+   */
+  static TypeDescriptor parse(String fullType) {
+    String erasure = Util.trimGenerics(fullType);
+    int start = fullType.indexOf('<');
+    if (start > -1 && fullType.endsWith(">")) {
+      Kind kind = kindOf(erasure);
+      String argument = fullType.substring(start + 1, fullType.length() - 1).trim();
+      if (kind != Kind.PLAIN && isSingleArgument(argument)) {
+        if (argument.startsWith("?")) {
+          argument = argument.startsWith("? extends ") ? argument.substring(10).trim() : OBJECT;
+        }
+        return new TypeDescriptor(fullType, erasure, kind, argument, Util.trimGenerics(argument));
+      }
+    }
+    return new TypeDescriptor(fullType, erasure, Kind.PLAIN, fullType, erasure);
+  }
+
+  /**
+   * Return true if there is no top level comma (a single type argument).
+   */
+  private static boolean isSingleArgument(String arguments) {
+    int depth = 0;
+    for (int i = 0; i < arguments.length(); i++) {
+      char ch = arguments.charAt(i);
+      if (ch == '<') {
+        depth++;
+      } else if (ch == '>') {
+        depth--;
+      } else if (ch == ',' && depth == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static TypeMirror upperBound(TypeMirror argument) {
+    if (argument.getKind() == TypeKind.WILDCARD) {
+      return ((WildcardType) argument).getExtendsBound();
+    }
+    return argument;
+  }
+
+  private static String rawTypeOf(TypeMirror type) {
+    if (type.getKind() == TypeKind.DECLARED) {
+      return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+    }
+    return Util.trimGenerics(type.toString());
+  }
+
+  private static Kind kindOf(String rawType) {
+    switch (rawType) {
+      case "java.util.List":
+        return Kind.LIST;
+      case "java.util.Set":
+        return Kind.SET;
+      case "java.util.Optional":
+        return Kind.OPTIONAL;
+      case "javax.inject.Provider":
+        return Kind.PROVIDER;
+      default:
+        return Kind.PLAIN;
+    }
+  }
+
+  /**
+   * Return the type as declared (including any wrapper).
+   */
+  String getFullType() {
+    return fullType;
+  }
+
+  /**
+   * Return the declared type without generic parameters.
+   */
+  String getErasure() {
+    return erasure;
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * Return the dependency type (the type argument of a wrapper) including any generic parameters.
+   */
+  String getType() {
+    return type;
+  }
+
+  /**
+   * Return the dependency type without generic parameters.
+   */
+  String getRawType() {
+    return rawType;
+  }
+
+  /**
+   * Return the short name of the raw dependency type.
+   */
+  String getShortName() {
+    return shortName;
+  }
+
+  /**
+   * Return true if the dependency is a generic type that is looked up from the builder by its raw
+   * type (such that the lookup is a raw type or an unchecked cast).
+   */
+  boolean isUnchecked() {
+    return !type.equals(rawType);
+  }
+
+  /**
+   * Append the lookup of the dependency from the builder.
+   *
+   * @param builder    The builder variable
+   * @param named      The name of the dependency (or null)
+   * @param shortNames True to use the short name of the (imported) type rather than the fully qualified name
+   */
+  void builderGet(Append writer, String builder, String named, boolean shortNames) {
+    // the builder returns the wrapper of the raw type so use the raw wrapper for a generic type
+    boolean generic = !type.equals(rawType);
+    switch (kind) {
+      case LIST:
+        writer.append(generic ? "(java.util.List)" : "").append(builder).append(".getList(");
+        break;
+      case SET:
+        writer.append(generic ? "new java.util.LinkedHashSet(" : "new java.util.LinkedHashSet<>(").append(builder).append(".getList(");
+        break;
+      case OPTIONAL:
+        writer.append(generic ? "(java.util.Optional)" : "").append(builder).append(".getOptional(");
+        break;
+      default:
+        writer.append(builder).append(".get(");
+    }
+    writer.append(shortNames ? shortName : rawType);
+    if (kind == Kind.PROVIDER) {
+      // the provider registered for the lazy bean
+      writer.append("$di.Lazy");
+    }
+    writer.append(".class");
+    if (named != null) {
+      writer.append(",\"").append(named).append('"');
+    }
+    writer.append(kind == Kind.SET ? "))" : ")");
+  }
+
+  @Override
+  public String toString() {
+    return fullType;
+  }
+}
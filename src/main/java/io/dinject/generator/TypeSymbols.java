@@ -0,0 +1,63 @@
+package io.dinject.generator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Symbol table of type names with dense int ids.
+ * <p>
+ * Each type name is hashed once when it is interned and the bean graph (the types the beans provide
+ * and depend on) is then held and traversed as int arrays indexed by symbol id.
+ * </p>
+ */
+class TypeSymbols {
+
+  private final Map<String, Integer> ids = new HashMap<>();
+
+  private final List<String> names = new ArrayList<>();
+
+  /**
+   * Return the id of the given type name adding it if required.
+   */
+  int id(String name) {
+    Integer id = ids.get(name);
+    if (id == null) {
+      id = names.size();
+      ids.put(name, id);
+      names.add(name);
+    }
+    return id;
+  }
+
+  /**
+   * Return the ids of the given type names adding them if required.
+   */
+  int[] ids(List<String> names) {
+    int[] result = new int[names.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = id(names.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Return the id of the given type name or -1 if it has not been interned.
+   */
+  int find(String name) {
+    Integer id = ids.get(name);
+    return id == null ? -1 : id;
+  }
+
+  String name(int id) {
+    return names.get(id);
+  }
+
+  /**
+   * Return the number of symbols.
+   */
+  int size() {
+    return names.size();
+  }
+}
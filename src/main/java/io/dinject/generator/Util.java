@@ -1,11 +1,5 @@
 package io.dinject.generator;
 
-import javax.inject.Named;
-import javax.inject.Qualifier;
-import javax.lang.model.element.AnnotationMirror;
-import javax.lang.model.element.Element;
-import javax.lang.model.type.DeclaredType;
-
 class Util {
 
   static String classOfMethod(String method) {
@@ -23,19 +17,26 @@ class Util {
     return method;
   }
 
+  /**
+   * Return the type removing the trailing <code>$di</code> of the generated class.
+   */
+  static String trimDi(String diType) {
+    return diType.endsWith("$di") ? diType.substring(0, diType.length() - 3) : diType;
+  }
+
+  /**
+   * Return the type without any generic parameters.
+   */
+  static String trimGenerics(String type) {
+    int pos = type.indexOf('<');
+    return (pos == -1) ? type : type.substring(0, pos);
+  }
+
   static String packageOf(String cls) {
     int pos = cls.lastIndexOf('.');
     return (pos == -1) ? "" : cls.substring(0, pos);
   }
 
-  static String unwrapProvider(String maybeProvider) {
-    if (isProvider(maybeProvider)) {
-      return extractProviderType(maybeProvider);
-    } else {
-      return maybeProvider;
-    }
-  }
-
   static String shortName(String fullType) {
     int p = fullType.lastIndexOf('.');
     if (p == -1) {
@@ -45,34 +46,6 @@ class Util {
     }
   }
 
-  static String extractOptionalType(String rawType) {
-    return rawType.substring(19, rawType.length() - 1);
-  }
-
-  static boolean isOptional(String rawType) {
-    return rawType.startsWith("java.util.Optional<");
-  }
-
-  static String extractList(String rawType) {
-    String listType = rawType.substring(15, rawType.length() - 1);
-    if (listType.startsWith("? extends")) {
-      return listType.substring(10);
-    }
-    return listType;
-  }
-
-  static boolean isList(String rawType) {
-    return rawType.startsWith("java.util.List<");
-  }
-
-  static boolean isProvider(String rawType) {
-    return rawType.startsWith("javax.inject.Provider<");
-  }
-
-  static String extractProviderType(String rawType) {
-    return rawType.substring(22, rawType.length() - 1);
-  }
-
   /**
    * Return the common parent package.
    */
@@ -96,22 +69,4 @@ class Util {
 
     return currentTop;
   }
-
-  /**
-   * Return the name via <code>@Named</code> or a Qualifier annotation.
-   */
-  public static String getNamed(Element p) {
-    Named named = p.getAnnotation(Named.class);
-    if (named != null) {
-      return named.value();
-    }
-    for (AnnotationMirror annotationMirror : p.getAnnotationMirrors()) {
-      DeclaredType annotationType = annotationMirror.getAnnotationType();
-      Qualifier qualifier = annotationType.asElement().getAnnotation(Qualifier.class);
-      if (qualifier != null) {
-        return Util.shortName(annotationType.toString());
-      }
-    }
-    return null;
-  }
 }
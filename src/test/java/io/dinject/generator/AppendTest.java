@@ -0,0 +1,16 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AppendTest {
+
+  @Test
+  public void appendIndented() {
+
+    Append writer = new Append();
+    writer.appendIndented("a\n\n  b\nc", "  ");
+    assertEquals("  a\n\n    b\n  c", writer.toString());
+  }
+}
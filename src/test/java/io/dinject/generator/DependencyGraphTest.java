@@ -0,0 +1,113 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyGraphTest {
+
+  @Test
+  public void criticalPath() {
+
+    List<MetaData> list = new ArrayList<>();
+    list.add(meta("org.C", "org.IB", "org.F"));
+    list.add(meta("org.A"));
+    MetaData b = meta("org.B", "org.D");
+    b.getProvides().add("org.IB");
+    list.add(b);
+    list.add(meta("org.D", "org.A"));
+    list.add(meta("org.F"));
+    list.add(meta("org.E", "org.Missing"));
+
+    MetaDataOrdering ordering = new MetaDataOrdering(list, null);
+    ordering.processQueue();
+
+    DependencyGraph graph = new DependencyGraph(ordering);
+    assertEquals(4, graph.getCriticalPathLength());
+    List<String> path = new ArrayList<>();
+    for (MetaData metaData : graph.getCriticalPath()) {
+      path.add(metaData.getType());
+    }
+    assertEquals(Arrays.asList("org.A", "org.D", "org.B", "org.C"), path);
+
+    String json = graph.toJson();
+    assertTrue(json.contains("  \"criticalPath\": [\"org.A\", \"org.D\", \"org.B\", \"org.C\"],\n"));
+    assertTrue(json.contains("    {\"type\": \"org.B\", \"method\": null, \"level\": 2, \"provides\": [\"org.IB\"]}"));
+    assertTrue(json.contains("    {\"type\": \"org.E\", \"method\": null, \"level\": -1, \"provides\": []}"));
+    assertEquals(json.indexOf("{\"type\": \"org.E\""), json.lastIndexOf("{\"type\": \"org.E\""));
+    assertTrue(json.contains("    {\"from\": \"org.C\", \"to\": \"org.B\", \"dependsOn\": \"org.IB\", \"kind\": \"plain\", \"qualifier\": null}"));
+    assertTrue(json.contains("    {\"from\": \"org.E\", \"to\": null, \"dependsOn\": \"org.Missing\", \"kind\": \"plain\", \"qualifier\": null}"));
+
+    String dot = graph.toDot();
+    assertTrue(dot.contains("  \"org.C\" -> \"org.B\" [color=red];\n"));
+    assertTrue(dot.contains("  \"org.C\" -> \"org.F\";\n"));
+    assertTrue(dot.contains("  \"org.E\" -> \"org.Missing\" [style=dashed];\n"));
+    assertTrue(dot.contains("  { rank=same; \"org.A\" \"org.F\" }\n"));
+  }
+
+  @Test
+  public void levelWidthsAndDependents() {
+
+    List<MetaData> list = new ArrayList<>();
+    list.add(meta("org.A"));
+    list.add(meta("org.B", "org.A"));
+    list.add(meta("org.C", "org.A", "org.A"));
+    list.add(meta("org.D", "org.A", "org.B"));
+
+    MetaDataOrdering ordering = new MetaDataOrdering(list, null);
+    ordering.processQueue();
+
+    DependencyGraph graph = new DependencyGraph(ordering);
+    assertEquals("[1, 2, 1]", Arrays.toString(graph.getLevelWidths()));
+    assertEquals("[3, 1, 0, 0]", Arrays.toString(graph.getDependentCounts()));
+  }
+
+  @Test
+  public void limits_warnOnDepthAndFanIn() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-limits").options("-Adinject.maxDepth=2", "-Adinject.maxFanIn=1");
+    compiler.compileSuccessfully(
+      compiler.source("org.lm.A", "package org.lm;\n\n@javax.inject.Singleton\npublic class A {\n}\n"),
+      compiler.source("org.lm.B", "package org.lm;\n\n@javax.inject.Singleton\npublic class B {\n  public B(A a) { }\n}\n"),
+      compiler.source("org.lm.C", "package org.lm;\n\n@javax.inject.Singleton\npublic class C {\n  public C(A a, B b) { }\n}\n"));
+
+    String diagnostics = compiler.getDiagnostics();
+    assertTrue(diagnostics.contains("Dependency chain of depth 3 exceeds 2 (beans built one after the other) A -> B -> C"));
+    assertTrue(diagnostics.contains("Bean org.lm.A has 2 dependents which exceeds 1"));
+    assertFalse(diagnostics.contains("Bean org.lm.B has"));
+  }
+
+  @Test
+  public void graphOption_writesJsonAndDot() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-graph").options("-Adinject.graph");
+    compiler.compileSuccessfully(
+      compiler.source("org.gr.Store", "package org.gr;\n\npublic interface Store {\n}\n"),
+      compiler.source("org.gr.Blue", "package org.gr;\n\n@javax.inject.Singleton\n@javax.inject.Named(\"blue\")\npublic class Blue implements Store {\n}\n"),
+      compiler.source("org.gr.Red", "package org.gr;\n\n@javax.inject.Singleton\npublic class Red implements Store {\n}\n"),
+      compiler.source("org.gr.Service", "package org.gr;\n\n@javax.inject.Singleton\npublic class Service {\n"
+        + "  public Service(@javax.inject.Named(\"blue\") Store blue, java.util.List<Store> stores) { }\n}\n"));
+
+    String json = compiler.classOutput(Constants.META_INF_GRAPH_JSON);
+    assertTrue(json.contains("  \"criticalPathLength\": 2,\n"));
+    assertTrue(json.contains("{\"from\": \"org.gr.Service\", \"to\": \"org.gr.Blue\", \"dependsOn\": \"org.gr.Store\", \"kind\": \"plain\", \"qualifier\": \"blue\"}"));
+    assertTrue(json.contains("{\"from\": \"org.gr.Service\", \"to\": \"org.gr.Red\", \"dependsOn\": \"org.gr.Store\", \"kind\": \"list\", \"qualifier\": null}"));
+
+    String dot = compiler.classOutput(Constants.META_INF_GRAPH_DOT);
+    assertTrue(dot.startsWith("digraph dinject {\n"));
+    assertTrue(dot.contains("  \"org.gr.Service\" -> \"org.gr.Red\" [label=\"list\"];\n"));
+  }
+
+  private static MetaData meta(String type, String... dependsOn) {
+    MetaData meta = new MetaData(type);
+    meta.getDependsOn().addAll(Arrays.asList(dependsOn));
+    return meta;
+  }
+}
@@ -0,0 +1,63 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DirectWiringTest {
+
+  private static MetaData bean(String type, String... params) {
+    MetaData meta = new MetaData(type);
+    meta.setParams(new ArrayList<>());
+    for (String param : params) {
+      MethodReader.MethodParam methodParam = new MethodReader.MethodParam(param, null);
+      meta.getParams().add(methodParam);
+      meta.getDependsOn().add(methodParam.getDependsOn());
+    }
+    return meta;
+  }
+
+  @Test
+  public void writeBuild() {
+
+    MetaData pump = bean("org.foo.Pump");
+    pump.getProvides().add("org.foo.IPump");
+    MetaData heater = bean("org.foo.Heater");
+    MetaData otherHeater = bean("org.foo.OtherHeater");
+    otherHeater.getProvides().add("org.foo.Heater");
+    MetaData maker = bean("org.foo.Maker", "org.foo.IPump", "org.foo.Heater", "java.util.List<org.foo.IPump>", "org.bar.External");
+
+    MetaDataOrdering ordering = new MetaDataOrdering(Arrays.asList(pump, heater, otherHeater, maker), null);
+    ordering.processQueue();
+
+    DirectWiring wiring = new DirectWiring(ordering);
+    assertTrue(wiring.isDirect(maker));
+
+    Append writer = new Append();
+    wiring.writeFields(writer, "private ");
+    assertEquals("  private org.foo.Pump bean_Pump;\n\n", writer.toString());
+
+    writer = new Append();
+    wiring.writeBuild(writer, maker);
+    assertEquals("    Maker$di.buildDirect(builder, (bean_Pump != null ? bean_Pump : builder.get(org.foo.IPump.class)), "
+      + "builder.get(org.foo.Heater.class), builder.getList(org.foo.IPump.class), builder.get(org.bar.External.class));\n", writer.toString());
+  }
+
+  @Test
+  public void isDirect_factoryMethodBean() {
+
+    MetaData method = new MetaData("org.foo.Pump");
+    method.setMethod("org.foo.MyFactory$di.build_pump");
+    MetaData fromFactory = new MetaData("org.foo.Heater");
+
+    DirectWiring wiring = new DirectWiring(new MetaDataOrdering(Collections.emptyList(), null));
+    assertFalse(wiring.isDirect(method));
+    assertFalse(wiring.isDirect(fromFactory));
+  }
+}
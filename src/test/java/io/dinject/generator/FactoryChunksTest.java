@@ -0,0 +1,115 @@
+package io.dinject.generator;
+
+import io.dinject.BeanContext;
+import io.dinject.core.BeanContextFactory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class FactoryChunksTest {
+
+  @Test
+  public void largeModule_compilesAndRuns() throws Exception {
+
+    int count = 20_000;
+    TestCompiler compiler = new TestCompiler("dinject-chunks").options("-Adinject.factoryChunkSize");
+    compiler.compileSuccessfully(chain(compiler, count));
+
+    String factory = compiler.generatedSource("org.big._di$Factory");
+    int chunks = count / Constants.DEFAULT_CHUNK_SIZE;
+    assertTrue(factory.contains("    chunk0.createBeans();\n    chunk1.createBeans();\n"));
+    assertTrue(factory.contains("    chunk" + (chunks - 1) + ".createBeans();\n    return builder.build();\n"));
+    assertFalse(factory.contains("chunk" + chunks + ".createBeans();"));
+    assertTrue(factory.contains("  final class Chunk0 {\n\n    void createBeans() {\n      build_B0();\n      build_B1();\n"));
+    assertTrue(factory.contains("    @DependencyMeta(type=\"org.big.B1\",dependsOn={\"org.big.B0\"})\n    protected void build_B1() {\n      B1$di.build(builder);\n    }\n"));
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{compiler.classOutputDir().toUri().toURL()}, getClass().getClassLoader())) {
+      BeanContextFactory contextFactory = (BeanContextFactory) loader.loadClass("org.big._di$Factory").newInstance();
+      BeanContext context = contextFactory.createContext(null);
+      assertNotNull(context.getBean(loader.loadClass("org.big.B" + (count - 1))));
+    }
+  }
+
+  /**
+   * The level calls and methods of the parallel build are chunked as well (a level per bean for the chain).
+   */
+  @Test
+  public void largeModule_parallelBuild() throws Exception {
+
+    int count = 20_000;
+    TestCompiler compiler = new TestCompiler("dinject-chunks-parallel").options("-Adinject.factoryChunkSize", "-Adinject.parallelBuild");
+    compiler.compileSuccessfully(chain(compiler, count));
+
+    String factory = compiler.generatedSource("org.big._di$Factory");
+    int groups = count / Constants.DEFAULT_CHUNK_SIZE;
+    assertTrue(factory.contains("    new Levels0().createBeans();\n    new Levels1().createBeans();\n"));
+    assertTrue(factory.contains("    new Levels" + (groups - 1) + "().createBeans();\n    return builder.build();\n"));
+    assertFalse(factory.contains("new Levels" + groups + "()"));
+    assertTrue(factory.contains("  final class Levels1 {\n\n    void createBeans() {\n      level_500();\n      level_501();\n"));
+    assertTrue(factory.contains("    private void level_500() {\n      chunk1.build_B500();\n    }\n"));
+    assertFalse(factory.contains("\n    level_0();\n"));
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{compiler.classOutputDir().toUri().toURL()}, getClass().getClassLoader())) {
+      BeanContextFactory contextFactory = (BeanContextFactory) loader.loadClass("org.big._di$Factory").newInstance();
+      BeanContext context = contextFactory.createContext(null);
+      assertNotNull(context.getBean(loader.loadClass("org.big.B" + (count - 1))));
+    }
+  }
+
+  /**
+   * A level larger than the chunk size is split into parts awaited in turn.
+   */
+  @Test
+  public void wideLevel_parallelBuild() throws Exception {
+
+    TestCompiler compiler = new TestCompiler("dinject-chunks-wide").options("-Adinject.factoryChunkSize=2", "-Adinject.parallelBuild=2");
+    Path[] sources = new Path[5];
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] = compiler.source("org.wide.W" + i, "package org.wide;\n\n@javax.inject.Singleton\npublic class W" + i + " {\n}\n");
+    }
+    compiler.compileSuccessfully(sources);
+
+    String factory = compiler.generatedSource("org.wide._di$Factory");
+    assertTrue(factory.contains("      new Levels0().createBeans(executor);\n      new Levels1().createBeans(executor);\n      new Levels2().createBeans();\n"));
+    assertTrue(factory.contains("  final class Levels2 {\n\n    void createBeans() {\n      level_2();\n    }\n"));
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{compiler.classOutputDir().toUri().toURL()}, getClass().getClassLoader())) {
+      BeanContextFactory contextFactory = (BeanContextFactory) loader.loadClass("org.wide._di$Factory").newInstance();
+      BeanContext context = contextFactory.createContext(null);
+      for (int i = 0; i < sources.length; i++) {
+        assertNotNull(context.getBean(loader.loadClass("org.wide.W" + i)));
+      }
+    }
+  }
+
+  @Test
+  public void smallModule_notChunked() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-chunks").options("-Adinject.factoryChunkSize=2");
+    Path a = compiler.source("org.sc.A", "package org.sc;\n\n@javax.inject.Singleton\npublic class A {\n}\n");
+    Path b = compiler.source("org.sc.B", "package org.sc;\n\n@javax.inject.Singleton\npublic class B {\n  public B(A a) { }\n}\n");
+
+    compiler.compileSuccessfully(a, b);
+    assertFalse(compiler.generatedSource("org.sc._di$Factory").contains("Chunk"));
+  }
+
+  /**
+   * Write the chain of beans where each depends on the one before (and every 100th on the first).
+   */
+  private static Path[] chain(TestCompiler compiler, int count) throws IOException {
+    Path[] sources = new Path[count];
+    for (int i = 0; i < count; i++) {
+      String params = (i == 0) ? "" : "B" + (i - 1) + " b" + ((i % 100 == 0) ? ", B0 first" : "");
+      sources[i] = compiler.source("org.big.B" + i, "package org.big;\n\n@javax.inject.Singleton\npublic class B" + i + " {\n"
+        + "  public B" + i + "(" + params + ") { }\n}\n");
+    }
+    return sources;
+  }
+}
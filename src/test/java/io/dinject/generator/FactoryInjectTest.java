@@ -0,0 +1,47 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FactoryInjectTest {
+
+  @Test
+  public void factoryInjectsFields_withoutInjectorLambdas() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-inject").options("-Adinject.factoryInject", "-Adinject.parallelLifecycle");
+    Path a = compiler.source("org.fi.A", "package org.fi;\n\n@javax.inject.Singleton\npublic class A {\n"
+      + "  @javax.inject.Inject\n  B b;\n}\n");
+    Path b = compiler.source("org.fi.B", "package org.fi;\n\n@javax.inject.Singleton\npublic class B {\n"
+      + "  @javax.inject.Inject\n  A a;\n"
+      + "  @javax.annotation.PostConstruct\n  void init() { }\n}\n");
+    Path c = compiler.source("org.fi.C", "package org.fi;\n\n@javax.inject.Singleton\npublic class C {\n"
+      + "  public C(A a) { }\n}\n");
+
+    compiler.compileSuccessfully(a, b, c);
+
+    String aDi = compiler.generatedSource("org.fi.A$di");
+    assertTrue(aDi.contains("public static A build(Builder builder) {"));
+    assertTrue(aDi.contains("public static void inject(Builder b, A bean) {"));
+    assertTrue(aDi.contains("bean.b = b.get(org.fi.B.class);"));
+    assertFalse(aDi.contains("addInjector"));
+
+    String cDi = compiler.generatedSource("org.fi.C$di");
+    assertTrue(cDi.contains("public static void build(Builder builder) {"));
+    assertFalse(cDi.contains("inject("));
+
+    String factory = compiler.generatedSource("org.fi._di$Factory");
+    assertTrue(factory.contains("private org.fi.A inject_A;"));
+    assertTrue(factory.contains("inject_B = bean;"));
+    assertTrue(factory.contains("lifecycle.add(0, \"org.fi.B\", B$di.lifecycle(bean));"));
+    assertTrue(factory.contains("A$di.inject(builder, inject_A);"));
+    assertFalse(factory.contains("inject_C"));
+    // injected once all the beans are built and before the lifecycle is added
+    assertTrue(factory.indexOf("    inject();") < factory.indexOf("builder.addLifecycle(lifecycle);"));
+    assertTrue(factory.indexOf("build_C();") < factory.indexOf("    inject();"));
+  }
+}
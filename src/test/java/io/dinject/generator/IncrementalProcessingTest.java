@@ -0,0 +1,119 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Simulates a two step incremental compile as Gradle performs it for an isolating
+ * processor (BeanProcessor) and an aggregating processor (Processor).
+ */
+public class IncrementalProcessingTest {
+
+  @Test
+  public void touchedBean_onlyItsDiIsRegenerated() throws IOException {
+    touchBean(false);
+  }
+
+  @Test
+  public void touchedBean_withoutIndex_factoryStillComplete() throws IOException {
+    touchBean(true);
+  }
+
+  /**
+   * A truncated index is ignored (with a warning) and the factory read instead.
+   */
+  @Test
+  public void touchedBean_truncatedIndex_factoryStillComplete() throws IOException {
+    touchBean(false, true);
+  }
+
+  private void touchBean(boolean deleteIndex) throws IOException {
+    touchBean(deleteIndex, false);
+  }
+
+  /**
+   * Compile, change B and compile only the changed sources.
+   *
+   * @param deleteIndex True to also remove the meta data index (an aggregating output) such that the
+   *                    factory is regenerated from the meta data of the prior factory
+   * @param truncateIndex True to truncate the meta data index (as a corrupt index) with the same outcome
+   */
+  private void touchBean(boolean deleteIndex, boolean truncateIndex) throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-incremental");
+
+    Path a = source(compiler, "A", "");
+    Path b = source(compiler, "B", "A a");
+    Path c = source(compiler, "C", "B b");
+
+    compiler.compileSuccessfully(a, b, c);
+    assertEquals(set("org.incremental.A$di", "org.incremental.B$di", "org.incremental.C$di", "org.incremental._di$Factory"), compiler.getGeneratedSources());
+
+    // B changes, Gradle removes the outputs originating from B and the aggregating outputs
+    b = source(compiler, "B", "A a, C2 other");
+    Path c2 = source(compiler, "C2", "");
+    Files.delete(compiler.generatedPath("org.incremental.B$di"));
+    Files.delete(compiler.generatedPath("org.incremental._di$Factory"));
+    Path index = compiler.classOutputDir().resolve(Constants.META_INF_INDEX);
+    if (deleteIndex) {
+      Files.delete(index);
+    }
+    if (truncateIndex) {
+      byte[] content = Files.readAllBytes(index);
+      Files.write(index, Arrays.copyOf(content, content.length / 2));
+    }
+
+    compiler.compileSuccessfully(b, c2);
+    assertEquals(set("org.incremental.B$di", "org.incremental.C2$di", "org.incremental._di$Factory"), compiler.getGeneratedSources());
+    assertTrue(Files.exists(index));
+
+    // the factory is regenerated from the merged meta data
+    String factory = compiler.generatedSource("org.incremental._di$Factory");
+    for (String bean : Arrays.asList("A", "B", "C", "C2")) {
+      assertTrue(factory.contains("build_" + bean + "();"));
+    }
+    assertTrue(factory.indexOf("build_C2();") < factory.indexOf("build_B();"));
+    assertTrue(factory.indexOf("build_B();") < factory.indexOf("build_C();"));
+    assertTrue(factory.contains("dependsOn={\"org.incremental.A\",\"org.incremental.C2\"}"));
+  }
+
+  @Test
+  public void unchanged_skippedWhenResolvable() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-unchanged");
+    Path a = source(compiler, "A", "");
+    Path b = source(compiler, "B", "A a");
+    compiler.compileSuccessfully(a, b);
+    compiler.compileSuccessfully(a, b);
+    assertTrue(compiler.getGeneratedSources().isEmpty());
+  }
+
+  @Test
+  public void unchanged_writtenWhenClassOutputNotOnClassPath() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-unchanged-javac").withoutClassOutputOnClassPath();
+    Path a = source(compiler, "A", "");
+    Path b = source(compiler, "B", "A a");
+    compiler.compileSuccessfully(a, b);
+    compiler.compileSuccessfully(a, b);
+    assertEquals(set("org.incremental.A$di", "org.incremental.B$di", "org.incremental._di$Factory"), compiler.getGeneratedSources());
+  }
+
+  private static Set<String> set(String... values) {
+    return new TreeSet<>(Arrays.asList(values));
+  }
+
+  private static Path source(TestCompiler compiler, String name, String params) throws IOException {
+    return compiler.source("org.incremental." + name,
+      "package org.incremental;\n\n@javax.inject.Singleton\npublic class " + name + " {\n  public " + name + "(" + params + ") {\n  }\n}\n");
+  }
+}
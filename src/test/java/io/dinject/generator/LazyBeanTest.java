@@ -0,0 +1,91 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LazyBeanTest {
+
+  private static final String LAZY = "package org.lazy;\n\npublic @interface Lazy {\n}\n";
+
+  @Test
+  public void lazyBean_providerAndProxy() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-lazy").options("-Adinject.lazy=org.lazy.Lazy");
+    Path lazy = compiler.source("org.lazy.Lazy", LAZY);
+    Path repo = compiler.source("org.lazy.Repo", "package org.lazy;\n\n"
+      + "public interface Repo {\n"
+      + "  String find(long id) throws java.io.IOException;\n"
+      + "  void save(String... beans);\n"
+      + "  <R extends Comparable<R>> R max(java.util.List<R> values);\n"
+      + "}\n");
+    Path store = compiler.source("org.lazy.Store", "package org.lazy;\n\n"
+      + "@Lazy\n@javax.inject.Singleton\n"
+      + "public class Store implements Repo {\n"
+      + "  @javax.inject.Inject\n  Other other;\n"
+      + "  public String find(long id) { return null; }\n"
+      + "  public void save(String... beans) { }\n"
+      + "  public <R extends Comparable<R>> R max(java.util.List<R> values) { return null; }\n"
+      + "  @javax.annotation.PostConstruct\n  void init() { }\n"
+      + "}\n");
+    Path other = compiler.source("org.lazy.Other", "package org.lazy;\n\n"
+      + "@javax.inject.Singleton\npublic class Other {\n}\n");
+    Path user = compiler.source("org.lazy.User", "package org.lazy;\n\n"
+      + "@javax.inject.Singleton\npublic class User {\n"
+      + "  public User(javax.inject.Provider<Store> store, Repo repo) { }\n"
+      + "}\n");
+
+    compiler.compileSuccessfully(lazy, repo, store, other, user);
+
+    String storeDi = compiler.generatedSource("org.lazy.Store$di");
+    assertTrue(storeDi.contains("public static final class Lazy implements javax.inject.Provider<Store>"));
+    assertTrue(storeDi.contains("static final class LazyProxy implements org.lazy.Repo"));
+    assertTrue(storeDi.contains("bean.init();"));
+    assertTrue(storeDi.contains("public <R extends java.lang.Comparable<R>> R max(java.util.List<R> p0) {"));
+    assertTrue(storeDi.contains("public void save(java.lang.String... p0) {"));
+    assertFalse(storeDi.contains("addLifecycle"));
+
+    String userDi = compiler.generatedSource("org.lazy.User$di");
+    assertTrue(userDi.contains("builder.get(Store$di.Lazy.class)"));
+  }
+
+  @Test
+  public void provider_ofEagerBean_isError() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-lazy");
+    Path other = compiler.source("org.lazy.Other", "package org.lazy;\n\n"
+      + "@javax.inject.Singleton\npublic class Other {\n}\n");
+    Path user = compiler.source("org.lazy.User", "package org.lazy;\n\n"
+      + "@javax.inject.Singleton\npublic class User {\n"
+      + "  public User(javax.inject.Provider<Other> other) { }\n"
+      + "}\n");
+
+    assertFalse(compiler.compile(other, user));
+    assertTrue(compiler.getDiagnostics(), compiler.getDiagnostics().contains("requires org.lazy.Other to be @Lazy"));
+  }
+
+  @Test
+  public void otherLazyAnnotation_isEager() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-lazy");
+    Path lazy = compiler.source("org.lazy.Lazy", LAZY);
+    Path store = compiler.source("org.lazy.Store", "package org.lazy;\n\n"
+      + "@Lazy\n@javax.inject.Singleton\npublic class Store {\n}\n");
+    Path user = compiler.source("org.lazy.User", "package org.lazy;\n\n"
+      + "@javax.inject.Singleton\npublic class User {\n"
+      + "  public User(Store store) { }\n"
+      + "}\n");
+
+    compiler.compileSuccessfully(lazy, store, user);
+
+    // without dinject.lazy no annotation is lazy and the one named Lazy is noted
+    assertTrue(compiler.getDiagnostics(), compiler.getDiagnostics().contains("org.lazy.Lazy is not a lazy annotation"));
+    assertTrue(compiler.getDiagnostics(), compiler.getDiagnostics().contains("-Adinject.lazy=org.lazy.Lazy"));
+    assertFalse(compiler.generatedSource("org.lazy.Store$di").contains("class Lazy"));
+    assertTrue(compiler.generatedSource("org.lazy.User$di").contains("builder.get(Store.class)"));
+  }
+}
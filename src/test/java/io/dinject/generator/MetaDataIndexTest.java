@@ -0,0 +1,129 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class MetaDataIndexTest {
+
+  @Test
+  public void writeRead() throws Exception {
+
+    MetaData bean = new MetaData("org.foo.CoffeeMaker");
+    bean.setSource("org.foo.CoffeeMaker");
+    bean.getProvides().add("org.foo.Maker");
+    bean.getDependsOn().addAll(Arrays.asList("org.foo.Pump", "org.foo.Grinder"));
+    bean.setParams(Arrays.asList(new MethodReader.MethodParam("org.foo.Pump", null),
+      new MethodReader.MethodParam("java.util.List<org.foo.Grinder>", "fine")));
+    bean.setRegistrations(Collections.singletonList(new MetaData.Registration("org.foo.CoffeeMaker", "espresso",
+      MetaData.Registration.PRIMARY, Arrays.asList("org.foo.Maker", "org.foo.Marker"))));
+
+    MetaData method = new MetaData("org.foo.Pump");
+    method.setMethod("org.foo.MyFactory$di.build_pump");
+    method.getDependsOn().add("org.foo.MyFactory");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    new MetaDataIndex().write(out, Arrays.asList(bean, method));
+    out.flush();
+
+    List<MetaData> read = MetaDataIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertEquals(2, read.size());
+    MetaData readBean = read.get(0);
+    assertEquals("org.foo.CoffeeMaker", readBean.getType());
+    assertNull(readBean.getMethod());
+    assertEquals("org.foo.CoffeeMaker", readBean.getSource());
+    assertEquals(Collections.singletonList("org.foo.Maker"), readBean.getProvides());
+    assertEquals(Arrays.asList("org.foo.Pump", "org.foo.Grinder"), readBean.getDependsOn());
+    List<MethodReader.MethodParam> params = readBean.getParams();
+    assertEquals(2, params.size());
+    assertEquals("org.foo.Pump", params.get(0).getRawType());
+    assertNull(params.get(0).getNamed());
+    assertEquals("java.util.List<org.foo.Grinder>", params.get(1).getRawType());
+    assertEquals("org.foo.Grinder", params.get(1).getDependsOn());
+    assertEquals("fine", params.get(1).getNamed());
+    MetaData.Registration registration = readBean.getRegistrations().get(0);
+    assertEquals("org.foo.CoffeeMaker", registration.getType());
+    assertEquals("espresso", registration.getName());
+    assertEquals(MetaData.Registration.PRIMARY, registration.getPriority());
+    assertEquals(Arrays.asList("org.foo.Maker", "org.foo.Marker"), registration.getTypes());
+
+    MetaData readMethod = read.get(1);
+    assertEquals("org.foo.MyFactory$di.build_pump", readMethod.getMethod());
+    assertEquals("org.foo.MyFactory", readMethod.getSource());
+    assertEquals(Collections.singletonList("org.foo.MyFactory"), readMethod.getDependsOn());
+    assertNull(readMethod.getParams());
+    assertNull(readMethod.getRegistrations());
+  }
+
+  @Test
+  public void read_unknownFormat() throws Exception {
+    byte[] bytes = new byte[]{0, 0, 0, 1, 0, 1};
+    assertNull(MetaDataIndex.read(new DataInputStream(new ByteArrayInputStream(bytes))));
+  }
+
+  @Test
+  public void read_truncated() throws Exception {
+
+    MetaData bean = new MetaData("org.foo.CoffeeMaker");
+    bean.getDependsOn().add("org.foo.Pump");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    new MetaDataIndex().write(out, Collections.singletonList(bean));
+    out.flush();
+
+    byte[] content = bytes.toByteArray();
+    for (int length = 6; length < content.length; length++) {
+      assertReadFails(Arrays.copyOf(content, length));
+    }
+  }
+
+  @Test
+  public void read_invalidReference() throws Exception {
+    // no strings and a bean referencing string 5
+    assertReadFails(index(0, 1, 5));
+    // a bean without a type
+    assertReadFails(index(0, 1, -1));
+  }
+
+  @Test
+  public void read_invalidSize() throws Exception {
+    assertReadFails(index(-1));
+    // a huge string table and count are not allocated up front
+    assertReadFails(index(Integer.MAX_VALUE));
+    assertReadFails(index(0, Integer.MAX_VALUE));
+  }
+
+  private static byte[] index(int... values) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0x64696e6a);
+    out.writeShort(3);
+    for (int value : values) {
+      out.writeInt(value);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void assertReadFails(byte[] bytes) {
+    try {
+      MetaDataIndex.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+      fail("expected IOException reading " + bytes.length + " bytes");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
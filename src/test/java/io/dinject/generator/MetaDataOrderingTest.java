@@ -0,0 +1,309 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MetaDataOrderingTest {
+
+  @Test
+  public void processQueue_orderAsPerSweep() {
+
+    List<MetaData> list = new ArrayList<>();
+    list.add(meta("org.C", "org.IB"));
+    list.add(meta("org.A"));
+    MetaData b = meta("org.B", "org.D");
+    b.getProvides().add("org.IB");
+    list.add(b);
+    list.add(meta("org.D", "org.A"));
+    list.add(meta("org.E", "org.Missing"));
+
+    MetaDataOrdering ordering = new MetaDataOrdering(list, null);
+    assertEquals(1, ordering.processQueue());
+    assertEquals(Arrays.asList("org.A", "org.D", "org.B", "org.C", "org.E"), types(ordering.getOrdered()));
+  }
+
+  @Test
+  public void getLevels() {
+
+    List<MetaData> list = new ArrayList<>();
+    list.add(meta("org.C", "org.IB", "org.A"));
+    list.add(meta("org.A"));
+    MetaData b = meta("org.B", "org.D");
+    b.getProvides().add("org.IB");
+    list.add(b);
+    list.add(meta("org.D", "org.A"));
+    list.add(meta("org.F"));
+    list.add(meta("org.G", "org.F"));
+    list.add(meta("org.E", "org.Missing"));
+
+    MetaDataOrdering ordering = new MetaDataOrdering(list, null);
+    ordering.processQueue();
+
+    List<List<MetaData>> levels = ordering.getLevels();
+    assertEquals(4, levels.size());
+    assertEquals(Arrays.asList("org.A", "org.F"), types(levels.get(0)));
+    assertEquals(Arrays.asList("org.D", "org.G"), types(levels.get(1)));
+    assertEquals(Arrays.asList("org.B"), types(levels.get(2)));
+    assertEquals(Arrays.asList("org.C"), types(levels.get(3)));
+    assertEquals(Arrays.asList("org.E"), types(ordering.getUnsatisfied()));
+  }
+
+  @Test
+  public void getUniqueProvider() {
+
+    List<MetaData> list = new ArrayList<>();
+    MetaData a = meta("org.A");
+    a.getProvides().add("org.IA");
+    list.add(a);
+    MetaData b = meta("org.B", "org.IA");
+    b.getProvides().add("org.IB");
+    list.add(b);
+    MetaData c = meta("org.C");
+    c.getProvides().add("org.IB");
+    list.add(c);
+
+    MetaDataOrdering ordering = new MetaDataOrdering(list, null);
+    assertEquals(0, ordering.processQueue());
+    assertEquals(a, ordering.getUniqueProvider("org.IA"));
+    assertEquals(b, ordering.getUniqueProvider("org.B"));
+    assertNull(ordering.getUniqueProvider("org.IB"));
+    assertNull(ordering.getUniqueProvider("org.Unknown"));
+  }
+
+  @Test
+  public void findCycles() {
+
+    List<MetaData> list = new ArrayList<>();
+    list.add(meta("org.A"));
+    list.add(meta("org.B", "org.A", "org.D"));
+    list.add(meta("org.C", "org.B"));
+    MetaData d = meta("org.D", "org.IC");
+    list.add(d);
+    list.add(meta("org.E", "org.C"));
+    MetaData self = meta("org.F", "org.IF");
+    self.getProvides().add("org.IF");
+    list.add(self);
+    list.add(meta("org.G", "org.Missing"));
+    MetaData c = list.get(2);
+    c.getProvides().add("org.IC");
+
+    MetaDataOrdering ordering = new MetaDataOrdering(list, null);
+    assertEquals(6, ordering.processQueue());
+
+    List<List<MetaData>> cycles = ordering.findCycles();
+    assertEquals(2, cycles.size());
+    assertEquals(Arrays.asList("org.B", "org.D", "org.C"), types(cycles.get(0)));
+    assertEquals(Arrays.asList("org.F"), types(cycles.get(1)));
+  }
+
+  @Test
+  public void cycle_errorOnSourceElements() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-cycle");
+    boolean success = compiler.compile(
+      compiler.source("org.cy.A", "package org.cy;\n\n@javax.inject.Singleton\npublic class A {\n  public A(B b) { }\n}\n"),
+      compiler.source("org.cy.B", "package org.cy;\n\n@javax.inject.Singleton\npublic class B {\n  public B(A a) { }\n}\n"),
+      compiler.source("org.cy.C", "package org.cy;\n\n@javax.inject.Singleton\npublic class C {\n  public C(A a, org.other.Ext ext) { }\n}\n"),
+      compiler.source("org.other.Ext", "package org.other;\n\npublic class Ext {\n}\n"));
+
+    assertFalse(success);
+    String diagnostics = compiler.getDiagnostics();
+    assertTrue(diagnostics.contains("A.java:4: error: Dependency cycle org.cy.A -> org.cy.B -> org.cy.A"));
+    assertTrue(diagnostics.contains("B.java:4: error: Dependency cycle org.cy.A -> org.cy.B -> org.cy.A"));
+    assertTrue(diagnostics.contains("unsatisfied dependencies on org.cy.C dependsOn [org.cy.A, org.other.Ext] (assuming external [org.other.Ext])"));
+    assertFalse(diagnostics.contains("unsatisfied dependencies on org.cy.A"));
+  }
+
+  /**
+   * The timeout only guards against quadratic blow up.
+   */
+  @Test(timeout = 60_000)
+  public void findCycles_largeRing() {
+
+    int count = 100_000;
+    List<MetaData> list = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      list.add(meta("org.ring.R" + i, "org.ring.R" + ((i + 1) % count)));
+    }
+    list.add(meta("org.ring.Outside", "org.ring.R0"));
+
+    MetaDataOrdering ordering = new MetaDataOrdering(list, null);
+    assertEquals(count + 1, ordering.processQueue());
+
+    List<List<MetaData>> cycles = ordering.findCycles();
+
+    assertEquals(1, cycles.size());
+    assertEquals(count, cycles.get(0).size());
+    assertEquals("org.ring.R0", cycles.get(0).get(0).getType());
+    assertEquals("org.ring.R1", cycles.get(0).get(1).getType());
+    assertEquals("org.ring.R" + (count - 1), cycles.get(0).get(count - 1).getType());
+  }
+
+  @Test
+  public void processQueue_sameAsSweep_randomGraphs() {
+
+    Random random = new Random(42);
+    for (int run = 0; run < 200; run++) {
+      int count = 1 + random.nextInt(60);
+      List<MetaData> expected = randomGraph(random, count, run);
+      List<MetaData> actual = copy(expected);
+
+      List<String> expectedOrder = types(legacyOrder(expected));
+      MetaDataOrdering ordering = new MetaDataOrdering(actual, null);
+      ordering.processQueue();
+      assertEquals(expectedOrder, types(ordering.getOrdered()));
+    }
+  }
+
+  /**
+   * The timeout only guards against quadratic blow up.
+   */
+  @Test(timeout = 60_000)
+  public void processQueue_largeGraph() {
+
+    int count = 50_000;
+    Random random = new Random(7);
+    List<MetaData> list = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      // depend on a few beans declared later so that many sweeps would be required
+      MetaData meta = meta("org.bean.B" + i);
+      for (int d = 0; d < 3 && i + 1 < count; d++) {
+        meta.getDependsOn().add("org.bean.B" + (i + 1 + random.nextInt(Math.min(50, count - i - 1))));
+      }
+      list.add(meta);
+    }
+
+    MetaDataOrdering ordering = new MetaDataOrdering(list, null);
+    assertEquals(0, ordering.processQueue());
+
+    List<MetaData> ordered = ordering.getOrdered();
+    assertEquals(count, ordered.size());
+    // the bean without dependencies first and each bean after the beans it depends on
+    assertEquals("org.bean.B" + (count - 1), ordered.get(0).getType());
+    Map<String, Integer> positions = new HashMap<>();
+    for (int i = 0; i < ordered.size(); i++) {
+      positions.put(ordered.get(i).getType(), i);
+    }
+    for (MetaData meta : ordered) {
+      for (String dependsOn : meta.getDependsOn()) {
+        assertTrue(meta.getType() + " before " + dependsOn, positions.get(dependsOn) < positions.get(meta.getType()));
+      }
+    }
+  }
+
+  private static MetaData meta(String type, String... dependsOn) {
+    MetaData meta = new MetaData(type);
+    meta.getDependsOn().addAll(Arrays.asList(dependsOn));
+    return meta;
+  }
+
+  private static List<MetaData> randomGraph(Random random, int count, int run) {
+    List<MetaData> list = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      MetaData meta = meta("org.R" + run + "_" + i);
+      if (random.nextInt(4) == 0) {
+        meta.getProvides().add("org.I" + random.nextInt(5));
+      }
+      int deps = random.nextInt(4);
+      for (int d = 0; d < deps; d++) {
+        int choice = random.nextInt(10);
+        if (choice == 0) {
+          meta.getDependsOn().add("org.I" + random.nextInt(5));
+        } else if (choice == 1) {
+          meta.getDependsOn().add("org.External");
+        } else {
+          meta.getDependsOn().add("org.R" + run + "_" + random.nextInt(count));
+        }
+      }
+      list.add(meta);
+    }
+    return list;
+  }
+
+  private static List<MetaData> copy(List<MetaData> source) {
+    List<MetaData> list = new ArrayList<>(source.size());
+    for (MetaData meta : source) {
+      MetaData copy = new MetaData(meta.getType());
+      copy.getProvides().addAll(meta.getProvides());
+      copy.getDependsOn().addAll(meta.getDependsOn());
+      list.add(copy);
+    }
+    return list;
+  }
+
+  private static List<String> types(List<MetaData> list) {
+    List<String> types = new ArrayList<>(list.size());
+    for (MetaData meta : list) {
+      types.add(meta.getType());
+    }
+    return types;
+  }
+
+  /**
+   * The original ordering - repeatedly sweep the queue until no more beans are wired.
+   */
+  private static List<MetaData> legacyOrder(List<MetaData> values) {
+
+    List<MetaData> ordered = new ArrayList<>();
+    List<MetaData> queue = new ArrayList<>();
+    Map<String, List<MetaData>> providers = new HashMap<>();
+    for (MetaData meta : values) {
+      if (meta.noDepends()) {
+        ordered.add(meta);
+        meta.setWired();
+      } else {
+        queue.add(meta);
+      }
+      providers.computeIfAbsent(meta.getType(), s -> new ArrayList<>()).add(meta);
+      for (String provide : meta.getProvides()) {
+        providers.computeIfAbsent(provide, s -> new ArrayList<>()).add(meta);
+      }
+    }
+
+    int count;
+    do {
+      count = 0;
+      Iterator<MetaData> iterator = queue.iterator();
+      while (iterator.hasNext()) {
+        MetaData queued = iterator.next();
+        if (allWired(queued, providers)) {
+          ordered.add(queued);
+          queued.setWired();
+          iterator.remove();
+          count++;
+        }
+      }
+    } while (count > 0);
+
+    ordered.addAll(queue);
+    return ordered;
+  }
+
+  private static boolean allWired(MetaData queued, Map<String, List<MetaData>> providers) {
+    for (String dependency : queued.getDependsOn()) {
+      List<MetaData> list = providers.get(dependency);
+      if (list == null) {
+        return false;
+      }
+      for (MetaData provider : list) {
+        if (!provider.isWired()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,129 @@
+package io.dinject.generator;
+
+import io.dinject.core.BeanContextFactory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ModuleOrderTest {
+
+  @Test
+  public void descriptor_parse() {
+
+    ModuleDescriptor module = new ModuleDescriptor("a", "org.a._di$Factory", Arrays.asList("x", "y"),
+      Arrays.asList("z"), new LinkedHashSet<>(Arrays.asList("org.a.A", "org.a.IA")));
+
+    String content = module.toContent();
+    assertEquals("name=a\nfactory=org.a._di$Factory\nprovides=x,y\ndependsOn=z\nbeans=org.a.A,org.a.IA\n", content);
+
+    ModuleDescriptor read = ModuleDescriptor.parse(content);
+    assertEquals("a", read.getName());
+    assertEquals("org.a._di$Factory", read.getFactory());
+    assertEquals(Arrays.asList("x", "y"), read.getProvides());
+    assertEquals(Arrays.asList("z"), read.getDependsOn());
+    assertEquals(module.getBeans(), read.getBeans());
+
+    assertTrue(ModuleDescriptor.parse("name=b\nfactory=org.b._di$Factory\nprovides=\n").getProvides().isEmpty());
+    assertNull(ModuleDescriptor.parse("name=b\n"));
+  }
+
+  @Test
+  public void applicationModule_ordersModulesOnClassPath() throws IOException {
+
+    TestCompiler a = new TestCompiler("dinject-module-a");
+    a.compileSuccessfully(
+      a.source("org.ma.Module", "package org.ma;\n\n@io.dinject.ContextModule(name=\"a\", provides=\"feature-a\")\npublic class Module {\n}\n"),
+      a.source("org.ma.A", "package org.ma;\n\n@javax.inject.Singleton\npublic class A {\n}\n"));
+
+    assertEquals("name=a\nfactory=org.ma._di$Factory\nprovides=feature-a\ndependsOn=\nbeans=org.ma.A\n", a.classOutput("META-INF/dinject/a.module"));
+    assertEquals("a", a.classOutput("META-INF/dinject/feature-a.provides"));
+    assertFalse(a.getGeneratedSources().contains("org.ma._di$Modules"));
+
+    TestCompiler b = new TestCompiler("dinject-module-b").classPath(a);
+    b.compileSuccessfully(
+      b.source("org.mb.Module", "package org.mb;\n\n@io.dinject.ContextModule(name=\"b\", dependsOn=\"feature-a\")\npublic class Module {\n}\n"),
+      b.source("org.mb.B", "package org.mb;\n\n@javax.inject.Singleton\npublic class B {\n  public B(org.ma.A a) { }\n}\n"));
+
+    TestCompiler app = new TestCompiler("dinject-module-app").classPath(a, b).options("-Adinject.moduleOrder", "-Adinject.registry");
+    app.compileSuccessfully(
+      app.source("org.app.Module", "package org.app;\n\n@io.dinject.ContextModule(name=\"app\", dependsOn={\"b\", \"a\", \"missing\"})\npublic class Module {\n}\n"),
+      app.source("org.app.C", "package org.app;\n\n@javax.inject.Singleton\npublic class C {\n  public C(org.mb.B b) { }\n}\n"));
+
+    String modules = app.generatedSource("org.app._di$Modules");
+    assertTrue(modules.contains("    return new String[]{\"a\", \"b\", \"app\"};\n"));
+    assertTrue(modules.contains("    return new BeanContextFactory[]{new org.ma._di$Factory(), new org.mb._di$Factory(), new org.app._di$Factory()};\n"));
+    assertTrue(app.getDiagnostics().contains("No module descriptor found on the classpath for missing (dependency of app)"));
+
+    String registry = app.generatedSource("org.app._di$Registry");
+    assertTrue(registry.startsWith("package org.app;"));
+    assertTrue(registry.contains("public final class _di$Registry {"));
+    assertTrue(registry.contains("    return new BeanContextFactory[]{new org.ma._di$Factory(), new org.mb._di$Factory(), new org.app._di$Factory()};\n"));
+  }
+
+  @Test
+  public void externalDependencies_verifiedAgainstDependsOnModules() throws IOException {
+
+    TestCompiler a = new TestCompiler("dinject-verify-a");
+    a.compileSuccessfully(
+      a.source("org.va.Module", "package org.va;\n\n@io.dinject.ContextModule(name=\"a\", provides=\"feature-a\")\npublic class Module {\n}\n"),
+      a.source("org.va.IA", "package org.va;\n\npublic interface IA {\n}\n"),
+      a.source("org.va.A", "package org.va;\n\n@javax.inject.Singleton\npublic class A implements IA {\n}\n"),
+      a.source("org.va.Other", "package org.va;\n\npublic class Other {\n}\n"));
+
+    TestCompiler app = new TestCompiler("dinject-verify-app").classPath(a);
+    Path module = app.source("org.vapp.Module", "package org.vapp;\n\n@io.dinject.ContextModule(name=\"app\", dependsOn=\"feature-a\")\npublic class Module {\n}\n");
+    Path provided = app.source("org.vapp.C", "package org.vapp;\n\n@javax.inject.Singleton\npublic class C {\n"
+      + "  public C(org.va.IA a, java.util.Optional<org.va.Other> other, java.util.List<org.va.Other> others) { }\n}\n");
+    app.compileSuccessfully(module, provided);
+    assertFalse(app.getDiagnostics().contains("which is not provided"));
+
+    Path missing = app.source("org.vapp.D", "package org.vapp;\n\n@javax.inject.Singleton\npublic class D {\n  public D(org.va.Other other) { }\n}\n");
+    assertFalse(app.compile(module, provided, missing));
+    assertTrue(app.getDiagnostics().contains("D.java:4: error: org.vapp.D depends on org.va.Other which is not provided by this module or the modules it depends on [feature-a]"));
+  }
+
+  @Test
+  public void externalDependencies_notVerifiedWithoutDescriptor() throws IOException {
+
+    TestCompiler app = new TestCompiler("dinject-verify-none");
+    app.compileSuccessfully(
+      app.source("org.vn.Module", "package org.vn;\n\n@io.dinject.ContextModule(name=\"app\", dependsOn=\"unknown\")\npublic class Module {\n}\n"),
+      app.source("org.vn.Ext", "package org.vn;\n\npublic class Ext {\n}\n"),
+      app.source("org.vn.C", "package org.vn;\n\n@javax.inject.Singleton\npublic class C {\n  public C(Ext ext) { }\n}\n"));
+    assertTrue(app.getDiagnostics().contains("Not verifying external dependencies - no module descriptor found on the classpath for [unknown]"));
+  }
+
+  @Test
+  public void registry_createsFactoryDirectly() throws Exception {
+
+    TestCompiler compiler = new TestCompiler("dinject-registry").options("-Adinject.moduleOrder", "-Adinject.registry");
+    compiler.compileSuccessfully(compiler.source("org.rg.A", "package org.rg;\n\n@javax.inject.Singleton\npublic class A {\n}\n"));
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{compiler.classOutputDir().toUri().toURL()}, getClass().getClassLoader())) {
+      BeanContextFactory[] factories = (BeanContextFactory[]) loader.loadClass("org.rg._di$Registry").getMethod("factories").invoke(null);
+      assertEquals(1, factories.length);
+      assertEquals("org.rg._di$Factory", factories[0].getClass().getName());
+      assertNotNull(factories[0].createContext(null).getBean(loader.loadClass("org.rg.A")));
+    }
+  }
+
+  @Test
+  public void registry_withoutModuleOrder_isError() throws Exception {
+
+    TestCompiler compiler = new TestCompiler("dinject-registry-error").options("-Adinject.registry");
+    assertFalse(compiler.compile(compiler.source("org.re.A", "package org.re;\n\n@javax.inject.Singleton\npublic class A {\n}\n")));
+    assertTrue(compiler.getDiagnostics(), compiler.getDiagnostics().contains("dinject.registry requires dinject.moduleOrder"));
+    assertFalse(compiler.getGeneratedSources().contains("org.re._di$Registry"));
+  }
+}
@@ -0,0 +1,59 @@
+package io.dinject.generator;
+
+import io.dinject.BeanContext;
+import io.dinject.core.BeanContextFactory;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelBuildTest {
+
+  @Test
+  public void multiLevelModule_wiredAsBuiltSequentially() throws Exception {
+
+    TestCompiler compiler = new TestCompiler("dinject-parallel-build").options("-Adinject.parallelBuild=4");
+    compiler.compileSuccessfully(
+      compiler.source("org.pb.A", "package org.pb;\n\n@javax.inject.Singleton\npublic class A {\n}\n"),
+      compiler.source("org.pb.A2", "package org.pb;\n\n@javax.inject.Singleton\npublic class A2 {\n}\n"),
+      compiler.source("org.pb.B", "package org.pb;\n\n@javax.inject.Singleton\npublic class B {\n  public final A a;\n"
+        + "  public B(A a) {\n    this.a = a;\n  }\n}\n"),
+      compiler.source("org.pb.B2", "package org.pb;\n\n@javax.inject.Singleton\npublic class B2 {\n  public final A a;\n  public final A2 a2;\n"
+        + "  public B2(A a, A2 a2) {\n    this.a = a;\n    this.a2 = a2;\n  }\n}\n"),
+      compiler.source("org.pb.D", "package org.pb;\n\npublic class D {\n  public final A a;\n  public D(A a) {\n    this.a = a;\n  }\n}\n"),
+      compiler.source("org.pb.DFactory", "package org.pb;\n\n@io.dinject.Factory\npublic class DFactory {\n"
+        + "  @io.dinject.Bean\n  public D d(A a) {\n    return new D(a);\n  }\n}\n"),
+      compiler.source("org.pb.C", "package org.pb;\n\n@javax.inject.Singleton\npublic class C {\n  public final B b;\n  public final B2 b2;\n"
+        + "  public C(B b, B2 b2) {\n    this.b = b;\n    this.b2 = b2;\n  }\n}\n"));
+
+    String factory = compiler.generatedSource("org.pb._di$Factory");
+    // the whole level is awaited before the first bean of the level is registered
+    assertTrue(factory.contains("    org.pb.B b0 = await(f0);\n    org.pb.B2 b1 = await(f1);\n    build_D();\n"
+      + "    B$di.register(builder, b0);\n    B2$di.register(builder, b1);\n"));
+    assertFalse(factory.contains("register(builder, await("));
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{compiler.classOutputDir().toUri().toURL()}, getClass().getClassLoader())) {
+      BeanContextFactory contextFactory = (BeanContextFactory) loader.loadClass("org.pb._di$Factory").newInstance();
+      BeanContext context = contextFactory.createContext(null);
+
+      Object a = context.getBean(loader.loadClass("org.pb.A"));
+      Object b = context.getBean(loader.loadClass("org.pb.B"));
+      Object b2 = context.getBean(loader.loadClass("org.pb.B2"));
+      Object c = context.getBean(loader.loadClass("org.pb.C"));
+      assertSame(a, field(b, "a"));
+      assertSame(a, field(b2, "a"));
+      assertSame(context.getBean(loader.loadClass("org.pb.A2")), field(b2, "a2"));
+      assertSame(b, field(c, "b"));
+      assertSame(b2, field(c, "b2"));
+      assertSame(a, field(context.getBean(loader.loadClass("org.pb.D")), "a"));
+    }
+  }
+
+  private static Object field(Object bean, String name) throws ReflectiveOperationException {
+    return bean.getClass().getField(name).get(bean);
+  }
+}
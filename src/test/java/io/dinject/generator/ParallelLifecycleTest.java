@@ -0,0 +1,100 @@
+package io.dinject.generator;
+
+import io.dinject.BeanContext;
+import io.dinject.core.BeanContextFactory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelLifecycleTest {
+
+  @Test
+  public void factoryManagedLifecycle_byLevel() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-lifecycle").options("-Adinject.parallelLifecycle");
+    Path a = compiler.source("org.lc.A", "package org.lc;\n\n@javax.inject.Singleton\npublic class A {\n"
+      + "  @javax.annotation.PostConstruct\n  void init() { }\n"
+      + "  @javax.annotation.PreDestroy\n  void close() { }\n}\n");
+    Path b = compiler.source("org.lc.B", "package org.lc;\n\n@javax.inject.Singleton\npublic class B implements io.dinject.core.BeanLifecycle {\n"
+      + "  public B(A a) { }\n"
+      + "  public void postConstruct() { }\n"
+      + "  public void preDestroy() { }\n}\n");
+    Path c = compiler.source("org.lc.C", "package org.lc;\n\n@javax.inject.Singleton\npublic class C {\n"
+      + "  public C(A a) { }\n"
+      + "  @javax.annotation.PostConstruct\n  void init() { }\n}\n");
+    Path d = compiler.source("org.lc.D", "package org.lc;\n\n@javax.inject.Singleton\npublic class D {\n"
+      + "  public D(B b, C c) { }\n}\n");
+
+    compiler.compileSuccessfully(a, b, c, d);
+
+    String factory = compiler.generatedSource("org.lc._di$Factory");
+    assertTrue(factory.contains("lifecycle.add(0, \"org.lc.A\", A$di.lifecycle(bean));"));
+    assertTrue(factory.contains("lifecycle.add(1, \"org.lc.B\", B$di.lifecycle(bean));"));
+    assertTrue(factory.contains("lifecycle.add(1, \"org.lc.C\", C$di.lifecycle(bean));"));
+    assertFalse(factory.contains("\"org.lc.D\", D$di.lifecycle"));
+    assertTrue(factory.contains("builder.addLifecycle(lifecycle);"));
+    assertTrue(factory.contains("private static final int THREADS = Runtime.getRuntime().availableProcessors();"));
+    assertTrue(factory.contains("Executors.newFixedThreadPool(threads, runnable -> {"));
+    assertFalse(factory.contains("parallelStream()"));
+
+    String aDi = compiler.generatedSource("org.lc.A$di");
+    assertTrue(aDi.contains("public static BeanLifecycle lifecycle(A bean) {"));
+    assertFalse(aDi.contains("builder.addLifecycle("));
+  }
+
+  @Test
+  public void factoryMethodBean_lifecycleInDependencyOrder() throws Exception {
+
+    TestCompiler compiler = new TestCompiler("dinject-lifecycle-order").options("-Adinject.parallelLifecycle");
+    compiler.compileSuccessfully(
+      compiler.source("org.lo.Events", "package org.lo;\n\npublic class Events {\n"
+        + "  public static final java.util.List<String> POST_CONSTRUCT = new java.util.ArrayList<>();\n}\n"),
+      compiler.source("org.lo.A", "package org.lo;\n\n@javax.inject.Singleton\npublic class A {\n"
+        + "  @javax.annotation.PostConstruct\n  void init() {\n    Events.POST_CONSTRUCT.add(\"A\");\n  }\n}\n"),
+      compiler.source("org.lo.D", "package org.lo;\n\npublic class D {\n"
+        + "  public void init() {\n    Events.POST_CONSTRUCT.add(\"D\");\n  }\n}\n"),
+      compiler.source("org.lo.DFactory", "package org.lo;\n\n@io.dinject.Factory\npublic class DFactory {\n"
+        + "  @io.dinject.Bean(initMethod=\"init\")\n  public D d(A a) {\n    return new D();\n  }\n}\n"),
+      compiler.source("org.lo.C", "package org.lo;\n\n@javax.inject.Singleton\npublic class C {\n  public C(D d) { }\n"
+        + "  @javax.annotation.PostConstruct\n  void init() {\n    Events.POST_CONSTRUCT.add(\"C\");\n  }\n}\n"));
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{compiler.classOutputDir().toUri().toURL()}, getClass().getClassLoader())) {
+      BeanContextFactory contextFactory = (BeanContextFactory) loader.loadClass("org.lo._di$Factory").newInstance();
+      BeanContext context = contextFactory.createContext(null);
+      context.start();
+      Object events = loader.loadClass("org.lo.Events").getField("POST_CONSTRUCT").get(null);
+      assertEquals(Arrays.asList("A", "D", "C"), events);
+    }
+  }
+
+  @Test
+  public void lifecycle_runsOnDedicatedThreads() throws Exception {
+
+    TestCompiler compiler = new TestCompiler("dinject-lifecycle-threads").options("-Adinject.parallelLifecycle", "-Adinject.parallelBuild=2");
+    compiler.compileSuccessfully(
+      compiler.source("org.lt.Events", "package org.lt;\n\npublic class Events {\n"
+        + "  public static final java.util.Set<String> THREADS = java.util.Collections.synchronizedSet(new java.util.HashSet<>());\n}\n"),
+      compiler.source("org.lt.A", "package org.lt;\n\n@javax.inject.Singleton\npublic class A {\n"
+        + "  @javax.annotation.PostConstruct\n  void init() {\n    Events.THREADS.add(Thread.currentThread().getName());\n  }\n}\n"),
+      compiler.source("org.lt.B", "package org.lt;\n\n@javax.inject.Singleton\npublic class B {\n"
+        + "  @javax.annotation.PostConstruct\n  void init() {\n    Events.THREADS.add(Thread.currentThread().getName());\n  }\n}\n"));
+
+    assertTrue(compiler.generatedSource("org.lt._di$Factory").contains("private static final int THREADS = 2;"));
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{compiler.classOutputDir().toUri().toURL()}, getClass().getClassLoader())) {
+      BeanContextFactory contextFactory = (BeanContextFactory) loader.loadClass("org.lt._di$Factory").newInstance();
+      BeanContext context = contextFactory.createContext(null);
+      context.start();
+      Object threads = loader.loadClass("org.lt.Events").getField("THREADS").get(null);
+      assertEquals(Collections.singleton("dinject-lifecycle"), threads);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelRenderTest {
+
+  @Test
+  public void parallelRender_sameSourcesAsSerial() throws IOException {
+
+    TestCompiler serial = new TestCompiler("dinject-render-serial").options("-Adinject.lazy=org.pr.Lazy");
+    TestCompiler parallel = new TestCompiler("dinject-render-parallel").options("-Adinject.lazy=org.pr.Lazy", "-Adinject.parallel=4");
+    serial.compileSuccessfully(sources(serial));
+    parallel.compileSuccessfully(sources(parallel));
+
+    assertEquals(serial.getGeneratedSources(), parallel.getGeneratedSources());
+    int diClasses = 0;
+    for (String className : serial.getGeneratedSources()) {
+      if (className.endsWith("$di")) {
+        diClasses++;
+        byte[] expected = Files.readAllBytes(serial.generatedPath(className));
+        byte[] actual = Files.readAllBytes(parallel.generatedPath(className));
+        assertTrue(className, Arrays.equals(expected, actual));
+      }
+    }
+    assertEquals(23, diClasses);
+  }
+
+  /**
+   * A module of plain, named, lazy, lifecycle and field injected beans and a factory.
+   */
+  private static Path[] sources(TestCompiler compiler) throws IOException {
+    List<Path> sources = new ArrayList<>();
+    sources.add(compiler.source("org.pr.Lazy", "package org.pr;\n\npublic @interface Lazy {\n}\n"));
+    sources.add(compiler.source("org.pr.Store", "package org.pr;\n\npublic interface Store {\n  String name();\n}\n"));
+    sources.add(compiler.source("org.pr.Red", "package org.pr;\n\n@javax.inject.Singleton\n@javax.inject.Named(\"red\")\n"
+      + "public class Red implements Store {\n  public String name() {\n    return \"red\";\n  }\n}\n"));
+    sources.add(compiler.source("org.pr.Slow", "package org.pr;\n\n@javax.inject.Singleton\n@Lazy\n"
+      + "public class Slow implements Store {\n  public String name() {\n    return \"slow\";\n  }\n}\n"));
+    sources.add(compiler.source("org.pr.Pool", "package org.pr;\n\npublic class Pool {\n}\n"));
+    sources.add(compiler.source("org.pr.PoolFactory", "package org.pr;\n\n@io.dinject.Factory\npublic class PoolFactory {\n"
+      + "  @io.dinject.Bean(initMethod = \"toString\")\n  public Pool pool(@javax.inject.Named(\"red\") Store store) {\n"
+      + "    return new Pool();\n  }\n}\n"));
+    for (int i = 0; i < 20; i++) {
+      StringBuilder body = new StringBuilder();
+      body.append("package org.pr;\n\n@javax.inject.Singleton\npublic class Bean").append(i).append(" {\n");
+      body.append("  @javax.inject.Inject\n  Pool pool;\n");
+      body.append("  public Bean").append(i).append("(");
+      if (i > 0) {
+        body.append("Bean").append(i - 1).append(" previous, ");
+      }
+      body.append("java.util.List<Store> stores) {\n  }\n");
+      body.append("  @javax.annotation.PostConstruct\n  void start() {\n  }\n}\n");
+      sources.add(compiler.source("org.pr.Bean" + i, body.toString()));
+    }
+    return sources.toArray(new Path[0]);
+  }
+}
@@ -0,0 +1,70 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProcessorMetricsTest {
+
+  @Test
+  public void toJson() {
+
+    ProcessorMetrics metrics = new ProcessorMetrics(true, "Processor");
+    metrics.startRound();
+    metrics.phase("readModule", metrics.start());
+    metrics.read(3);
+    metrics.skipped(1);
+    metrics.startRound();
+    metrics.written(1);
+
+    String json = metrics.toJson();
+    assertTrue(json.startsWith("{\n  \"processor\": \"Processor\",\n  \"totalNanos\": "));
+    assertTrue(json.contains("\n    \"readModule\": "));
+    assertTrue(json.contains("{\"round\": 1, \"nanos\": "));
+    assertTrue(json.contains(", \"read\": 3, \"skipped\": 1, \"written\": 0}"));
+    assertTrue(json.contains(", \"read\": 0, \"skipped\": 0, \"written\": 1}"));
+    assertTrue(metrics.summary().endsWith(" in 2 rounds - readModule 0ms - beans read 3 skipped 1 written 1 - rounds 1: 3/1/0 2: 0/0/1"));
+  }
+
+  @Test
+  public void disabled_recordsNothing() {
+
+    ProcessorMetrics metrics = new ProcessorMetrics(false, "Processor");
+    metrics.startRound();
+    metrics.phase("readModule", metrics.start());
+    metrics.read(3);
+    assertEquals("{\n  \"processor\": \"Processor\",\n  \"totalNanos\": 0,\n  \"phases\": {},\n  \"rounds\": []\n}\n", metrics.toJson());
+  }
+
+  @Test
+  public void compile_writesReports() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-metrics").options("-Adinject.metrics=true");
+    Path a = compiler.source("org.pm.A", "package org.pm;\n\n@javax.inject.Singleton\npublic class A {\n}\n");
+    Path b = compiler.source("org.pm.B", "package org.pm;\n\n@javax.inject.Singleton\npublic class B {\n  public B(A a) { }\n}\n");
+
+    compiler.compileSuccessfully(a, b);
+
+    String factory = compiler.classOutput(Constants.META_INF_FACTORY_METRICS);
+    assertTrue(factory.contains("\"readModule\": "));
+    assertTrue(factory.contains("\"buildOrdering\": "));
+    // processQueue is the ordering alone with the cycle, generic and limit checks after it
+    assertTrue(factory.indexOf("\"processQueue\": ") > factory.indexOf("\"buildOrdering\": "));
+    assertTrue(factory.indexOf("\"checkGraph\": ") > factory.indexOf("\"processQueue\": "));
+    assertTrue(factory.contains("\"writeBeanFactory\": "));
+    assertTrue(factory.contains("\"read\": 2, \"skipped\": 0, \"written\": 0}"));
+
+    assertFalse(Files.exists(compiler.classOutputDir().resolve("META-INF/dinject/bean-metrics.json")));
+
+    assertTrue(compiler.getDiagnostics().contains("dinject Processor "));
+    assertTrue(compiler.getDiagnostics().contains("dinject BeanProcessor "));
+    assertTrue(compiler.getDiagnostics().contains("renderBeanHelpers "));
+    assertTrue(compiler.getDiagnostics().contains("beans read 2 skipped 0 written 2 - rounds 1: 2/0/2"));
+  }
+}
@@ -0,0 +1,161 @@
+package io.dinject.generator;
+
+import io.dinject.BeanContext;
+import io.dinject.core.BeanContextFactory;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class RegistrationTableTest {
+
+  @Test
+  public void constantTypeArrays() throws Exception {
+
+    TestCompiler compiler = new TestCompiler("dinject-table").options("-Adinject.registrationTable");
+    compiler.compileSuccessfully(
+      compiler.source("org.rt.Store", "package org.rt;\n\npublic interface Store {\n}\n"),
+      compiler.source("org.rt.Audit", "package org.rt;\n\npublic interface Audit {\n}\n"),
+      compiler.source("org.rt.Marked", "package org.rt;\n\n@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\npublic @interface Marked {\n}\n"),
+      compiler.source("org.rt.A", "package org.rt;\n\n@javax.inject.Singleton\n@io.dinject.Primary\npublic class A implements Store, Audit {\n}\n"),
+      compiler.source("org.rt.B", "package org.rt;\n\n@javax.inject.Singleton\n@javax.inject.Named(\"b\")\npublic class B implements Store {\n"
+        + "  public B(A a) { }\n}\n"),
+      compiler.source("org.rt.C", "package org.rt;\n\n@javax.inject.Singleton\n@Marked\npublic class C {\n  public C(java.util.List<Store> stores) { }\n}\n"),
+      compiler.source("org.rt.D", "package org.rt;\n\npublic class D implements Audit {\n}\n"),
+      compiler.source("org.rt.DFactory", "package org.rt;\n\n@io.dinject.Factory\npublic class DFactory {\n"
+        + "  @io.dinject.Bean\n  public D d() {\n    return new D();\n  }\n}\n"));
+
+    String a = compiler.generatedSource("org.rt.A$di");
+    assertTrue(a.contains("  private static final Class<?>[] ADD_FOR = {A.class};\n"));
+    assertTrue(a.contains("  private static final Class<?>[] TYPES = {Store.class, Audit.class};\n"));
+    assertTrue(a.contains("    if (builder.isAddBeanFor(ADD_FOR)) {\n"));
+    assertTrue(a.contains("      builder.registerPrimary(bean, null, TYPES);\n"));
+    assertTrue(compiler.generatedSource("org.rt.B$di").contains("      builder.register(bean, \"b\", TYPES);\n"));
+    assertTrue(compiler.generatedSource("org.rt.C$di").contains("  private static final Class<?>[] TYPES = {Marked.class};\n"));
+    assertFalse(a.contains("Store.class, Audit.class);"));
+    // the bean methods of a factory register with their own types
+    assertTrue(compiler.generatedSource("org.rt.DFactory$di").contains("      builder.register(bean, null, Audit.class);\n"));
+
+    // A, B, C, DFactory and D by A, Store, Audit, B, C, Marked, DFactory and D
+    String factory = compiler.generatedSource("org.rt._di$Factory");
+    assertTrue(factory.contains("  public static final int BEAN_COUNT = 5;\n"));
+    assertTrue(factory.contains("  public static final int TYPE_COUNT = 8;\n"));
+    assertTrue(factory.contains("org.rt.A||1|org.rt.Store,org.rt.Audit\\n"));
+    assertTrue(factory.contains("org.rt.C||0|org.rt.Marked\\n"));
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{compiler.classOutputDir().toUri().toURL()}, getClass().getClassLoader())) {
+      BeanContextFactory contextFactory = (BeanContextFactory) loader.loadClass("org.rt._di$Factory").newInstance();
+      BeanContext context = contextFactory.createContext(null);
+      assertNotNull(context.getBean(loader.loadClass("org.rt.C")));
+      assertEquals("org.rt.A", context.getBean(loader.loadClass("org.rt.Audit")).getClass().getName());
+      assertNotNull(context.getBean(loader.loadClass("org.rt.D")));
+
+      String[] rows = registrationTable(loader.loadClass("org.rt._di$Factory"));
+      List<String> rowList = Arrays.asList(rows);
+      assertEquals(5, rows.length);
+      assertTrue(rowList.contains("org.rt.B|b|0|org.rt.Store"));
+      assertTrue(rowList.contains("org.rt.A||1|org.rt.Store,org.rt.Audit"));
+      assertTrue(rowList.contains("org.rt.D||0|org.rt.Audit"));
+    }
+  }
+
+  @Test
+  public void factoryTable_incremental() throws Exception {
+    touchBean(false);
+  }
+
+  @Test
+  public void factoryTable_incrementalWithoutIndex() throws Exception {
+    touchBean(true);
+  }
+
+  /**
+   * Compile, change B (removing its interface) and compile only B such that the table of the other beans
+   * is from the meta data index (or the beans are read again without the index).
+   */
+  private void touchBean(boolean deleteIndex) throws Exception {
+
+    TestCompiler compiler = new TestCompiler("dinject-table-incremental").options("-Adinject.registrationTable");
+    Path store = compiler.source("org.ti.Store", "package org.ti;\n\npublic interface Store {\n}\n");
+    Path a = compiler.source("org.ti.A", "package org.ti;\n\n@javax.inject.Singleton\n@javax.inject.Named(\"a\")\npublic class A implements Store {\n}\n");
+    Path b = compiler.source("org.ti.B", "package org.ti;\n\n@javax.inject.Singleton\npublic class B implements Store {\n  public B(A a) { }\n}\n");
+    compiler.compileSuccessfully(store, a, b);
+    assertTrue(compiler.generatedSource("org.ti._di$Factory").contains("  public static final int TYPE_COUNT = 3;\n"));
+
+    b = compiler.source("org.ti.B", "package org.ti;\n\n@javax.inject.Singleton\npublic class B {\n  public B(A a) { }\n}\n");
+    Files.delete(compiler.generatedPath("org.ti.B$di"));
+    Files.delete(compiler.generatedPath("org.ti._di$Factory"));
+    if (deleteIndex) {
+      Files.delete(compiler.classOutputDir().resolve(Constants.META_INF_INDEX));
+    }
+    compiler.compileSuccessfully(b);
+
+    String factory = compiler.generatedSource("org.ti._di$Factory");
+    assertTrue(factory.contains("  public static final int BEAN_COUNT = 2;\n"));
+    assertTrue(factory.contains("  public static final int TYPE_COUNT = 3;\n"));
+    assertTrue(factory.contains("    \"org.ti.A|a|0|org.ti.Store\\norg.ti.B||0|\\n\",\n"));
+  }
+
+  /**
+   * A large module compiles (the table does not grow the static initializer of the factory per bean)
+   * with the table split into parts.
+   */
+  @Test
+  public void largeModule_compilesAndRuns() throws Exception {
+
+    int count = 5_000;
+    TestCompiler compiler = new TestCompiler("dinject-table-large").options("-Adinject.registrationTable", "-Adinject.factoryChunkSize");
+    Path[] sources = new Path[count + 1];
+    sources[count] = compiler.source("org.tl.Store", "package org.tl;\n\npublic interface Store {\n}\n");
+    for (int i = 0; i < count; i++) {
+      String params = (i == 0) ? "" : "B" + (i - 1) + " b";
+      sources[i] = compiler.source("org.tl.B" + i, "package org.tl;\n\n@javax.inject.Singleton\n@javax.inject.Named(\"b" + i + "\")\n"
+        + "public class B" + i + " implements Store {\n  public B" + i + "(" + params + ") { }\n}\n");
+    }
+    compiler.compileSuccessfully(sources);
+
+    String factory = compiler.generatedSource("org.tl._di$Factory");
+    assertTrue(factory.contains("  public static final int BEAN_COUNT = " + count + ";\n"));
+    assertTrue(factory.contains("  public static final int TYPE_COUNT = " + (count + 1) + ";\n"));
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{compiler.classOutputDir().toUri().toURL()}, getClass().getClassLoader())) {
+      Class<?> factoryType = loader.loadClass("org.tl._di$Factory");
+      String[] rows = registrationTable(factoryType);
+      assertEquals(count, rows.length);
+      assertEquals("org.tl.B0|b0|0|org.tl.Store", rows[0]);
+      assertEquals("org.tl.B" + (count - 1) + "|b" + (count - 1) + "|0|org.tl.Store", rows[count - 1]);
+
+      BeanContext context = ((BeanContextFactory) factoryType.newInstance()).createContext(null);
+      assertNotNull(context.getBean(loader.loadClass("org.tl.B" + (count - 1))));
+    }
+  }
+
+  @Test
+  public void split_keepsSurrogatePairs() {
+
+    StringBuilder table = new StringBuilder();
+    for (int i = 0; i < RegistrationTable.PART_LENGTH - 1; i++) {
+      table.append('a');
+    }
+    table.append("\uD835\uDC9Cb\n");
+
+    List<String> parts = RegistrationTable.split(table.toString());
+    assertEquals(2, parts.size());
+    assertEquals(RegistrationTable.PART_LENGTH - 1, parts.get(0).length());
+    assertEquals("\uD835\uDC9Cb\n", parts.get(1));
+    assertEquals(0, RegistrationTable.split("").size());
+  }
+
+  private static String[] registrationTable(Class<?> factoryType) throws ReflectiveOperationException {
+    return (String[]) factoryType.getMethod("registrationTable").invoke(null);
+  }
+}
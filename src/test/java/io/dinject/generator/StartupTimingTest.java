@@ -0,0 +1,37 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StartupTimingTest {
+
+  @Test
+  public void factoryTimesEachBean() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-timing").options("-Adinject.startupTiming");
+    Path a = compiler.source("org.st.A", "package org.st;\n\n@javax.inject.Singleton\npublic class A {\n"
+      + "  @javax.annotation.PostConstruct\n  void init() { }\n}\n");
+    Path b = compiler.source("org.st.B", "package org.st;\n\n@javax.inject.Singleton\npublic class B {\n"
+      + "  public B(A a) { }\n}\n");
+
+    compiler.compileSuccessfully(a, b);
+
+    String factory = compiler.generatedSource("org.st._di$Factory");
+    assertTrue(factory.contains("public StartupReport getStartupReport() {"));
+    assertTrue(factory.contains("    long start = System.nanoTime();\n    build_A();\n    start = startupReport.built(\"org.st.A\", 0, start);\n"));
+    assertTrue(factory.contains("    build_B();\n    start = startupReport.built(\"org.st.B\", 1, start);\n"));
+    // the lifecycle is added as the bean is built (sequentially) and timed
+    assertTrue(factory.contains("addLifecycle(startupReport.timed(\"org.st.A\", A$di.lifecycle(bean)));"));
+    assertFalse(factory.contains("B$di.lifecycle"));
+    assertFalse(factory.contains("parallelStream"));
+
+    String aDi = compiler.generatedSource("org.st.A$di");
+    assertTrue(aDi.contains("public static BeanLifecycle lifecycle(A bean) {"));
+    assertFalse(aDi.contains("builder.addLifecycle("));
+  }
+}
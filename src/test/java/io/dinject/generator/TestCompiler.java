@@ -0,0 +1,178 @@
+package io.dinject.generator;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Compiles sources on disk with both processors (as Gradle or Maven would) for the tests.
+ */
+class TestCompiler {
+
+  private final Path root;
+
+  private final Path classes;
+
+  private final Path generated;
+
+  private final Set<String> generatedSources = new TreeSet<>();
+
+  private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+  private List<String> options = Collections.emptyList();
+
+  private final List<File> classPath = new ArrayList<>();
+
+  private boolean classOutputOnClassPath = true;
+
+  TestCompiler(String prefix) throws IOException {
+    this.root = Files.createTempDirectory(prefix);
+    this.classes = Files.createDirectories(root.resolve("classes"));
+    this.generated = Files.createDirectories(root.resolve("generated"));
+  }
+
+  /**
+   * Set the javac options (for example, the processor options).
+   */
+  TestCompiler options(String... options) {
+    this.options = Arrays.asList(options);
+    return this;
+  }
+
+  /**
+   * Do not put the class output on the class path (as plain javac does not).
+   */
+  TestCompiler withoutClassOutputOnClassPath() {
+    this.classOutputOnClassPath = false;
+    return this;
+  }
+
+  /**
+   * Add the class output of other compilers (modules) to the class path.
+   */
+  TestCompiler classPath(TestCompiler... modules) {
+    for (TestCompiler module : modules) {
+      classPath.add(module.classes.toFile());
+    }
+    return this;
+  }
+
+  /**
+   * Write the source for the given class returning its path.
+   */
+  Path source(String className, String content) throws IOException {
+    Path file = root.resolve("src/" + className.replace('.', '/') + ".java");
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  /**
+   * Return the path of the generated source for the given class.
+   */
+  Path generatedPath(String className) {
+    return generated.resolve(className.replace('.', '/') + ".java");
+  }
+
+  String generatedSource(String className) throws IOException {
+    return new String(Files.readAllBytes(generatedPath(className)), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Return the content of the given resource in the class output.
+   */
+  String classOutput(String relativeName) throws IOException {
+    return new String(Files.readAllBytes(classes.resolve(relativeName)), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Return the class output directory (to load the compiled classes).
+   */
+  Path classOutputDir() {
+    return classes;
+  }
+
+  /**
+   * Return the diagnostics of the last compile.
+   */
+  String getDiagnostics() {
+    return diagnostics.getDiagnostics().toString();
+  }
+
+  /**
+   * Compile the given sources returning true if successful.
+   * <p>
+   * The names of the sources generated by this compile are available via {@link #getGeneratedSources()}.
+   * </p>
+   */
+  boolean compile(Path... sources) throws IOException {
+
+    generatedSources.clear();
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+
+    List<File> classPath = new ArrayList<>();
+    if (classOutputOnClassPath) {
+      classPath.add(classes.toFile());
+    }
+    classPath.addAll(this.classPath);
+    for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      classPath.add(new File(entry));
+    }
+    standard.setLocation(StandardLocation.CLASS_PATH, classPath);
+    standard.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(classes.toFile()));
+    standard.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(generated.toFile()));
+
+    ForwardingJavaFileManager<StandardJavaFileManager> fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(standard) {
+      @Override
+      public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+        if (kind == JavaFileObject.Kind.SOURCE) {
+          generatedSources.add(className);
+        }
+        return super.getJavaFileForOutput(location, className, kind, sibling);
+      }
+    };
+
+    List<File> files = new ArrayList<>();
+    for (Path source : sources) {
+      files.add(source.toFile());
+    }
+    JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, standard.getJavaFileObjectsFromFiles(files));
+    task.setProcessors(Arrays.asList(new BeanProcessor(), new Processor()));
+    boolean success = task.call();
+    fileManager.close();
+    return success;
+  }
+
+  /**
+   * Compile the given sources failing with the diagnostics when unsuccessful.
+   */
+  void compileSuccessfully(Path... sources) throws IOException {
+    if (!compile(sources)) {
+      throw new AssertionError("Compile failed " + getDiagnostics());
+    }
+  }
+
+  /**
+   * Return the names of the sources generated by the last compile.
+   */
+  Set<String> getGeneratedSources() {
+    return generatedSources;
+  }
+}
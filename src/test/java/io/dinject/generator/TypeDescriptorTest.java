@@ -0,0 +1,114 @@
+package io.dinject.generator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TypeDescriptorTest {
+
+  @Test
+  public void parse_plain() {
+
+    TypeDescriptor type = TypeDescriptor.parse("org.Foo");
+    assertEquals(TypeDescriptor.Kind.PLAIN, type.getKind());
+    assertEquals("org.Foo", type.getType());
+    assertEquals("org.Foo", type.getRawType());
+    assertEquals("Foo", type.getShortName());
+  }
+
+  @Test
+  public void parse_genericPlain() {
+
+    TypeDescriptor type = TypeDescriptor.parse("java.util.Map<a.B,c.D>");
+    assertEquals(TypeDescriptor.Kind.PLAIN, type.getKind());
+    assertEquals("java.util.Map<a.B,c.D>", type.getType());
+    assertEquals("java.util.Map", type.getRawType());
+  }
+
+  @Test
+  public void parse_nestedGenerics() {
+
+    TypeDescriptor list = TypeDescriptor.parse("java.util.List<? extends org.Repo<org.Foo>>");
+    assertEquals(TypeDescriptor.Kind.LIST, list.getKind());
+    assertEquals("java.util.List", list.getErasure());
+    assertEquals("org.Repo<org.Foo>", list.getType());
+    assertEquals("org.Repo", list.getRawType());
+
+    TypeDescriptor optional = TypeDescriptor.parse("java.util.Optional<java.util.Map<a.B,c.D>>");
+    assertEquals(TypeDescriptor.Kind.OPTIONAL, optional.getKind());
+    assertEquals("java.util.Map<a.B,c.D>", optional.getType());
+    assertEquals("java.util.Map", optional.getRawType());
+  }
+
+  @Test
+  public void parse_wrappers() {
+
+    assertEquals(TypeDescriptor.Kind.SET, TypeDescriptor.parse("java.util.Set<org.X>").getKind());
+    TypeDescriptor provider = TypeDescriptor.parse("javax.inject.Provider<org.X>");
+    assertEquals(TypeDescriptor.Kind.PROVIDER, provider.getKind());
+    assertEquals("org.X", provider.getType());
+    assertEquals("java.lang.Object", TypeDescriptor.parse("java.util.List<?>").getType());
+  }
+
+  @Test
+  public void builderGet() {
+
+    Append writer = new Append();
+    TypeDescriptor.parse("java.util.Set<org.Repo<org.Foo>>").builderGet(writer, "b", "blue", false);
+    TypeDescriptor.parse("javax.inject.Provider<org.X>").builderGet(writer.append(";"), "b", null, true);
+    assertEquals("new java.util.LinkedHashSet(b.getList(org.Repo.class,\"blue\"));b.get(X$di.Lazy.class)", writer.toString());
+  }
+
+  @Test
+  public void compile_genericDependencies() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-types");
+    Path repo = compiler.source("org.td.Repo", "package org.td;\n\npublic interface Repo<T> {\n}\n");
+    Path foo = compiler.source("org.td.FooRepo", "package org.td;\n\n@javax.inject.Singleton\n"
+      + "public class FooRepo implements Repo<java.util.Map<String, Integer>> {\n}\n");
+    Path svc = compiler.source("org.td.Service", "package org.td;\n\n@javax.inject.Singleton\npublic class Service {\n"
+      + "  @javax.inject.Inject\n  java.util.Set<Repo<java.util.Map<String, Integer>>> repoSet;\n"
+      + "  public Service(java.util.List<? extends Repo<java.util.Map<String, Integer>>> repos,"
+      + " java.util.Optional<Repo<java.util.Map<String, Integer>>> repo) { }\n}\n");
+
+    compiler.compileSuccessfully(repo, foo, svc);
+
+    String fooDi = compiler.generatedSource("org.td.FooRepo$di");
+    assertTrue(fooDi.contains("builder.register(bean, null, Repo.class)"));
+
+    String svcDi = compiler.generatedSource("org.td.Service$di");
+    assertTrue(svcDi.contains("@SuppressWarnings(\"unchecked\")\npublic class Service$di"));
+    assertTrue(svcDi.contains("new Service((java.util.List)builder.getList(Repo.class),(java.util.Optional)builder.getOptional(Repo.class))"));
+    assertTrue(svcDi.contains("bean.repoSet = new java.util.LinkedHashSet(b.getList(org.td.Repo.class));"));
+  }
+
+  @Test
+  public void compile_rawTypeProvidedWithDifferentTypeArguments() throws IOException {
+
+    TestCompiler compiler = new TestCompiler("dinject-raw-types");
+    Path[] sources = rawTypeSources(compiler, "", "");
+    assertFalse(compiler.compile(sources));
+    assertTrue(compiler.getDiagnostics().contains("org.rw.Service depends on org.rw.Repo<java.lang.String> which is looked up by its raw type"
+      + " provided as [org.rw.Repo<java.lang.String>, org.rw.Repo<java.lang.Integer>] - add a qualifier (@Named) to the dependency"));
+
+    TestCompiler named = new TestCompiler("dinject-raw-types-named");
+    named.compileSuccessfully(rawTypeSources(named, "@javax.inject.Named(\"s\")\n", "@javax.inject.Named(\"s\") "));
+    assertTrue(named.generatedSource("org.rw.Service$di").contains("new Service(builder.get(Repo.class,\"s\"))"));
+  }
+
+  private static Path[] rawTypeSources(TestCompiler compiler, String beanQualifier, String paramQualifier) throws IOException {
+    return new Path[]{
+      compiler.source("org.rw.Repo", "package org.rw;\n\npublic interface Repo<T> {\n}\n"),
+      compiler.source("org.rw.StringRepo", "package org.rw;\n\n@javax.inject.Singleton\n" + beanQualifier
+        + "public class StringRepo implements Repo<String> {\n}\n"),
+      compiler.source("org.rw.IntRepo", "package org.rw;\n\n@javax.inject.Singleton\npublic class IntRepo implements Repo<Integer> {\n}\n"),
+      compiler.source("org.rw.Service", "package org.rw;\n\n@javax.inject.Singleton\npublic class Service {\n"
+        + "  public Service(" + paramQualifier + "Repo<String> repo) { }\n}\n")
+    };
+  }
+}
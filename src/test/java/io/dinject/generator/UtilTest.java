@@ -19,4 +19,11 @@ public class UtilTest {
     assertEquals(Util.commonParent("org.foo.web.foo", "org.foo.service.blah"), "org.foo");
 
   }
+
+  @Test
+  public void trimGenerics() {
+
+    assertEquals(Util.trimGenerics("org.foo.Repo"), "org.foo.Repo");
+    assertEquals(Util.trimGenerics("org.foo.Repo<org.foo.Customer>"), "org.foo.Repo");
+  }
 }